@@ -0,0 +1,196 @@
+package com.example.pomodorotimer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Fires cues (sounds, vibrations, notification updates) at fixed offsets from the start or
+ * end of a phase.
+ *
+ * Cues are declared relative to a phase and resolved against the engine's monotonic deadline
+ * into absolute times, kept in a priority queue ordered by time. The host arms a single
+ * wakeup for {@link #nextCueAt()} and calls {@link #fireDue(long)} when it arrives, so a cue
+ * fires exactly when it is due instead of on the next poll.
+ *
+ * A cue may belong to the next phase and fire before it begins (a negative offset from its
+ * start, e.g. a "break starts" sound 1.5 s before the work phase ends). Every cue fires at
+ * most once per phase instance, including across pause/resume and when the phase it belongs
+ * to is reached by a skip; a next-phase cue that was never reached fires when the phase
+ * starts instead. Cues missed by more than {@link #STALE_AFTER_MS} (e.g. the process was
+ * dead) are dropped rather than replayed late.
+ *
+ * Registered as an engine listener; must be added before any listener that reads
+ * {@link #nextCueAt()} in the same callbacks. Not thread-safe, like the engine.
+ */
+public class CueScheduler implements TimerEngine.Listener {
+
+    public enum Anchor { START, END }
+
+    public enum Kind { SOUND, VIBRATION, NOTIFICATION }
+
+    /** A cue declaration; {@code name} identifies the sound (or other payload) to the host. */
+    public static final class Cue {
+        public final TimerEngine.Phase phase;
+        public final Anchor anchor;
+        public final long offsetMillis;
+        public final Kind kind;
+        public final String name;
+
+        public Cue(TimerEngine.Phase phase, Anchor anchor, long offsetMillis, Kind kind, String name) {
+            this.phase = phase;
+            this.anchor = anchor;
+            this.offsetMillis = offsetMillis;
+            this.kind = kind;
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + name + " @" + phase + " " + anchor + (offsetMillis >= 0 ? "+" : "") + offsetMillis;
+        }
+    }
+
+    public interface Listener {
+        /** {@code lateMillis} is how long after its due time the cue fired. */
+        void onCue(Cue cue, long lateMillis);
+    }
+
+    /** Returned by {@link #nextCueAt()} when nothing is pending. */
+    public static final long NONE = Long.MAX_VALUE;
+
+    static final long STALE_AFTER_MS = 5_000L;
+
+    private static final Metrics.Histogram LATENESS_MICROS = Metrics.process().histogram("cue.lateness");
+    private static final Metrics.Counter DROPPED = Metrics.process().counter("cue.dropped");
+
+    // One planned firing of a cue
+    private static final class Occurrence implements Comparable<Occurrence> {
+        final int index;
+        final long at;
+        final boolean nextPhase;
+
+        Occurrence(int index, long at, boolean nextPhase) {
+            this.index = index;
+            this.at = at;
+            this.nextPhase = nextPhase;
+        }
+
+        @Override
+        public int compareTo(Occurrence o) {
+            return at != o.at ? Long.compare(at, o.at) : Integer.compare(index, o.index);
+        }
+    }
+
+    private final TimerEngine engine;
+    private final TimerEngine.Clock clock;
+    private final List<Cue> cues;
+    private final Listener listener;
+    private final PriorityQueue<Occurrence> queue = new PriorityQueue<>();
+    // which cues already fired for the current phase instance and for the one after it
+    private boolean[] firedCurrent;
+    private boolean[] firedNext;
+
+    public CueScheduler(TimerEngine engine, TimerEngine.Clock clock, List<Cue> cues, Listener listener) {
+        this.engine = engine;
+        this.clock = clock;
+        this.cues = Collections.unmodifiableList(new ArrayList<>(cues));
+        this.listener = listener;
+        this.firedCurrent = new boolean[cues.size()];
+        this.firedNext = new boolean[cues.size()];
+    }
+
+    public List<Cue> getCues() {
+        return cues;
+    }
+
+    /** Monotonic time of the earliest pending cue, or {@link #NONE}. */
+    public long nextCueAt() {
+        Occurrence next = queue.peek();
+        return next == null ? NONE : next.at;
+    }
+
+    /** Fires every cue due at {@code now}, in time order. */
+    public void fireDue(long now) {
+        while (!queue.isEmpty() && queue.peek().at <= now) fire(queue.poll(), now);
+    }
+
+    /**
+     * Marks every cue due at {@code now} as fired without playing it, e.g. after a restore,
+     * where they came due while nobody was there to hear them.
+     */
+    public void discardDue(long now) {
+        while (!queue.isEmpty() && queue.peek().at <= now) {
+            Occurrence occurrence = queue.poll();
+            (occurrence.nextPhase ? firedNext : firedCurrent)[occurrence.index] = true;
+            DROPPED.increment();
+        }
+    }
+
+    /**
+     * Rebuilds the queue from the engine's current deadline. Called automatically on engine
+     * events; the host calls it after restoring the engine directly.
+     */
+    public void reschedule() {
+        queue.clear();
+        if (!engine.isRunning()) return;
+        TimerEngine.Phase phase = engine.getPhase();
+        TimerEngine.Phase next = phase == TimerEngine.Phase.WORK ? TimerEngine.Phase.BREAK : TimerEngine.Phase.WORK;
+        long end = engine.getDeadline();
+        long start = end - engine.getPhaseDurationMillis();
+        long nextEnd = end + (next == TimerEngine.Phase.WORK ? engine.getWorkMillis() : engine.getBreakMillis());
+        for (int i = 0; i < cues.size(); i++) {
+            Cue cue = cues.get(i);
+            if (cue.phase == phase && !firedCurrent[i]) {
+                long at = (cue.anchor == Anchor.START ? start : end) + cue.offsetMillis;
+                // a cue that would have fired before the phase existed (skip, fresh start) fires as it begins
+                if (at <= end) queue.add(new Occurrence(i, Math.max(at, start), false));
+            }
+            if (cue.phase == next && !firedNext[i]) {
+                long at = (cue.anchor == Anchor.START ? end : nextEnd) + cue.offsetMillis;
+                // a lead longer than this phase still plays after the phase's own start cues
+                if (at < end) queue.add(new Occurrence(i, Math.max(at, start), true));
+            }
+        }
+    }
+
+    @Override
+    public void onPhaseStarted(TimerEngine.Phase phase) {
+        reschedule();
+        fireDue(clock.now());
+    }
+
+    @Override
+    public void onPhaseFinished(TimerEngine.Phase phase, long elapsedMillis, boolean skipped) {
+        // the phase ran to its deadline: everything planned for it is due (the host may have
+        // observed the deadline late); a skipped phase drops its remaining cues
+        if (!skipped) {
+            long now = clock.now();
+            while (!queue.isEmpty()) fire(queue.poll(), now);
+        }
+        queue.clear();
+        boolean[] recycled = firedCurrent;
+        firedCurrent = firedNext;
+        firedNext = recycled;
+        Arrays.fill(firedNext, false);
+    }
+
+    @Override
+    public void onRunningChanged(boolean running) {
+        reschedule();
+        if (running) fireDue(clock.now());
+    }
+
+    private void fire(Occurrence occurrence, long now) {
+        (occurrence.nextPhase ? firedNext : firedCurrent)[occurrence.index] = true;
+        long late = Math.max(0L, now - occurrence.at);
+        if (late > STALE_AFTER_MS) {
+            DROPPED.increment();
+            return;
+        }
+        LATENESS_MICROS.record(late * 1000L);
+        listener.onCue(cues.get(occurrence.index), late);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.pomodorotimer;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link HistorySync.Transport} over a folder picked through the Storage Access Framework
+ * (a cloud-synced folder, a USB stick, ...). Batches are the same files
+ * {@link FileDropTransport} drops, so devices may use either on a shared folder.
+ *
+ * A batch is written under a temp name and renamed where the provider supports it, so a
+ * reader rarely sees half a batch; one that does fails its checksum and is rejected.
+ */
+public class DocumentTreeTransport implements HistorySync.Transport {
+
+    private static final String MIME_TYPE = "application/octet-stream";
+
+    private final ContentResolver resolver;
+    private final Uri tree;
+    private final Uri dir;
+
+    public DocumentTreeTransport(ContentResolver resolver, Uri tree) {
+        this.resolver = resolver;
+        this.tree = tree;
+        this.dir = DocumentsContract.buildDocumentUriUsingTree(tree, DocumentsContract.getTreeDocumentId(tree));
+    }
+
+    @Override
+    public void send(long deviceId, long firstSeq, int count, byte[] batch) throws IOException {
+        String name = FileDropTransport.name(deviceId, firstSeq, count);
+        Map<String, String> children = list();
+        String tmpId = children.get(name + ".tmp");
+        Uri tmp = tmpId != null ? document(tmpId) : DocumentsContract.createDocument(resolver, dir, MIME_TYPE, name + ".tmp");
+        if (tmp == null) throw new IOException("Cannot create " + name);
+        try (OutputStream out = resolver.openOutputStream(tmp, "wt")) {
+            if (out == null) throw new IOException("Cannot open " + tmp);
+            out.write(batch);
+        }
+        String existing = children.get(name);
+        if (existing != null) DocumentsContract.deleteDocument(resolver, document(existing));
+        Uri renamed;
+        try {
+            renamed = DocumentsContract.renameDocument(resolver, tmp, name);
+        } catch (UnsupportedOperationException e) {
+            renamed = null;
+        }
+        if (renamed == null) {
+            // the provider cannot rename: write the batch in place
+            DocumentsContract.deleteDocument(resolver, tmp);
+            Uri file = DocumentsContract.createDocument(resolver, dir, MIME_TYPE, name);
+            if (file == null) throw new IOException("Cannot create " + name);
+            try (OutputStream out = resolver.openOutputStream(file, "wt")) {
+                if (out == null) throw new IOException("Cannot open " + file);
+                out.write(batch);
+            }
+        }
+    }
+
+    @Override
+    public void receive(long selfId, Map<Long, Long> nextSeqs, HistorySync.BatchSink sink) throws IOException {
+        List<long[]> wanted = new ArrayList<>(); // device, first sequence, count
+        Map<String, String> children = list();
+        for (String name : children.keySet()) {
+            long[] batch = FileDropTransport.parse(name);
+            if (batch == null || batch[0] == selfId) continue;
+            if (batch[1] + batch[2] <= nextSeqs.getOrDefault(batch[0], 0L)) continue;
+            wanted.add(batch);
+        }
+        wanted.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        byte[] buffer = new byte[16 * 1024];
+        for (long[] batch : wanted) {
+            Uri uri = document(children.get(FileDropTransport.name(batch[0], batch[1], (int) batch[2])));
+            try (InputStream in = resolver.openInputStream(uri)) {
+                if (in == null) throw new IOException("Cannot open " + uri);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                int n;
+                while ((n = in.read(buffer)) > 0) bytes.write(buffer, 0, n);
+                sink.accept(bytes.toByteArray());
+            }
+        }
+    }
+
+    // Display name to document id of every file in the folder
+    private Map<String, String> list() throws IOException {
+        Uri children = DocumentsContract.buildChildDocumentsUriUsingTree(tree, DocumentsContract.getDocumentId(dir));
+        String[] columns = {DocumentsContract.Document.COLUMN_DOCUMENT_ID, DocumentsContract.Document.COLUMN_DISPLAY_NAME};
+        Map<String, String> ids = new HashMap<>();
+        try (Cursor cursor = resolver.query(children, columns, null, null, null)) {
+            if (cursor == null) throw new FileNotFoundException("Cannot list " + tree);
+            while (cursor.moveToNext()) ids.put(cursor.getString(1), cursor.getString(0));
+        }
+        return ids;
+    }
+
+    private Uri document(String documentId) {
+        return DocumentsContract.buildDocumentUriUsingTree(tree, documentId);
+    }
+}
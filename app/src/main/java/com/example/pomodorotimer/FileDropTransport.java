@@ -0,0 +1,75 @@
+package com.example.pomodorotimer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@link HistorySync.Transport} over a shared directory (a synced folder, removable storage or
+ * a test's temp dir): every batch is one file named after its device and sequence range, so
+ * a receiver picks the batches it is missing from the listing without opening the others.
+ *
+ * Files are written to a temp name and renamed, so a reader never sees half a batch, and
+ * re-sending a batch replaces it with identical content.
+ */
+public class FileDropTransport implements HistorySync.Transport {
+
+    private static final String SUFFIX = ".batch";
+
+    private final File dir;
+
+    public FileDropTransport(File dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public void send(long deviceId, long firstSeq, int count, byte[] batch) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File file = new File(dir, name(deviceId, firstSeq, count));
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(batch);
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("Cannot replace " + file);
+    }
+
+    @Override
+    public void receive(long selfId, Map<Long, Long> nextSeqs, HistorySync.BatchSink sink) throws IOException {
+        String[] names = dir.list();
+        if (names == null) return;
+        List<long[]> wanted = new ArrayList<>(); // device, first sequence, count
+        for (String name : names) {
+            long[] batch = parse(name);
+            if (batch == null || batch[0] == selfId) continue;
+            if (batch[1] + batch[2] <= nextSeqs.getOrDefault(batch[0], 0L)) continue;
+            wanted.add(batch);
+        }
+        wanted.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        for (long[] batch : wanted) {
+            sink.accept(Files.readAllBytes(new File(dir, name(batch[0], batch[1], (int) batch[2])).toPath()));
+        }
+    }
+
+    // Shared with DocumentTreeTransport, so both drop the same files into a folder
+    static String name(long deviceId, long firstSeq, int count) {
+        return String.format(Locale.ROOT, "%016x-%016x-%d%s", deviceId, firstSeq, count, SUFFIX);
+    }
+
+    // {device, first sequence, count}, or null if the name is not a batch
+    static long[] parse(String name) {
+        if (!name.endsWith(SUFFIX)) return null;
+        String[] parts = name.substring(0, name.length() - SUFFIX.length()).split("-");
+        if (parts.length != 3) return null;
+        try {
+            return new long[] {Long.parseUnsignedLong(parts[0], 16), Long.parseUnsignedLong(parts[1], 16), Integer.parseInt(parts[2])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
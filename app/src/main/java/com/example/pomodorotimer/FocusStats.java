@@ -0,0 +1,249 @@
+package com.example.pomodorotimer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * Incremental focus statistics over the session history.
+ *
+ * Work time is bucketed per local day in primitive arrays indexed by {@code epochDay - baseDay}.
+ * A Fenwick tree over the same buckets answers any day/week/range total in O(log days), while
+ * per-day values, the current streak and the completion rate are O(1). Adding a record is
+ * O(log days) (amortised; the arrays double when history outgrows them), so nothing is ever
+ * rescanned. Work time per task ({@link SessionRecord}'s tag) is summed in an
+ * {@link IntLongMap}, O(1) per record and per lookup with any number of tasks. The whole
+ * rollup is checkpointed to one small file and restored with a single read.
+ */
+public class FocusStats {
+
+    private static final int MAGIC_V1 = 0x50535431; // "PST1"
+    private static final int MAGIC = 0x50535432; // "PST2": adds the per-task totals
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int INITIAL_DAYS = 64;
+    private static final int HEADER_SIZE = 56;
+
+    private final TimeZone timeZone;
+
+    private long baseDay = Long.MIN_VALUE; // epoch day of bucket 0, unset until the first record
+    private int days = 0;                  // buckets in use
+    private long[] dayFocus = new long[INITIAL_DAYS];
+    private int[] dayCompleted = new int[INITIAL_DAYS];
+    private long[] tree = new long[INITIAL_DAYS + 1]; // Fenwick tree over dayFocus, 1-based
+
+    private long completedWork = 0;
+    private long totalWork = 0;
+    private long lastActiveDay = Long.MIN_VALUE; // last day with a completed work phase
+    private int streak = 0;                     // consecutive active days ending at lastActiveDay
+    private long recordsApplied = 0;            // history records folded into this rollup
+    private IntLongMap taskFocus = new IntLongMap(); // work time by task id
+
+    public FocusStats(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    /** Folds one history record into the rollup. Break phases only advance the record count. */
+    public void add(SessionRecord record) {
+        recordsApplied++;
+        if (record.getPhase() != TimerEngine.Phase.WORK) return;
+        long day = epochDay(record.getStartEpochMillis());
+        int index = bucket(day);
+        totalWork++;
+        if (record.getTag() != TaskRegistry.NONE) taskFocus.add(record.getTag(), record.getDurationMillis());
+        dayFocus[index] += record.getDurationMillis();
+        for (int i = index + 1; i < tree.length; i += i & -i) tree[i] += record.getDurationMillis();
+        if (record.getOutcome() == SessionRecord.Outcome.COMPLETED) {
+            completedWork++;
+            if (dayCompleted[index]++ == 0) markActive(day);
+        }
+    }
+
+    public long epochDay(long epochMillis) {
+        return Math.floorDiv(epochMillis + timeZone.getOffset(epochMillis), DAY_MILLIS);
+    }
+
+    /** Focus time on one day, O(1). */
+    public long dayFocusMillis(long epochDay) {
+        int index = indexOf(epochDay);
+        return index < 0 || index >= days ? 0L : dayFocus[index];
+    }
+
+    /** Focus time over {@code [fromDay, toDay]} (inclusive), O(log days). */
+    public long focusMillis(long fromDay, long toDay) {
+        if (days == 0 || toDay < fromDay) return 0L;
+        long from = Math.max(fromDay - baseDay, 0L);
+        long to = Math.min(toDay - baseDay, days - 1L);
+        if (to < from) return 0L;
+        return prefix((int) to + 1) - prefix((int) from);
+    }
+
+    /** Focus time in the seven days starting at {@code weekStartDay}. */
+    public long weekFocusMillis(long weekStartDay) {
+        return focusMillis(weekStartDay, weekStartDay + 6);
+    }
+
+    /** Consecutive days with at least one completed work phase, ending today or yesterday. */
+    public int currentStreak(long today) {
+        return lastActiveDay >= today - 1 && lastActiveDay <= today ? streak : 0;
+    }
+
+    /** Share of work phases that ran to completion, in [0, 1]. */
+    public float completionRate() {
+        return totalWork == 0 ? 0f : (float) completedWork / (float) totalWork;
+    }
+
+    /** Work time spent on one task, O(1). */
+    public long taskFocusMillis(int taskId) {
+        return taskId == TaskRegistry.NONE ? 0L : taskFocus.get(taskId);
+    }
+
+    /** Number of tasks with any work time. */
+    public int taskCount() {
+        return taskFocus.size();
+    }
+
+    public long getRecordsApplied() {
+        return recordsApplied;
+    }
+
+    /** Writes the rollup atomically (temp file + rename). */
+    public void save(File file) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + days * 12 + taskFocus.serializedSize());
+        out.putInt(MAGIC);
+        out.putInt(timeZone.getRawOffset());
+        out.putLong(baseDay);
+        out.putInt(days);
+        out.putLong(completedWork);
+        out.putLong(totalWork);
+        out.putLong(lastActiveDay);
+        out.putInt(streak);
+        out.putLong(recordsApplied);
+        for (int i = 0; i < days; i++) out.putLong(dayFocus[i]);
+        for (int i = 0; i < days; i++) out.putInt(dayCompleted[i]);
+        taskFocus.writeTo(out);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(out.array(), 0, out.position());
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("Cannot replace " + file);
+    }
+
+    /**
+     * Loads a checkpoint written by {@link #save} with one read, or returns empty stats if the
+     * file is missing, damaged or was written for another time zone. A checkpoint of the
+     * previous format has no task totals, which is right: its records carry no tags.
+     */
+    public static FocusStats load(File file, TimeZone timeZone) throws IOException {
+        FocusStats stats = new FocusStats(timeZone);
+        if (!file.isFile()) return stats;
+        byte[] bytes;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_SIZE) return stats;
+        int magic = in.getInt();
+        if ((magic != MAGIC && magic != MAGIC_V1) || in.getInt() != timeZone.getRawOffset()) return stats;
+        long baseDay = in.getLong();
+        int days = in.getInt();
+        long daysEnd = HEADER_SIZE + days * 12L;
+        if (days < 0 || (magic == MAGIC_V1 ? in.capacity() != daysEnd : in.capacity() < daysEnd)) return stats;
+        stats.baseDay = baseDay;
+        stats.completedWork = in.getLong();
+        stats.totalWork = in.getLong();
+        stats.lastActiveDay = in.getLong();
+        stats.streak = in.getInt();
+        stats.recordsApplied = in.getLong();
+        stats.ensureCapacity(days);
+        stats.days = days;
+        for (int i = 0; i < days; i++) stats.dayFocus[i] = in.getLong();
+        for (int i = 0; i < days; i++) stats.dayCompleted[i] = in.getInt();
+        if (magic == MAGIC) {
+            IntLongMap tasks = IntLongMap.readFrom(in);
+            if (tasks == null || in.hasRemaining()) return new FocusStats(timeZone);
+            stats.taskFocus = tasks;
+        }
+        stats.rebuildTree();
+        return stats;
+    }
+
+    private long prefix(int count) {
+        long sum = 0;
+        for (int i = count; i > 0; i -= i & -i) sum += tree[i];
+        return sum;
+    }
+
+    private int indexOf(long day) {
+        if (days == 0 || day < baseDay || day - baseDay >= Integer.MAX_VALUE) return -1;
+        return (int) (day - baseDay);
+    }
+
+    // Returns the bucket for the day, growing or rebasing the arrays as needed
+    private int bucket(long day) {
+        if (days == 0) {
+            baseDay = day;
+            days = 1;
+            return 0;
+        }
+        if (day < baseDay) {
+            // history older than anything seen so far (e.g. an import): shift everything right
+            int shift = (int) (baseDay - day);
+            ensureCapacity(days + shift);
+            System.arraycopy(dayFocus, 0, dayFocus, shift, days);
+            System.arraycopy(dayCompleted, 0, dayCompleted, shift, days);
+            Arrays.fill(dayFocus, 0, shift, 0L);
+            Arrays.fill(dayCompleted, 0, shift, 0);
+            baseDay = day;
+            days += shift;
+            rebuildTree();
+            return 0;
+        }
+        int index = (int) (day - baseDay);
+        if (index >= days) {
+            ensureCapacity(index + 1);
+            days = index + 1;
+        }
+        return index;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= dayFocus.length) return;
+        int capacity = Math.max(needed, dayFocus.length * 2);
+        dayFocus = Arrays.copyOf(dayFocus, capacity);
+        dayCompleted = Arrays.copyOf(dayCompleted, capacity);
+        rebuildTree();
+    }
+
+    // O(n) Fenwick construction from the raw buckets
+    private void rebuildTree() {
+        if (tree.length != dayFocus.length + 1) tree = new long[dayFocus.length + 1];
+        for (int i = 1; i < tree.length; i++) tree[i] = dayFocus[i - 1];
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+    }
+
+    // A day just got its first completed work phase
+    private void markActive(long day) {
+        if (lastActiveDay == Long.MIN_VALUE || day > lastActiveDay + 1) {
+            streak = 1;
+            lastActiveDay = day;
+        } else if (day == lastActiveDay + 1) {
+            streak++;
+            lastActiveDay = day;
+        } else if (day < lastActiveDay - streak) {
+            // older day that does not touch the current streak: nothing to do
+        } else {
+            // filled a gap (or the day just before the streak): walk back from the latest day
+            streak = 0;
+            for (long d = lastActiveDay; indexOf(d) >= 0 && dayCompleted[indexOf(d)] > 0; d--) streak++;
+        }
+    }
+}
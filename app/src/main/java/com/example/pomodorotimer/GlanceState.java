@@ -0,0 +1,68 @@
+package com.example.pomodorotimer;
+
+/**
+ * What the home-screen widget and the quick-settings tile show, as an immutable value.
+ *
+ * A running countdown is described by its monotonic deadline, which the system chronometer
+ * counts down by itself; only a phase change, pause, resume, skip or session count change
+ * produces a different state. {@link #diff} names the parts that changed, so a surface
+ * re-sends only those views instead of the whole layout.
+ */
+public final class GlanceState {
+
+    public static final int MODE = 1;
+    public static final int COUNTDOWN = 1 << 1;
+    public static final int RUNNING = 1 << 2;
+    public static final int SESSIONS = 1 << 3;
+    public static final int ALL = MODE | COUNTDOWN | RUNNING | SESSIONS;
+
+    public final TimerEngine.Phase phase;
+    public final boolean running;
+    /** Monotonic deadline while running, otherwise 0. */
+    public final long deadline;
+    /** Remaining time while paused, otherwise 0. */
+    public final long remainingMillis;
+    public final int sessions;
+
+    public GlanceState(TimerEngine.Phase phase, boolean running, long deadline, long remainingMillis, int sessions) {
+        this.phase = phase;
+        this.running = running;
+        this.deadline = running ? deadline : 0L;
+        this.remainingMillis = running ? 0L : remainingMillis;
+        this.sessions = sessions;
+    }
+
+    public static GlanceState of(TimerEngine engine, int sessions) {
+        return new GlanceState(engine.getPhase(), engine.isRunning(), engine.getDeadline(), engine.getRemainingMillis(), sessions);
+    }
+
+    /** Bit set of the parts that differ from {@code previous}; {@link #ALL} if there is none. */
+    public int diff(GlanceState previous) {
+        if (previous == null) return ALL;
+        int changes = 0;
+        if (phase != previous.phase) changes |= MODE;
+        if (running != previous.running) changes |= RUNNING | COUNTDOWN;
+        if (deadline != previous.deadline || remainingMillis != previous.remainingMillis) changes |= COUNTDOWN;
+        if (sessions != previous.sessions) changes |= SESSIONS;
+        return changes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GlanceState && diff((GlanceState) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = phase.hashCode();
+        h = 31 * h + (running ? 1 : 0);
+        h = 31 * h + Long.hashCode(deadline);
+        h = 31 * h + Long.hashCode(remainingMillis);
+        return 31 * h + sessions;
+    }
+
+    @Override
+    public String toString() {
+        return phase + (running ? " running until " + deadline : " paused at " + remainingMillis) + " #" + sessions;
+    }
+}
@@ -0,0 +1,390 @@
+package com.example.pomodorotimer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Exchanges session history between devices in compressed batches of new records only.
+ *
+ * Every device numbers the records it produced itself with a dense sequence (0, 1, 2, ...)
+ * and remembers two cursors: how far into its own log it has sent, and for every other device
+ * the next sequence it expects. A sync sends the local records after the send cursor, then
+ * merges batches from other devices starting at their cursor, so its cost is proportional to
+ * the records that are new since the last sync rather than to the whole history. Merged
+ * records are appended with {@link SessionRecord#FLAG_REMOTE} and never sent back out. Their
+ * task tag is dropped: {@link TaskRegistry} ids are only meaningful on the device that
+ * interned them.
+ *
+ * Cursors are saved after every batch. A sync cut off at any point is simply run again:
+ * re-sent batches and batches already merged are recognised by their sequence numbers, and
+ * records appended by a merge whose cursor was not saved yet are recognised by comparing
+ * against the remote records appended since the last saved checkpoint.
+ *
+ * How batches travel is up to the {@link Transport}. Not thread-safe; run it on the thread
+ * that owns the {@link SessionLog}.
+ */
+public class HistorySync {
+
+    /** Moves encoded batches between devices. Batches are opaque, self-describing and checksummed. */
+    public interface Transport {
+        /** Stores a batch durably. Sending the same batch again must be harmless. */
+        void send(long deviceId, long firstSeq, int count, byte[] batch) throws IOException;
+
+        /**
+         * Passes batches from devices other than {@code selfId} to {@code sink}, in sequence
+         * order per device. Batches ending at or before a device's entry in {@code nextSeqs}
+         * (0 if absent) are already merged and may be left out.
+         */
+        void receive(long selfId, Map<Long, Long> nextSeqs, BatchSink sink) throws IOException;
+    }
+
+    public interface BatchSink {
+        void accept(byte[] batch) throws IOException;
+    }
+
+    /** What one {@link #sync} did. */
+    public static final class Result {
+        public long sentRecords;
+        public long sentBatches;
+        public long sentBytes;
+        public long mergedRecords;
+        public long duplicateRecords;
+        public long receivedBatches;
+        public long receivedBytes;
+        /** Batches that failed their checksum or skipped ahead of a missing one. */
+        public long rejectedBatches;
+
+        @Override
+        public String toString() {
+            return "sent " + sentRecords + " in " + sentBatches + " batches (" + sentBytes + " bytes), merged "
+                    + mergedRecords + " (" + duplicateRecords + " duplicates) from " + receivedBatches + " batches ("
+                    + receivedBytes + " bytes), " + rejectedBatches + " rejected";
+        }
+    }
+
+    static final int BATCH_RECORDS = 512;
+
+    private static final int BATCH_MAGIC = 0x50534231; // "PSB1"
+    private static final int HEADER = 4 + 8 + 8 + 4 + 4;
+    // varlong start delta, varint duration, phase/outcome, varint flags, varint tag
+    private static final int MAX_RECORD_BYTES = 10 + 5 + 1 + 5 + 5;
+    private static final int STATE_MAGIC = 0x50485331; // "PHS1"
+
+    private static final Metrics.Histogram SYNC_MICROS = Metrics.process().histogram("sync.duration");
+    private static final Metrics.Counter SENT_BYTES = Metrics.process().counter("sync.sent_bytes");
+    private static final Metrics.Counter RECEIVED_BYTES = Metrics.process().counter("sync.received_bytes");
+
+    private final File stateFile;
+    private final Transport transport;
+    private final CRC32 crc = new CRC32();
+
+    private long deviceId;
+    // first log index not yet looked at for sending, and the sequence of the next local record
+    private long scanIndex;
+    private long nextSeq;
+    // log size when the cursors were last saved; remote records past it may lack a saved cursor
+    private long checkpoint;
+    private final Map<Long, Long> received = new HashMap<>();
+
+    /** Loads the cursors from {@code stateFile}, or starts as a new device if there are none. */
+    public HistorySync(File stateFile, Transport transport) {
+        this.stateFile = stateFile;
+        this.transport = transport;
+        if (!read()) {
+            deviceId = newDeviceId();
+            scanIndex = 0L;
+            nextSeq = 0L;
+            checkpoint = 0L;
+            received.clear();
+        }
+    }
+
+    public long getDeviceId() {
+        return deviceId;
+    }
+
+    /**
+     * Sends the local records appended since the last sync, then merges new records from other
+     * devices into {@code log}, passing each to {@code onMerged}. The log is flushed.
+     */
+    public Result sync(SessionLog log, Consumer<SessionRecord> onMerged) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        log.flush();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        Inflater inflater = new Inflater();
+        try {
+            send(log, deflater, result);
+            Set<SessionRecord> unconfirmed = unconfirmedMerges(log);
+            transport.receive(deviceId, new HashMap<>(received), batch -> merge(batch, log, inflater, unconfirmed, onMerged, result));
+            if (checkpoint != log.size()) {
+                checkpoint = log.size();
+                write();
+            }
+        } finally {
+            deflater.end();
+            inflater.end();
+        }
+        SYNC_MICROS.recordSinceNanos(start);
+        return result;
+    }
+
+    private void send(SessionLog log, Deflater deflater, Result result) throws IOException {
+        ByteBuffer raw = ByteBuffer.allocate(BATCH_RECORDS * MAX_RECORD_BYTES);
+        int count = 0;
+        long prevStart = 0L;
+        try (SessionLog.Reader reader = log.openReader(scanIndex)) {
+            SessionRecord record;
+            while ((record = reader.next()) != null) {
+                if ((record.getFlags() & SessionRecord.FLAG_REMOTE) != 0) continue;
+                putVarLong(raw, zigZag(record.getStartEpochMillis() - prevStart));
+                prevStart = record.getStartEpochMillis();
+                putVarInt(raw, record.getDurationMillis());
+                raw.put((byte) (record.getPhase().ordinal() << 4 | record.getOutcome().ordinal()));
+                putVarInt(raw, record.getFlags());
+                putVarInt(raw, record.getTag());
+                if (++count == BATCH_RECORDS) {
+                    sendBatch(raw, count, reader.getIndex(), deflater, result);
+                    count = 0;
+                    prevStart = 0L;
+                }
+            }
+            if (count > 0) {
+                sendBatch(raw, count, reader.getIndex(), deflater, result);
+            } else if (reader.getIndex() > scanIndex) {
+                // only remote records since the last batch: nothing to send, but no need to look again
+                scanIndex = reader.getIndex();
+                write();
+            }
+        }
+    }
+
+    private void sendBatch(ByteBuffer raw, int count, long endIndex, Deflater deflater, Result result) throws IOException {
+        int rawLength = raw.position();
+        byte[] out = new byte[HEADER + rawLength + rawLength / 8 + 64 + 4];
+        ByteBuffer batch = ByteBuffer.wrap(out);
+        batch.putInt(BATCH_MAGIC).putLong(deviceId).putLong(nextSeq).putInt(count).putInt(rawLength);
+        deflater.reset();
+        deflater.setInput(raw.array(), 0, rawLength);
+        deflater.finish();
+        int compressed = deflater.deflate(out, HEADER, out.length - HEADER - 4);
+        if (!deflater.finished()) throw new IOException("Batch does not fit its buffer");
+        batch.position(HEADER + compressed);
+        crc.reset();
+        crc.update(out, 0, batch.position());
+        batch.putInt((int) crc.getValue());
+        byte[] encoded = Arrays.copyOf(out, batch.position());
+
+        transport.send(deviceId, nextSeq, count, encoded);
+        nextSeq += count;
+        scanIndex = endIndex;
+        write();
+        raw.clear();
+        result.sentRecords += count;
+        result.sentBatches++;
+        result.sentBytes += encoded.length;
+        SENT_BYTES.add(encoded.length);
+    }
+
+    // Remote records appended after the last saved checkpoint: a merge may have appended them
+    // and been cut off before saving its cursor, so they must not be appended twice
+    private Set<SessionRecord> unconfirmedMerges(SessionLog log) throws IOException {
+        Set<SessionRecord> records = new HashSet<>();
+        if (log.size() <= checkpoint) return records;
+        try (SessionLog.Reader reader = log.openReader(checkpoint)) {
+            SessionRecord record;
+            while ((record = reader.next()) != null) {
+                if ((record.getFlags() & SessionRecord.FLAG_REMOTE) != 0) records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private void merge(byte[] batch, SessionLog log, Inflater inflater, Set<SessionRecord> unconfirmed,
+                       Consumer<SessionRecord> onMerged, Result result) throws IOException {
+        result.receivedBatches++;
+        result.receivedBytes += batch.length;
+        RECEIVED_BYTES.add(batch.length);
+        ByteBuffer in = ByteBuffer.wrap(batch);
+        if (batch.length < HEADER + 4 || in.getInt() != BATCH_MAGIC) {
+            result.rejectedBatches++;
+            return;
+        }
+        crc.reset();
+        crc.update(batch, 0, batch.length - 4);
+        long sender = in.getLong();
+        long firstSeq = in.getLong();
+        int count = in.getInt();
+        int rawLength = in.getInt();
+        if (in.getInt(batch.length - 4) != (int) crc.getValue() || count <= 0 || count > BATCH_RECORDS
+                || rawLength < 0 || rawLength > BATCH_RECORDS * MAX_RECORD_BYTES) {
+            result.rejectedBatches++;
+            return;
+        }
+        if (sender == deviceId) return;
+        long expected = received.getOrDefault(sender, 0L);
+        if (firstSeq > expected) {
+            // a batch before this one is missing; wait for it rather than leave a hole
+            result.rejectedBatches++;
+            return;
+        }
+        if (firstSeq + count <= expected) {
+            result.duplicateRecords += count;
+            return;
+        }
+
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(batch, HEADER, batch.length - HEADER - 4);
+        try {
+            if (inflater.inflate(raw) != rawLength || !inflater.finished()) {
+                result.rejectedBatches++;
+                return;
+            }
+        } catch (DataFormatException e) {
+            result.rejectedBatches++;
+            return;
+        }
+
+        ByteBuffer records = ByteBuffer.wrap(raw);
+        SessionRecord[] decoded = new SessionRecord[count];
+        long prevStart = 0L;
+        try {
+            for (int i = 0; i < count; i++) {
+                long start = prevStart + unZigZag(getVarLong(records));
+                prevStart = start;
+                int duration = getVarInt(records);
+                int kinds = records.get() & 0xFF;
+                int flags = getVarInt(records);
+                getVarInt(records); // tag, another device's task id
+                int phase = kinds >>> 4;
+                int outcome = kinds & 0xF;
+                if (phase >= TimerEngine.Phase.values().length || outcome >= SessionRecord.Outcome.values().length) {
+                    result.rejectedBatches++;
+                    return;
+                }
+                decoded[i] = new SessionRecord(start, duration, TimerEngine.Phase.values()[phase],
+                        SessionRecord.Outcome.values()[outcome], (flags & 0xFFFF) | SessionRecord.FLAG_REMOTE, TaskRegistry.NONE);
+            }
+        } catch (RuntimeException e) {
+            // truncated varints
+            result.rejectedBatches++;
+            return;
+        }
+
+        for (int i = (int) (expected - firstSeq); i < count; i++) {
+            if (unconfirmed.remove(decoded[i])) {
+                result.duplicateRecords++;
+                continue;
+            }
+            log.append(decoded[i]);
+            onMerged.accept(decoded[i]);
+            result.mergedRecords++;
+        }
+        result.duplicateRecords += expected - firstSeq;
+        // the records are durable before the cursor that says so
+        log.flush();
+        received.put(sender, firstSeq + count);
+        checkpoint = log.size();
+        write();
+    }
+
+    private static long newDeviceId() {
+        SecureRandom random = new SecureRandom();
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0L);
+        return id;
+    }
+
+    private boolean read() {
+        if (!stateFile.isFile() || stateFile.length() > 64 * 1024) return false;
+        byte[] bytes = new byte[(int) stateFile.length()];
+        try (RandomAccessFile raf = new RandomAccessFile(stateFile, "r")) {
+            raf.readFully(bytes);
+        } catch (IOException e) {
+            return false;
+        }
+        if (bytes.length < 4 + 8 * 4 + 4 + 4) return false;
+        crc.reset();
+        crc.update(bytes, 0, bytes.length - 4);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (in.getInt() != STATE_MAGIC || in.getInt(bytes.length - 4) != (int) crc.getValue()) return false;
+        deviceId = in.getLong();
+        scanIndex = in.getLong();
+        nextSeq = in.getLong();
+        checkpoint = in.getLong();
+        int devices = in.getInt();
+        if (devices < 0 || in.remaining() != devices * 16 + 4) return false;
+        received.clear();
+        for (int i = 0; i < devices; i++) received.put(in.getLong(), in.getLong());
+        return true;
+    }
+
+    // Same scheme as StateStore: temp file, sync, rename, so a crash leaves the old or the new cursors
+    private void write() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(4 + 8 * 4 + 4 + received.size() * 16 + 4);
+        out.putInt(STATE_MAGIC).putLong(deviceId).putLong(scanIndex).putLong(nextSeq).putLong(checkpoint);
+        out.putInt(received.size());
+        for (Map.Entry<Long, Long> e : received.entrySet()) out.putLong(e.getKey()).putLong(e.getValue());
+        crc.reset();
+        crc.update(out.array(), 0, out.position());
+        out.putInt((int) crc.getValue());
+        File tmp = new File(stateFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(out.array());
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(stateFile)) throw new IOException("Cannot replace " + stateFile);
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void putVarLong(ByteBuffer out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    // ints are written as unsigned 32-bit values
+    private static void putVarInt(ByteBuffer out, int v) {
+        putVarLong(out, v & 0xFFFFFFFFL);
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long v = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    private static int getVarInt(ByteBuffer in) {
+        return (int) getVarLong(in);
+    }
+}
@@ -0,0 +1,415 @@
+package com.example.pomodorotimer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Streams the session history out as CSV or JSON Lines and back in. Export needs a few
+ * fixed-size buffers however long the history is; import adds one primitive key per record.
+ *
+ * Export encodes records straight into a reusable byte buffer that is drained to the channel
+ * whenever it fills. Import reads through one buffer, assembles each line in a fixed line
+ * buffer and parses fields in place, so no per-line strings are created. Lines that do not
+ * parse or hold impossible values are counted and skipped.
+ *
+ * Duplicates are dropped in the same single pass. A record is identified by its start and
+ * phase. The history is in append order, not start order (older imports and synced records
+ * land at its end), so before reading the file the import streams the log once into a
+ * primitive set of those keys, 8 bytes a record rather than a record object; the file may then
+ * be in any order.
+ *
+ * Both formats carry every field, including flags and tag (the {@link TaskRegistry} id on the
+ * exporting device, so tags only round-trip on the same device):
+ * <pre>
+ * start_epoch_ms,duration_ms,phase,outcome,flags,tag
+ * 1700000000000,1500000,WORK,COMPLETED,0,0
+ *
+ * {"start":1700000000000,"duration":1500000,"phase":"WORK","outcome":"COMPLETED","flags":0,"tag":0}
+ * </pre>
+ */
+public final class HistoryTransfer {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        JSONL("application/jsonl", "jsonl");
+
+        public final String mimeType;
+        public final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+    }
+
+    /** Outcome of an import. */
+    public static final class Result {
+        public long imported;
+        public long duplicates;
+        public long invalid;
+
+        @Override
+        public String toString() {
+            return imported + " imported, " + duplicates + " duplicates, " + invalid + " invalid";
+        }
+    }
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_LINE = 512;
+
+    private static final byte[] CSV_HEADER = ascii("start_epoch_ms,duration_ms,phase,outcome,flags,tag\n");
+    private static final byte[] KEY_START = ascii("start");
+    private static final byte[] KEY_DURATION = ascii("duration");
+    private static final byte[] KEY_PHASE = ascii("phase");
+    private static final byte[] KEY_OUTCOME = ascii("outcome");
+    private static final byte[] KEY_FLAGS = ascii("flags");
+    private static final byte[] KEY_TAG = ascii("tag");
+    private static final byte[][] PHASE_NAMES = names(TimerEngine.Phase.values());
+    private static final byte[][] OUTCOME_NAMES = names(SessionRecord.Outcome.values());
+
+    private HistoryTransfer() {}
+
+    /** Writes every durable record of {@code log}; returns the number written. */
+    public static long export(SessionLog log, Format format, WritableByteChannel out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] digits = new byte[20];
+        long[] count = {0};
+        if (format == Format.CSV) buffer.put(CSV_HEADER);
+        try {
+            log.forEach(record -> {
+                try {
+                    if (buffer.remaining() < MAX_LINE) drain(buffer, out);
+                    if (format == Format.CSV) writeCsv(record, buffer, digits);
+                    else writeJson(record, buffer, digits);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        drain(buffer, out);
+        return count[0];
+    }
+
+    /**
+     * Imports records from {@code in} (CSV or JSON Lines, told apart line by line), appending
+     * new ones to {@code log} and passing each to {@code onImported}. The caller flushes the log.
+     */
+    public static Result importFrom(ReadableByteChannel in, SessionLog log, Consumer<SessionRecord> onImported) throws IOException {
+        Result result = new Result();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        Line line = new Line();
+        KeySet seen = KeySet.of(log);
+        boolean first = true;
+        boolean overflow = false;
+        while (in.read(buffer) >= 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    if (overflow) result.invalid++;
+                    else if (!(first && line.isCsvHeader())) line.accept(log, seen, result, onImported);
+                    first = false;
+                    overflow = false;
+                    line.length = 0;
+                } else if (line.length < MAX_LINE) {
+                    line.bytes[line.length++] = b;
+                } else {
+                    overflow = true;
+                }
+            }
+            buffer.clear();
+        }
+        // a last line without a newline
+        if (overflow) result.invalid++;
+        else if (line.length > 0 && !(first && line.isCsvHeader())) line.accept(log, seen, result, onImported);
+        return result;
+    }
+
+    // Start and phase keys of the records in the history and those imported so far
+    private static final class KeySet {
+        private static final int MIN_CAPACITY = 16;
+
+        private long[] keys;
+        private int size;
+
+        private KeySet(long expected) {
+            int capacity = MIN_CAPACITY;
+            while (capacity < expected * 2) capacity <<= 1;
+            keys = new long[capacity];
+        }
+
+        static KeySet of(SessionLog log) throws IOException {
+            KeySet set = new KeySet(log.size());
+            log.forEach(r -> set.add(r.getStartEpochMillis(), r.getPhase()));
+            return set;
+        }
+
+        /** Returns false if the key was already present. */
+        boolean add(long start, TimerEngine.Phase phase) {
+            // 0 marks an empty slot; it is only the key of start 0, which imports reject anyway
+            long key = start << 1 | phase.ordinal();
+            if (key == 0) return true;
+            int slot = find(key);
+            if (keys[slot] == key) return false;
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            size++;
+            return true;
+        }
+
+        // The slot holding key, or the empty slot where it would go
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void grow() {
+            long[] old = keys;
+            keys = new long[old.length * 2];
+            for (long key : old) if (key != 0) keys[find(key)] = key;
+        }
+
+        // Starts are often whole minutes apart; spread them so neighbours do not cluster
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    // One input line and its parsed fields; reused for every line
+    private static final class Line {
+        final byte[] bytes = new byte[MAX_LINE];
+        int length;
+        int pos;
+        long start;
+        long duration;
+        int phase;
+        int outcome;
+        long flags;
+        long tag;
+
+        boolean isCsvHeader() {
+            int i = skipSpace(0);
+            return i < length && bytes[i] != '{' && (bytes[i] < '0' || bytes[i] > '9');
+        }
+
+        void accept(SessionLog log, KeySet seen, Result result, Consumer<SessionRecord> onImported) throws IOException {
+            if (length > 0 && bytes[length - 1] == '\r') length--;
+            if (skipSpace(0) == length) return; // blank line
+            if (!parse()) {
+                result.invalid++;
+                return;
+            }
+            TimerEngine.Phase p = TimerEngine.Phase.values()[phase];
+            if (!seen.add(start, p)) {
+                result.duplicates++;
+                return;
+            }
+            SessionRecord record = new SessionRecord(start, (int) duration, p, SessionRecord.Outcome.values()[outcome], (int) flags, (int) tag);
+            log.append(record);
+            onImported.accept(record);
+            result.imported++;
+        }
+
+        private boolean parse() {
+            start = -1;
+            duration = -1;
+            phase = -1;
+            outcome = -1;
+            flags = 0;
+            tag = 0;
+            pos = skipSpace(0);
+            boolean ok = bytes[pos] == '{' ? parseJson() : parseCsv();
+            return ok && start > 0 && duration > 0 && duration <= Integer.MAX_VALUE && phase >= 0 && outcome >= 0
+                    && flags >= 0 && flags <= 0xFFFF && tag >= Integer.MIN_VALUE && tag <= Integer.MAX_VALUE;
+        }
+
+        private boolean parseCsv() {
+            start = parseLong();
+            if (!expect(',')) return false;
+            duration = parseLong();
+            if (!expect(',')) return false;
+            phase = parseName(PHASE_NAMES, ',');
+            if (!expect(',')) return false;
+            outcome = parseName(OUTCOME_NAMES, ',');
+            // flags and tag may be absent in files from other tools
+            if (pos < length && expect(',')) {
+                flags = parseLong();
+                if (pos < length && expect(',')) tag = parseLong();
+            }
+            return skipSpace(pos) == length;
+        }
+
+        private boolean parseJson() {
+            pos++;
+            pos = skipSpace(pos);
+            if (pos < length && bytes[pos] == '}') return skipSpace(pos + 1) == length;
+            while (true) {
+                if (!expect('"')) return false;
+                int keyStart = pos;
+                while (pos < length && bytes[pos] != '"') pos++;
+                int keyEnd = pos;
+                if (!expect('"') || !expect(':')) return false;
+                pos = skipSpace(pos);
+                if (pos >= length) return false;
+                if (bytes[pos] == '"') {
+                    pos++;
+                    if (keyIs(keyStart, keyEnd, KEY_PHASE)) phase = parseName(PHASE_NAMES, '"');
+                    else if (keyIs(keyStart, keyEnd, KEY_OUTCOME)) outcome = parseName(OUTCOME_NAMES, '"');
+                    else while (pos < length && bytes[pos] != '"') pos++; // unknown string field
+                    if (!expect('"')) return false;
+                } else {
+                    long value = parseLong();
+                    if (value == Long.MIN_VALUE) return false;
+                    if (keyIs(keyStart, keyEnd, KEY_START)) start = value;
+                    else if (keyIs(keyStart, keyEnd, KEY_DURATION)) duration = value;
+                    else if (keyIs(keyStart, keyEnd, KEY_FLAGS)) flags = value;
+                    else if (keyIs(keyStart, keyEnd, KEY_TAG)) tag = value;
+                }
+                pos = skipSpace(pos);
+                if (pos < length && bytes[pos] == ',') {
+                    pos++;
+                    continue;
+                }
+                return expect('}') && skipSpace(pos) == length;
+            }
+        }
+
+        // Returns Long.MIN_VALUE (never valid here) if there is no number
+        private long parseLong() {
+            pos = skipSpace(pos);
+            boolean negative = pos < length && bytes[pos] == '-';
+            if (negative) pos++;
+            int digitsStart = pos;
+            long value = 0;
+            while (pos < length && bytes[pos] >= '0' && bytes[pos] <= '9') {
+                if (pos - digitsStart >= 18) return Long.MIN_VALUE; // would overflow
+                value = value * 10 + (bytes[pos++] - '0');
+            }
+            if (pos == digitsStart) return Long.MIN_VALUE;
+            pos = skipSpace(pos);
+            return negative ? -value : value;
+        }
+
+        private int parseName(byte[][] names, char terminator) {
+            pos = skipSpace(pos);
+            int end = pos;
+            while (end < length && bytes[end] != terminator && bytes[end] != ' ') end++;
+            for (int i = 0; i < names.length; i++) {
+                if (keyIs(pos, end, names[i])) {
+                    pos = skipSpace(end);
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean keyIs(int from, int to, byte[] key) {
+            if (to - from != key.length) return false;
+            for (int i = 0; i < key.length; i++) if (bytes[from + i] != key[i]) return false;
+            return true;
+        }
+
+        private boolean expect(char c) {
+            pos = skipSpace(pos);
+            if (pos >= length || bytes[pos] != c) return false;
+            pos = skipSpace(pos + 1);
+            return true;
+        }
+
+        private int skipSpace(int i) {
+            while (i < length && (bytes[i] == ' ' || bytes[i] == '\t')) i++;
+            return i;
+        }
+    }
+
+    private static void writeCsv(SessionRecord record, ByteBuffer out, byte[] digits) {
+        putLong(out, record.getStartEpochMillis(), digits);
+        out.put((byte) ',');
+        putLong(out, record.getDurationMillis(), digits);
+        out.put((byte) ',');
+        out.put(PHASE_NAMES[record.getPhase().ordinal()]);
+        out.put((byte) ',');
+        out.put(OUTCOME_NAMES[record.getOutcome().ordinal()]);
+        out.put((byte) ',');
+        putLong(out, record.getFlags(), digits);
+        out.put((byte) ',');
+        putLong(out, record.getTag(), digits);
+        out.put((byte) '\n');
+    }
+
+    private static void writeJson(SessionRecord record, ByteBuffer out, byte[] digits) {
+        putKey(out, KEY_START, '{');
+        putLong(out, record.getStartEpochMillis(), digits);
+        putKey(out, KEY_DURATION, ',');
+        putLong(out, record.getDurationMillis(), digits);
+        putKey(out, KEY_PHASE, ',');
+        putString(out, PHASE_NAMES[record.getPhase().ordinal()]);
+        putKey(out, KEY_OUTCOME, ',');
+        putString(out, OUTCOME_NAMES[record.getOutcome().ordinal()]);
+        putKey(out, KEY_FLAGS, ',');
+        putLong(out, record.getFlags(), digits);
+        putKey(out, KEY_TAG, ',');
+        putLong(out, record.getTag(), digits);
+        out.put((byte) '}');
+        out.put((byte) '\n');
+    }
+
+    private static void putKey(ByteBuffer out, byte[] key, char before) {
+        out.put((byte) before);
+        putString(out, key);
+        out.put((byte) ':');
+    }
+
+    private static void putString(ByteBuffer out, byte[] value) {
+        out.put((byte) '"');
+        out.put(value);
+        out.put((byte) '"');
+    }
+
+    private static void putLong(ByteBuffer out, long value, byte[] digits) {
+        if (value < 0) {
+            out.put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                out.put(ascii("9223372036854775808"));
+                return;
+            }
+            value = -value;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (n > 0) out.put(digits[--n]);
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[][] names(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) names[i] = ascii(values[i].name());
+        return names;
+    }
+}
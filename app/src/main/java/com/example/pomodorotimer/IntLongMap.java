@@ -0,0 +1,143 @@
+package com.example.pomodorotimer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to long values, without boxing.
+ *
+ * Keys and values live in two parallel arrays probed linearly from a mixed hash; the table
+ * doubles at half load, so a lookup or an update touches a couple of slots no matter how many
+ * keys there are. Key 0 marks an empty slot and cannot be stored. There is no removal: keys are
+ * task ids, which are never reused.
+ */
+public final class IntLongMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+
+    public IntLongMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /** A map that holds {@code expected} keys without resizing. */
+    public IntLongMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) capacity <<= 1;
+        keys = new int[capacity];
+        values = new long[capacity];
+    }
+
+    /** The value for {@code key}, or 0 if it has none. */
+    public long get(int key) {
+        int slot = find(key);
+        return keys[slot] == key ? values[slot] : 0L;
+    }
+
+    public boolean containsKey(int key) {
+        return key != 0 && keys[find(key)] == key;
+    }
+
+    public void put(int key, long value) {
+        int slot = slotFor(key); // may grow the table, so resolve it before indexing
+        values[slot] = value;
+    }
+
+    /** Adds {@code delta} to the value for {@code key} (0 if absent) and returns the sum. */
+    public long add(int key, long delta) {
+        int slot = slotFor(key);
+        return values[slot] += delta;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** The keys in table order. */
+    public int[] keys() {
+        int[] out = new int[size];
+        int n = 0;
+        for (int key : keys) if (key != 0) out[n++] = key;
+        return out;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, 0L);
+        size = 0;
+    }
+
+    /** Bytes {@link #writeTo} needs. */
+    public int serializedSize() {
+        return 4 + size * 12;
+    }
+
+    /** Writes the entry count, then every key and value. */
+    public void writeTo(ByteBuffer out) {
+        out.putInt(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == 0) continue;
+            out.putInt(keys[i]);
+            out.putLong(values[i]);
+        }
+    }
+
+    /** Reads what {@link #writeTo} wrote, or returns null if it is malformed. */
+    public static IntLongMap readFrom(ByteBuffer in) {
+        if (in.remaining() < 4) return null;
+        int count = in.getInt();
+        if (count < 0 || in.remaining() < count * 12L) return null;
+        IntLongMap map = new IntLongMap(count);
+        for (int i = 0; i < count; i++) {
+            int key = in.getInt();
+            long value = in.getLong();
+            if (key == 0) return null;
+            map.put(key, value);
+        }
+        return map;
+    }
+
+    // The slot holding key, inserting it if absent
+    private int slotFor(int key) {
+        if (key == 0) throw new IllegalArgumentException("key 0 is reserved");
+        int slot = find(key);
+        if (keys[slot] == key) return slot;
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            slot = find(key);
+        }
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    // The slot holding key, or the empty slot where it would go
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    // Task ids are dense small integers; spread them so neighbours do not cluster
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,34 +1,35 @@
 package com.example.pomodorotimer;
 
-import android.animation.ObjectAnimator;
 import android.app.AlertDialog;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.content.SharedPreferences;
-import android.media.MediaPlayer;
-import android.media.Ringtone;
-import android.media.RingtoneManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.content.pm.ApplicationInfo;
 import android.net.Uri;
-import android.os.Build;
 import android.os.Bundle;
-import android.os.CountDownTimer;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.Looper;
-import android.os.Vibrator;
-import android.os.VibrationEffect;
-import android.annotation.SuppressLint;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageButton;
+import android.widget.LinearLayout;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
 import androidx.activity.OnBackPressedCallback;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.annotation.NonNull;
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.NotificationManagerCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -36,11 +37,15 @@ import androidx.core.view.WindowInsetsCompat;
 
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import com.google.android.material.progressindicator.CircularProgressIndicator;
 
-public class MainActivity extends AppCompatActivity {
+import java.util.function.Consumer;
 
-    private static final String CHANNEL_ID = "pomodoro_channel";
+/**
+ * Thin client for {@link TimerService}: binds while visible, renders the published
+ * {@link TimerSnapshot} and animates transitions. Timing, sounds, notifications and
+ * persistence live in the service; the main thread never waits for its engine thread.
+ */
+public class MainActivity extends AppCompatActivity {
 
     private TextView textMode;
     private TextView textTimer;
@@ -49,53 +54,103 @@ public class MainActivity extends AppCompatActivity {
     private ImageButton buttonPause;
     private ImageButton buttonBack;
     private FloatingActionButton buttonSettings;
-    private CircularProgressIndicator circularProgress;
-
-    // MediaPlayer used for custom audio notifications (user-provided files in res/raw)
-    private MediaPlayer mediaPlayer;
-
-    // Handler for delayed playback and pending runnable reference so it can be cancelled
-    private Handler mainHandler = new Handler(Looper.getMainLooper());
-    private Runnable pendingSoundRunnable;
-
-    private CountDownTimer countDownTimer;
-    private boolean isRunning = false;
-    private boolean isWorkMode = true;
-
-    // Flag to make sure we play the break-pre-end sound only once per break session
-    private boolean breakPreEndPlayed = false;
-
-    // Flag indicating we already pre-played the break-start sound during the last work session
-    private boolean breakStartPrePlayed = false;
-
-    private long workMillis = 25 * 60 * 1000L;
-    private long breakMillis = 5 * 60 * 1000L;
-    private long timeLeft = workMillis; // milliseconds remaining
-
-    private int sessionsCompleted = 0; // persisted count
+    private ProgressRingView progressRing;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // The first frame waits (at most this long) for the service's first snapshot so it shows the restored timer, not placeholders
+    private static final long FIRST_FRAME_WAIT_MS = 300L;
+    // Choices for the decoded sound memory cap
+    private static final int[] SOUND_MEMORY_MB = {2, 4, 8, 16};
+    // Task picker rows below the search field
+    private static final int TASK_RESULTS = 8;
+    private final StartupTrace startupTrace = StartupTrace.process();
+    private boolean firstFrameReleased = false;
+    private final Runnable releaseFirstFrame = () -> {
+        firstFrameReleased = true;
+        View root = findViewById(R.id.main);
+        if (root != null) root.invalidate();
+    };
+
+    // Bound between onStart() and onStop(); null while not connected
+    private TimerService timerService;
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            timerService = ((TimerService.LocalBinder) binder).getService();
+            long start = startupTrace.begin();
+            // The service kept its deadline while we were hidden; the listener gets the current
+            // snapshot right away, rebuilds the UI from it and resumes ticking
+            boolean firstFrame = !firstFrameReleased;
+            progressRing.setSource(timerService::getSnapshot);
+            timerService.addSnapshotListener(snapshotListener);
+            // a snapshot was rendered (and released the frame), unless the service has none yet
+            if (firstFrame && shown != null) startupTrace.end("timer_text", start);
+        }
 
-    private static final String PREFS = "pomodoro_prefs";
-    private static final String KEY_WORK = "work_minutes";
-    private static final String KEY_BREAK = "break_minutes";
-    private static final String KEY_IS_WORK = "is_work";
-    private static final String KEY_TIME_LEFT = "time_left";
-    private static final String KEY_IS_RUNNING = "is_running";
-    private static final String KEY_SESSIONS = "sessions_completed";
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            timerService = null;
+            shown = null;
+            mainHandler.removeCallbacks(tickRunnable);
+            progressRing.setSource(null);
+        }
+    };
+
+    // Last snapshot rendered; transitions are found by comparing the next one with it
+    private TimerSnapshot shown;
+
+    private static final Metrics.Histogram TICK_LATENESS = Metrics.process().histogram("ui.tick_lateness");
+    private static final Metrics.Histogram TICK_WORK = Metrics.process().histogram("ui.tick");
+    // uptimeMillis the pending tick was scheduled for
+    private long tickDueAt;
+
+    private final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            TICK_LATENESS.record((SystemClock.uptimeMillis() - tickDueAt) * 1000L);
+            onTick();
+            scheduleNextTick();
+            TICK_WORK.recordSinceNanos(start);
+        }
+    };
+
+    // Reused countdown text; only pushed to the TextView when the visible second changes
+    private final TimerText timerText = new TimerText();
+
+    // History export/import through the Storage Access Framework; the service streams the data
+    private final ActivityResultLauncher<String> exportCsv = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(HistoryTransfer.Format.CSV.mimeType),
+            uri -> exportHistory(uri, HistoryTransfer.Format.CSV));
+    private final ActivityResultLauncher<String> exportJsonl = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(HistoryTransfer.Format.JSONL.mimeType),
+            uri -> exportHistory(uri, HistoryTransfer.Format.JSONL));
+    private final ActivityResultLauncher<String[]> importDocument = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::importHistory);
+    // Sync exchanges history through a folder every device can reach (a synced cloud folder, ...)
+    private final ActivityResultLauncher<Uri> syncFolder = registerForActivityResult(
+            new ActivityResultContracts.OpenDocumentTree(), this::syncHistory);
+    private final ActivityResultLauncher<String[]> importSounds = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::importSoundPack);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        startupTrace.addListener(STARTUP_LOGGER);
+        long start = startupTrace.begin();
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
-        ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
+        View root = findViewById(R.id.main);
+        ViewCompat.setOnApplyWindowInsetsListener(root, (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
             v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
             return insets;
         });
+        startupTrace.end("content_view", start);
 
+        start = startupTrace.begin();
         bindViews();
-        createNotificationChannel();
-        loadPreferences();
 
         // Back-gesture handler (modern replacement for deprecated onBackPressed())
         getOnBackPressedDispatcher().addCallback(this, new OnBackPressedCallback(true) {
@@ -110,32 +165,74 @@ public class MainActivity extends AppCompatActivity {
             buttonBack.setOnClickListener(v -> confirmExit());
         }
 
-        if (savedInstanceState != null) {
-            isWorkMode = savedInstanceState.getBoolean(KEY_IS_WORK, true);
-            timeLeft = savedInstanceState.getLong(KEY_TIME_LEFT, isWorkMode ? workMillis : breakMillis);
-            isRunning = savedInstanceState.getBoolean(KEY_IS_RUNNING, false);
-            sessionsCompleted = savedInstanceState.getInt(KEY_SESSIONS, sessionsCompleted);
-        } else {
-            timeLeft = isWorkMode ? workMillis : breakMillis;
-        }
-
-        updateUi();
-
         buttonPlay.setOnClickListener(v -> startTimer());
         buttonPause.setOnClickListener(v -> stopTimer());
         buttonSettings.setOnClickListener(v -> showSettingsSheet());
-
-        if (isRunning) startTimer();
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            // debug builds: long-press settings to dump latency metrics for adb pull
+            buttonSettings.setOnLongClickListener(v -> {
+                dumpMetrics();
+                return true;
+            });
+        }
+        // Buttons stay disabled until the service is connected
+        buttonPlay.setEnabled(false);
+        buttonPause.setEnabled(false);
+        startupTrace.end("bind_views", start);
+
+        // Notification channels, sounds and history are deferred by the service's startup pipeline
+        firstFrameReleased = startupTrace.getTimeToFirstFrameNanos() != StartupTrace.NOT_DRAWN;
+        if (!firstFrameReleased) {
+            mainHandler.postDelayed(releaseFirstFrame, FIRST_FRAME_WAIT_MS);
+            root.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    if (!firstFrameReleased) return false;
+                    root.getViewTreeObserver().removeOnPreDrawListener(this);
+                    startupTrace.markFirstFrame();
+                    return true;
+                }
+            });
+        }
     }
 
+    // Process-wide, so it is registered once no matter how often the activity is recreated
+    private static final StartupTrace.Listener STARTUP_LOGGER = new StartupTrace.Listener() {
+        @Override
+        public void onPhase(StartupTrace.Phase phase) {
+            android.util.Log.i("StartupTrace", phase.toString());
+        }
+
+        @Override
+        public void onFirstFrame(long timeToFirstFrameNanos) {
+            android.util.Log.i("StartupTrace", "first frame +" + timeToFirstFrameNanos / 1000 + "us");
+        }
+    };
+
+    // Renders each snapshot the service publishes; side effects are handled by the service
+    private final Consumer<TimerSnapshot> snapshotListener = snapshot -> {
+        TimerSnapshot previous = shown;
+        shown = snapshot;
+        updateUi();
+        // the first frame waits for real state rather than for the connection alone
+        if (!firstFrameReleased) {
+            mainHandler.removeCallbacks(releaseFirstFrame);
+            releaseFirstFrame.run();
+        }
+        if (previous != null && snapshot.sessions > previous.sessions) animateSessions();
+        // subtle mode-change animation (label already matches the new mode); the ring eases back
+        // to the start of the new phase by itself
+        if (previous != null && snapshot.phase != previous.phase) animateModeChange();
+        scheduleNextTick();
+    };
+
     private void confirmExit() {
         new AlertDialog.Builder(this)
                 .setTitle(R.string.confirm_exit_title)
                 .setMessage(R.string.confirm_exit_message)
                 .setPositiveButton(R.string.yes, (dialog, which) -> {
-                    // Reset sessions to 1 and persist
-                    sessionsCompleted = 1;
-                    savePreferences();
+                    // Stop the timer, reset sessions to 1 and persist
+                    if (timerService != null) timerService.exit();
                     finish();
                 })
                 .setNegativeButton(R.string.no, (dialog, which) -> dialog.dismiss())
@@ -151,128 +248,11 @@ public class MainActivity extends AppCompatActivity {
         buttonPause = findViewById(R.id.button_pause);
         buttonBack = findViewById(R.id.button_back);
         buttonSettings = findViewById(R.id.button_settings);
-        circularProgress = findViewById(R.id.circular_progress);
-    }
-
-    // Restore notification channel creation
-    private void createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            CharSequence name = "Pomodoro Alerts";
-            String description = "Notifications for Pomodoro session events";
-            int importance = NotificationManager.IMPORTANCE_DEFAULT;
-            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, name, importance);
-            channel.setDescription(description);
-            NotificationManager notificationManager = getSystemService(NotificationManager.class);
-            if (notificationManager != null) notificationManager.createNotificationChannel(channel);
-        }
-    }
-
-    // Play a short custom audio placed in res/raw by logical name.
-    // Expected raw resource names (you should add these files):
-    //   res/raw/work_start.mp3   -> "work_start"
-    //   res/raw/work_end.mp3     -> "work_end"  (no longer used)
-    //   res/raw/break_start.mp3  -> "break_start"
-    //   res/raw/break_end.mp3    -> "break_end"
-    // If the requested file is not present, falls back to the default notification sound.
-    @SuppressLint("DiscouragedApi")
-    private void playEventSound(String rawName) {
-        try {
-            stopAndReleaseMediaPlayer();
-            int resId = getResources().getIdentifier(rawName, "raw", getPackageName());
-            if (resId != 0) {
-                mediaPlayer = MediaPlayer.create(this, resId);
-                if (mediaPlayer != null) {
-                    mediaPlayer.setOnCompletionListener(mp -> stopAndReleaseMediaPlayer());
-                    mediaPlayer.start();
-                    return;
-                }
-            }
-
-            // Fallback: play default notification ringtone
-            Uri soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
-            Ringtone r = RingtoneManager.getRingtone(this, soundUri);
-            if (r != null) r.play();
-        } catch (Exception e) {
-            android.util.Log.w("MainActivity", "playEventSound error", e);
-        }
-    }
-
-    // Play an event sound after a specified delay (milliseconds). Cancels any previously scheduled sound.
-    @SuppressWarnings("unused")
-    private void playEventSoundDelayed(String rawName, long delayMs) {
-        try {
-            if (mainHandler == null) mainHandler = new Handler(Looper.getMainLooper());
-            // Cancel previous pending sound if any
-            if (pendingSoundRunnable != null) {
-                mainHandler.removeCallbacks(pendingSoundRunnable);
-                // pendingSoundRunnable = null; // redundant — we'll overwrite below
-            }
-            pendingSoundRunnable = () -> playEventSound(rawName);
-            mainHandler.postDelayed(pendingSoundRunnable, delayMs);
-        } catch (Exception e) {
-            android.util.Log.w("MainActivity", "playEventSoundDelayed error", e);
-        }
-    }
-
-    private void stopAndReleaseMediaPlayer() {
-        try {
-            if (mediaPlayer != null) {
-                if (mediaPlayer.isPlaying()) mediaPlayer.stop();
-                mediaPlayer.reset();
-                mediaPlayer.release();
-                mediaPlayer = null;
-            }
-        } catch (Exception e) {
-            android.util.Log.w("MainActivity", "stopAndReleaseMediaPlayer error", e);
-            mediaPlayer = null;
-        }
-    }
-
-    private void showNotification(String title, String text) {
-        // Require POST_NOTIFICATIONS on Android 13+ and check notifications are enabled
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                if (ContextCompat.checkSelfPermission(this, android.Manifest.permission.POST_NOTIFICATIONS) != android.content.pm.PackageManager.PERMISSION_GRANTED) {
-                    android.util.Log.w("MainActivity", "POST_NOTIFICATIONS permission not granted; skipping notification");
-                    return;
-                }
-            }
-
-            NotificationManagerCompat notificationManager = NotificationManagerCompat.from(this);
-            if (!notificationManager.areNotificationsEnabled()) {
-                android.util.Log.w("MainActivity", "Notifications are disabled by user; skipping notification");
-                return;
-            }
-
-            Uri soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                    .setSmallIcon(R.drawable.ic_launcher_foreground)
-                    .setContentTitle(title)
-                    .setContentText(text)
-                    .setPriority(NotificationCompat.PRIORITY_DEFAULT)
-                    .setSound(soundUri)
-                    .setAutoCancel(true);
-
-            try {
-                notificationManager.notify((int) System.currentTimeMillis(), builder.build());
-            } catch (SecurityException se) {
-                android.util.Log.w("MainActivity", "Failed to post notification", se);
-                return;
-            }
-
-            // Also play the ringtone immediately (some devices delay notification sound)
-            try {
-                Ringtone r = RingtoneManager.getRingtone(this, soundUri);
-                if (r != null) r.play();
-            } catch (Exception e) {
-                android.util.Log.w("MainActivity", "Failed to play notification sound", e);
-            }
-        } catch (Exception e) {
-            android.util.Log.w("MainActivity", "showNotification error", e);
-        }
+        progressRing = findViewById(R.id.progress_ring);
     }
 
     private void showSettingsSheet() {
+        if (timerService == null) return;
         try {
             BottomSheetDialog dialog = new BottomSheetDialog(this);
             dialog.setContentView(R.layout.bottom_sheet_settings);
@@ -281,14 +261,61 @@ public class MainActivity extends AppCompatActivity {
             final EditText bsInputBreak = dialog.findViewById(R.id.bs_input_break);
             Button bsApply = dialog.findViewById(R.id.bs_apply);
 
-            if (bsInputWork != null) bsInputWork.setText(String.valueOf(workMillis / 60000L));
-            if (bsInputBreak != null) bsInputBreak.setText(String.valueOf(breakMillis / 60000L));
+            if (shown != null && bsInputWork != null) bsInputWork.setText(String.valueOf(shown.workMillis / 60000L));
+            if (shown != null && bsInputBreak != null) bsInputBreak.setText(String.valueOf(shown.breakMillis / 60000L));
+
+            Button bsExportCsv = dialog.findViewById(R.id.bs_export_csv);
+            Button bsExportJsonl = dialog.findViewById(R.id.bs_export_jsonl);
+            Button bsImport = dialog.findViewById(R.id.bs_import);
+            if (bsExportCsv != null) bsExportCsv.setOnClickListener(v -> {
+                dialog.dismiss();
+                exportCsv.launch("pomodoro-history." + HistoryTransfer.Format.CSV.extension);
+            });
+            if (bsExportJsonl != null) bsExportJsonl.setOnClickListener(v -> {
+                dialog.dismiss();
+                exportJsonl.launch("pomodoro-history." + HistoryTransfer.Format.JSONL.extension);
+            });
+            if (bsImport != null) bsImport.setOnClickListener(v -> {
+                dialog.dismiss();
+                // providers label .jsonl files inconsistently, so accept any text-like document
+                importDocument.launch(new String[]{"text/*", "application/json", "application/jsonl", "application/x-ndjson", "application/octet-stream"});
+            });
+            Button bsStats = dialog.findViewById(R.id.bs_stats);
+            if (bsStats != null) bsStats.setOnClickListener(v -> {
+                dialog.dismiss();
+                showStats();
+            });
+            Button bsSync = dialog.findViewById(R.id.bs_sync);
+            if (bsSync != null) bsSync.setOnClickListener(v -> {
+                dialog.dismiss();
+                syncFolder.launch(null);
+            });
+
+            Button bsSoundPack = dialog.findViewById(R.id.bs_sound_pack);
+            Button bsImportSounds = dialog.findViewById(R.id.bs_import_sounds);
+            Button bsSoundMemory = dialog.findViewById(R.id.bs_sound_memory);
+            if (bsSoundPack != null) bsSoundPack.setOnClickListener(v -> {
+                dialog.dismiss();
+                chooseSoundPack();
+            });
+            if (bsSoundMemory != null) bsSoundMemory.setOnClickListener(v -> {
+                dialog.dismiss();
+                chooseSoundMemory();
+            });
+            if (bsImportSounds != null) bsImportSounds.setOnClickListener(v -> {
+                dialog.dismiss();
+                importSounds.launch(new String[]{"application/zip", "application/x-zip-compressed", "application/octet-stream"});
+            });
+
+            EditText bsTaskInput = dialog.findViewById(R.id.bs_task_input);
+            LinearLayout bsTaskResults = dialog.findViewById(R.id.bs_task_results);
+            if (bsTaskInput != null && bsTaskResults != null) bindTaskPicker(bsTaskInput, bsTaskResults);
 
             if (bsApply != null) {
                 bsApply.setOnClickListener(v -> {
                     try {
                         // guard against null EditText references or null text
-                        if (bsInputWork == null || bsInputBreak == null) {
+                        if (bsInputWork == null || bsInputBreak == null || timerService == null) {
                             dialog.dismiss();
                             return;
                         }
@@ -302,11 +329,8 @@ public class MainActivity extends AppCompatActivity {
                         if (!b.isEmpty()) bMin = Integer.parseInt(b);
                         if (wMin <= 0) wMin = 1;
                         if (bMin <= 0) bMin = 1;
-                        workMillis = wMin * 60 * 1000L;
-                        breakMillis = bMin * 60 * 1000L;
-                        timeLeft = isWorkMode ? workMillis : breakMillis;
-                        savePreferences();
-                        updateUi();
+                        // the new snapshot updates the UI
+                        timerService.setDurations(wMin * 60 * 1000L, bMin * 60 * 1000L);
                     } catch (Exception ex) {
                         android.util.Log.w("MainActivity", "Error parsing settings input", ex);
                     }
@@ -321,144 +345,190 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private void loadPreferences() {
-        SharedPreferences prefs = getSharedPreferences(PREFS, MODE_PRIVATE);
-        int workMin = prefs.getInt(KEY_WORK, 25);
-        int breakMin = prefs.getInt(KEY_BREAK, 5);
-        isWorkMode = prefs.getBoolean(KEY_IS_WORK, true);
-        workMillis = workMin * 60 * 1000L;
-        breakMillis = breakMin * 60 * 1000L;
-        sessionsCompleted = prefs.getInt(KEY_SESSIONS, 1); // default to 1
-        if (textSessions != null) textSessions.setText(getString(R.string.sessions_label, sessionsCompleted));
+    private void startTimer() {
+        // the service starts the phase (and its start sound) if it was never started
+        if (timerService != null) timerService.start();
     }
 
-    private void savePreferences() {
-        SharedPreferences.Editor editor = getSharedPreferences(PREFS, MODE_PRIVATE).edit();
-        editor.putInt(KEY_WORK, (int) (workMillis / 60000L));
-        editor.putInt(KEY_BREAK, (int) (breakMillis / 60000L));
-        editor.putBoolean(KEY_IS_WORK, isWorkMode);
-        editor.putInt(KEY_SESSIONS, sessionsCompleted);
-        editor.apply();
+    // Arms a single wakeup for the next second rollover; the ring schedules its own frames and
+    // the service's engine thread fires the cues
+    private void scheduleNextTick() {
+        mainHandler.removeCallbacks(tickRunnable);
+        if (shown == null || !shown.running) return;
+        long delay = TickScheduler.nextTickDelay(shown.getRemainingMillis(SystemClock.elapsedRealtime()), TickScheduler.NO_CUE);
+        tickDueAt = SystemClock.uptimeMillis() + delay;
+        mainHandler.postDelayed(tickRunnable, delay);
     }
 
-    private void startTimer() {
-        if (isRunning) return;
-        isRunning = true;
-        buttonPlay.setEnabled(false);
-        buttonPause.setEnabled(true);
-
-        // Play start sound for the current mode immediately (no general delay).
-        // If we pre-played the break-start sound during the prior work session, consume the flag and skip double-play.
-        if (isWorkMode) {
-            // Starting a work session: play work_start and reset the pre-play flag so it may trigger again later
-            playEventSound("work_start");
-            breakStartPrePlayed = false; // ensure pre-play will be available during this work session
-        } else {
-            // Starting a break session: if break_start was already pre-played during the previous work session, consume it and do not replay.
-            if (breakStartPrePlayed) {
-                breakStartPrePlayed = false; // consumed; do not play again
-            } else {
-                playEventSound("break_start");
-            }
-        }
+    private void exportHistory(Uri uri, HistoryTransfer.Format format) {
+        // null when the picker was cancelled
+        if (uri == null || timerService == null) return;
+        timerService.exportHistory(uri, format, count -> Toast.makeText(this,
+                count >= 0 ? getString(R.string.export_done, count) : getString(R.string.export_failed), Toast.LENGTH_LONG).show());
+    }
 
-        // Reset break pre-end flag when a new session starts
-        breakPreEndPlayed = false;
+    private void importHistory(Uri uri) {
+        if (uri == null || timerService == null) return;
+        timerService.importHistory(uri, result -> Toast.makeText(this,
+                result != null ? getString(R.string.import_done, result.imported, result.duplicates, result.invalid)
+                        : getString(R.string.import_failed), Toast.LENGTH_LONG).show());
+    }
 
-        long sessionTotal = isWorkMode ? workMillis : breakMillis;
+    private void showStats() {
+        if (timerService == null) return;
+        timerService.queryStats(stats -> {
+            if (isFinishing()) return;
+            long today = stats.todayMillis / 60_000L;
+            long week = stats.weekMillis / 60_000L;
+            long month = stats.monthMillis / 60_000L;
+            new AlertDialog.Builder(this)
+                    .setTitle(R.string.stats)
+                    .setMessage(getString(R.string.stats_summary, (int) (today / 60), (int) (today % 60),
+                            (int) (week / 60), (int) (week % 60), (int) (month / 60), (int) (month % 60),
+                            stats.streakDays, Math.round(stats.completionRate * 100)))
+                    .setPositiveButton(android.R.string.ok, null)
+                    .show();
+        });
+    }
 
-        // keep last progress to animate smoothly
-        final int[] lastProgress = {circularProgress.getProgress()};
+    private void syncHistory(Uri folder) {
+        if (folder == null || timerService == null) return;
+        timerService.syncHistory(new DocumentTreeTransport(getContentResolver(), folder), result -> Toast.makeText(this,
+                result != null ? getString(R.string.sync_done, result.sentRecords, result.mergedRecords) : getString(R.string.sync_failed),
+                Toast.LENGTH_LONG).show());
+    }
 
-        countDownTimer = new CountDownTimer(timeLeft, 250) {
-            @Override
-            public void onTick(long millisUntilFinished) {
-                timeLeft = millisUntilFinished;
-                updateTimerText();
+    private void chooseSoundPack() {
+        if (timerService == null) return;
+        timerService.listSoundPacks(packs -> {
+            if (timerService == null || isFinishing()) return;
+            String[] names = new String[packs.size()];
+            for (int i = 0; i < names.length; i++) names[i] = packs.get(i).name;
+            new AlertDialog.Builder(this)
+                    .setTitle(R.string.sound_pack)
+                    .setItems(names, (dialog, which) -> {
+                        if (timerService != null) timerService.selectSoundPack(packs.get(which));
+                    })
+                    .show();
+        });
+    }
 
-                // If we're in a work session, pre-play the break_start sound 1.5 seconds before the work session ends (once)
-                if (isWorkMode && !breakStartPrePlayed && millisUntilFinished <= 1500) {
-                    try {
-                        playEventSound("break_start");
-                        breakStartPrePlayed = true;
-                    } catch (Exception e) {
-                        android.util.Log.w("MainActivity", "Error pre-playing break_start", e);
-                    }
-                }
+    private void chooseSoundMemory() {
+        if (timerService == null) return;
+        timerService.querySoundCacheBudget(current -> {
+            if (timerService == null || isFinishing()) return;
+            String[] labels = new String[SOUND_MEMORY_MB.length];
+            int checked = -1;
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = getString(R.string.sound_memory_mb, SOUND_MEMORY_MB[i]);
+                if (SOUND_MEMORY_MB[i] * 1024L * 1024 == current) checked = i;
+            }
+            new AlertDialog.Builder(this)
+                    .setTitle(R.string.sound_memory)
+                    .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                        if (timerService != null) timerService.setSoundCacheBudget(SOUND_MEMORY_MB[which] * 1024L * 1024);
+                        dialog.dismiss();
+                    })
+                    .show();
+        });
+    }
 
-                // If we're in a break session, play the break_end sound when 2 seconds remain (once)
-                if (!isWorkMode && !breakPreEndPlayed && millisUntilFinished <= 2000) {
-                    try {
-                        // play immediately (2 seconds before end)
-                        playEventSound("break_end");
-                        breakPreEndPlayed = true;
-                    } catch (Exception e) {
-                        android.util.Log.w("MainActivity", "Error playing break_end pre-sound", e);
-                    }
-                }
+    private void importSoundPack(Uri uri) {
+        if (uri == null || timerService == null) return;
+        timerService.importSoundPack(uri, pack -> Toast.makeText(this,
+                pack != null ? getString(R.string.sound_pack_imported, pack.name) : getString(R.string.sound_pack_import_failed),
+                Toast.LENGTH_LONG).show());
+    }
 
-                float fraction = (float) (sessionTotal - timeLeft) / (float) sessionTotal;
-                int newProgress = Math.max(0, Math.min(100, Math.round(fraction * 100)));
-                // animate progress from lastProgress to newProgress
-                ObjectAnimator anim = ObjectAnimator.ofInt(circularProgress, "progress", lastProgress[0], newProgress);
-                anim.setDuration(220);
-                anim.start();
-                lastProgress[0] = newProgress;
+    // Search-as-you-type over the task index; every keystroke is one prefix lookup on the history thread
+    private void bindTaskPicker(EditText input, LinearLayout results) {
+        timerService.queryCurrentTask(current -> {
+            if (current != null && input.getText().length() == 0) input.setHint(taskText(current));
+        });
+        input.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
             }
 
             @Override
-            public void onFinish() {
-                // When a session finishes we switch modes and auto-start the next session.
-                // The next session's start sound is played by startTimer() when it begins.
-
-                timeLeft = 0;
-                updateTimerText();
-                ObjectAnimator.ofInt(circularProgress, "progress", 100).setDuration(200).start();
-                // feedback
-                vibrateOnFinish();
-                showNotification(isWorkMode ? "Work complete" : "Break complete", isWorkMode ? "Time for a break" : "Back to work");
-                // If a work session just completed, increment sessions
-                if (isWorkMode) {
-                    sessionsCompleted++;
-                    savePreferences();
-                    animateSessions();
-                }
-                // Switch mode
-                isWorkMode = !isWorkMode;
-                // subtle mode-change animation (use new mode value so label matches)
-                animateModeChange();
-                timeLeft = isWorkMode ? workMillis : breakMillis;
-                isRunning = false;
-                updateUi();
-                // auto-start next (startTimer will play the start sound immediately)
-                startTimer();
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
             }
-        };
 
-        // initial smooth progress
-        float fractionInit = (float) (((isWorkMode ? workMillis : breakMillis) - timeLeft)) / (float) (isWorkMode ? workMillis : breakMillis);
-        int initProgress = Math.max(0, Math.min(100, Math.round(fractionInit * 100)));
-        ObjectAnimator.ofInt(circularProgress, "progress", circularProgress.getProgress(), initProgress).setDuration(200).start();
-        countDownTimer.start();
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchTasks(input, results);
+            }
+        });
+        input.setOnEditorActionListener((v, actionId, event) -> {
+            String label = input.getText().toString().trim();
+            if (label.isEmpty()) return false;
+            selectTask(input, label);
+            return true;
+        });
+        searchTasks(input, results);
+    }
+
+    private void searchTasks(EditText input, LinearLayout results) {
+        if (timerService == null) return;
+        String query = input.getText().toString().trim();
+        timerService.searchTasks(query, TASK_RESULTS, found -> {
+            // a later keystroke already asked again
+            if (!query.equals(input.getText().toString().trim())) return;
+            results.removeAllViews();
+            results.addView(taskRow(getString(R.string.task_none), v -> selectTask(input, null)));
+            boolean exact = false;
+            for (TimerService.TaskTotal task : found) {
+                exact |= task.label.equalsIgnoreCase(query);
+                results.addView(taskRow(taskText(task), v -> selectTask(input, task.label)));
+            }
+            if (!query.isEmpty() && !exact) {
+                results.addView(taskRow(getString(R.string.task_add, query), v -> selectTask(input, query)));
+            }
+        });
+    }
+
+    private void selectTask(EditText input, String label) {
+        if (timerService == null) return;
+        timerService.selectTask(label, task -> {
+            input.setText(""); // searches again, so the totals shown stay current
+            input.setHint(task != null ? taskText(task) : getString(R.string.task_hint));
+            Toast.makeText(this, task != null ? task.label : getString(R.string.task_none), Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    private String taskText(TimerService.TaskTotal task) {
+        long minutes = task.focusMillis / 60_000L;
+        return getString(R.string.task_total, task.label, (int) (minutes / 60), (int) (minutes % 60));
+    }
+
+    private TextView taskRow(String text, View.OnClickListener onClick) {
+        TextView row = new TextView(this);
+        int padding = Math.round(12 * getResources().getDisplayMetrics().density);
+        row.setPadding(padding, padding, padding, padding);
+        row.setText(text);
+        row.setTextSize(16);
+        row.setTextColor(ContextCompat.getColor(this, R.color.text_primary));
+        TypedValue background = new TypedValue();
+        getTheme().resolveAttribute(android.R.attr.selectableItemBackground, background, true);
+        row.setBackgroundResource(background.resourceId);
+        row.setOnClickListener(onClick);
+        return row;
+    }
+
+    private void dumpMetrics() {
+        if (timerService == null) return;
+        timerService.dumpMetrics(file -> Toast.makeText(this,
+                file != null ? "Metrics written to " + file : "Failed to write metrics", Toast.LENGTH_LONG).show());
+    }
+
+    // Called by scheduleNextTick() while bound and running; phase transitions arrive as new snapshots
+    private void onTick() {
+        if (shown == null || !shown.running) return;
+        updateTimerText();
     }
 
     private void stopTimer() {
-        if (!isRunning) return;
-        isRunning = false;
-        buttonPlay.setEnabled(true);
-        buttonPause.setEnabled(false);
-        if (countDownTimer != null) {
-            countDownTimer.cancel();
-            countDownTimer = null;
-        }
-        // Cancel any pending sound callbacks
-        if (mainHandler != null && pendingSoundRunnable != null) {
-            mainHandler.removeCallbacks(pendingSoundRunnable);
-            pendingSoundRunnable = null;
-        }
-        // reset break pre-end flag
-        breakPreEndPlayed = false;
-        updateUi();
+        if (timerService != null) timerService.pause();
     }
 
     private void animateModeChange() {
@@ -469,79 +539,56 @@ public class MainActivity extends AppCompatActivity {
             textTimer.setScaleY(1f);
             textTimer.setAlpha(1f);
             textMode.setAlpha(0f);
-            textMode.setText(isWorkMode ? getString(R.string.mode_work) : getString(R.string.mode_break));
+            if (shown != null) {
+                textMode.setText(shown.isWorkMode() ? getString(R.string.mode_work) : getString(R.string.mode_break));
+            }
             textMode.animate().alpha(1f).setDuration(220).start();
         }).start();
     }
 
     private void animateSessions() {
-        if (textSessions == null) return;
-        textSessions.setText(getString(R.string.sessions_label, sessionsCompleted));
+        if (textSessions == null || shown == null) return;
+        textSessions.setText(getString(R.string.sessions_label, shown.sessions));
         textSessions.animate().scaleX(1.16f).scaleY(1.16f).setDuration(160).withEndAction(() -> textSessions.animate().scaleX(1f).scaleY(1f).setDuration(160).start()).start();
     }
 
     private void updateUi() {
-        textMode.setText(isWorkMode ? getString(R.string.mode_work) : getString(R.string.mode_break));
+        if (shown == null) return;
+        timerText.invalidate();
+        // phase, running state or durations may have changed without time passing
+        progressRing.refresh();
+        textMode.setText(shown.isWorkMode() ? getString(R.string.mode_work) : getString(R.string.mode_break));
         updateTimerText();
-        buttonPlay.setEnabled(!isRunning);
-        buttonPause.setEnabled(isRunning);
-        if (textSessions != null) textSessions.setText(getString(R.string.sessions_label, sessionsCompleted));
+        buttonPlay.setEnabled(!shown.running);
+        buttonPause.setEnabled(shown.running);
+        if (textSessions != null) textSessions.setText(getString(R.string.sessions_label, shown.sessions));
     }
 
     private void updateTimerText() {
-        long seconds = (timeLeft / 1000) % 60;
-        long minutes = (timeLeft / 1000) / 60;
-        String time = String.format(java.util.Locale.getDefault(), "%02d:%02d", minutes, seconds);
-        textTimer.setText(time);
-    }
-
-    private void vibrateOnFinish() {
-        try {
-            Vibrator v = getSystemService(Vibrator.class);
-            if (v != null && v.hasVibrator()) {
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    v.vibrate(VibrationEffect.createOneShot(300, VibrationEffect.DEFAULT_AMPLITUDE));
-                } else {
-                    v.vibrate(300);
-                }
-            }
-        } catch (SecurityException ignored) {
+        if (timerText.update(shown.getRemainingMillis(SystemClock.elapsedRealtime()))) {
+            textTimer.setText(timerText.buffer(), 0, timerText.length());
         }
     }
 
     @Override
-    protected void onSaveInstanceState(@NonNull Bundle outState) {
-        super.onSaveInstanceState(outState);
-        outState.putBoolean(KEY_IS_WORK, isWorkMode);
-        outState.putLong(KEY_TIME_LEFT, timeLeft);
-        outState.putBoolean(KEY_IS_RUNNING, isRunning);
-        outState.putInt(KEY_SESSIONS, sessionsCompleted);
+    protected void onStart() {
+        super.onStart();
+        bindService(new Intent(this, TimerService.class), connection, Context.BIND_AUTO_CREATE);
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
-        if (countDownTimer != null) {
-            countDownTimer.cancel();
-            countDownTimer = null;
-        }
-        // Reset sessions to 1 whenever user leaves the app
-        sessionsCompleted = 1;
-        savePreferences();
-    }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (countDownTimer != null) {
-            countDownTimer.cancel();
-            countDownTimer = null;
-        }
-        // Cancel pending sound callbacks and release player
-        if (mainHandler != null && pendingSoundRunnable != null) {
-            mainHandler.removeCallbacks(pendingSoundRunnable);
-            pendingSoundRunnable = null;
+    protected void onStop() {
+        super.onStop();
+        mainHandler.removeCallbacks(releaseFirstFrame);
+        firstFrameReleased = true;
+        // Running but not visible: stop waking the main thread; the service keeps the timer going
+        mainHandler.removeCallbacks(tickRunnable);
+        progressRing.setSource(null);
+        shown = null;
+        if (timerService != null) {
+            timerService.removeSnapshotListener(snapshotListener);
+            timerService = null;
         }
-        stopAndReleaseMediaPlayer();
+        unbindService(connection);
     }
 }
@@ -0,0 +1,188 @@
+package com.example.pomodorotimer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Named counters and latency histograms for on-device performance checks.
+ *
+ * Metrics are looked up once (typically into a static or final field) and recorded into on
+ * hot paths. Recording is lock-free and allocation-free: a counter is one atomic add, a
+ * histogram sample is a binary search over preallocated bucket bounds plus a few atomic
+ * updates. Percentiles are therefore bucket-accurate (reported as the bucket's upper bound,
+ * capped at the observed maximum), which is plenty for jitter and latency budgets.
+ */
+public class Metrics {
+
+    /** 1-2-5 series from 10 us to 10 s; samples above the last bound go to an overflow bucket. */
+    public static final long[] LATENCY_BOUNDS_MICROS = {
+            10, 20, 50,
+            100, 200, 500,
+            1_000, 2_000, 5_000,
+            10_000, 20_000, 50_000,
+            100_000, 200_000, 500_000,
+            1_000_000, 2_000_000, 5_000_000,
+            10_000_000,
+    };
+
+    public static final class Counter {
+        private final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /** Fixed-bucket histogram of non-negative values (microseconds by convention). */
+    public static final class Histogram {
+        private final String name;
+        private final long[] bounds;
+        private final AtomicLongArray buckets; // bounds.length + 1, the last one is overflow
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name, long[] bounds) {
+            for (int i = 1; i < bounds.length; i++) {
+                if (bounds[i] <= bounds[i - 1]) throw new IllegalArgumentException("bounds must be increasing");
+            }
+            this.name = name;
+            this.bounds = bounds.clone();
+            this.buckets = new AtomicLongArray(bounds.length + 1);
+        }
+
+        /** Records one sample; negative values are counted as 0. */
+        public void record(long value) {
+            if (value < 0) value = 0;
+            buckets.incrementAndGet(bucketOf(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long seen = max.get();
+            while (value > seen && !max.compareAndSet(seen, value)) seen = max.get();
+        }
+
+        /** Records the time since {@code startNanos} (from System.nanoTime()) in microseconds. */
+        public void recordSinceNanos(long startNanos) {
+            record((System.nanoTime() - startNanos) / 1000L);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public long getMean() {
+            long n = count.get();
+            return n == 0 ? 0 : sum.get() / n;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile (0..1), capped at the maximum
+         * seen; 0 when empty. Concurrent recording may make the result slightly stale.
+         */
+        public long percentile(double quantile) {
+            long total = 0;
+            int n = buckets.length();
+            for (int i = 0; i < n; i++) total += buckets.get(i);
+            if (total == 0) return 0;
+            long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < n; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return i < bounds.length ? Math.min(bounds[i], max.get()) : max.get();
+            }
+            return max.get();
+        }
+
+        /** Number of samples in bucket {@code i} ({@code i == bounds.length} is the overflow bucket). */
+        long bucketCount(int i) {
+            return buckets.get(i);
+        }
+
+        // first bucket whose upper bound is >= value
+        private int bucketOf(long value) {
+            int lo = 0;
+            int hi = bounds.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (bounds[mid] < value) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    private static final Metrics PROCESS = new Metrics();
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /** Registry shared by every component of this process. */
+    public static Metrics process() {
+        return PROCESS;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /** Latency histogram with {@link #LATENCY_BOUNDS_MICROS}. */
+    public Histogram histogram(String name) {
+        return histogram(name, LATENCY_BOUNDS_MICROS);
+    }
+
+    /** Returns the histogram with this name, creating it with the given bounds if needed. */
+    public Histogram histogram(String name, long[] bounds) {
+        return histograms.computeIfAbsent(name, n -> new Histogram(n, bounds));
+    }
+
+    /** Writes every metric, sorted by name, as plain text: counters, then histogram percentiles. */
+    public void dump(Appendable out) throws IOException {
+        List<String> names = new ArrayList<>(counters.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            out.append(String.format(Locale.ROOT, "%-32s %d%n", name, counters.get(name).get()));
+        }
+        names = new ArrayList<>(histograms.keySet());
+        Collections.sort(names);
+        if (!names.isEmpty()) {
+            out.append(String.format(Locale.ROOT, "%-32s %8s %10s %10s %10s %10s %10s%n",
+                    "histogram (us)", "count", "mean", "p50", "p90", "p99", "max"));
+        }
+        for (String name : names) {
+            Histogram h = histograms.get(name);
+            out.append(String.format(Locale.ROOT, "%-32s %8d %10d %10d %10d %10d %10d%n",
+                    name, h.getCount(), h.getMean(), h.percentile(0.5), h.percentile(0.9), h.percentile(0.99), h.getMax()));
+        }
+    }
+}
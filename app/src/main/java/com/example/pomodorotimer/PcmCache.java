@@ -0,0 +1,133 @@
+package com.example.pomodorotimer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of decoded sound cues with a budget in bytes.
+ *
+ * The budget bounds the memory held for sounds however many packs are installed: inserting
+ * evicts the least recently played clips until the new one fits, and a clip larger than the
+ * whole budget is not cached at all. {@link #trimTo} shrinks the cache further when the
+ * system is short of memory.
+ *
+ * Thread-safe: clips are decoded and played on a background thread while the budget may be
+ * trimmed from the main thread.
+ */
+public final class PcmCache {
+
+    /** 16-bit PCM, interleaved by channel. Treated as immutable once cached. */
+    public static final class Clip {
+        public final short[] samples;
+        public final int sampleRate;
+        public final int channels;
+
+        public Clip(short[] samples, int sampleRate, int channels) {
+            this.samples = samples;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+        }
+
+        public long getBytes() {
+            return 2L * samples.length;
+        }
+
+        public long getDurationMillis() {
+            return samples.length * 1000L / ((long) sampleRate * channels);
+        }
+
+        /**
+         * This clip if it has one or two channels, otherwise a mono clip averaging every
+         * channel of a frame; playback only has mono and stereo layouts.
+         */
+        public Clip downmixed() {
+            if (channels <= 2) return this;
+            short[] mono = new short[samples.length / channels];
+            for (int frame = 0, i = 0; frame < mono.length; frame++) {
+                int sum = 0;
+                for (int c = 0; c < channels; c++) sum += samples[i++];
+                mono[frame] = (short) (sum / channels);
+            }
+            return new Clip(mono, sampleRate, 1);
+        }
+    }
+
+    private static final Metrics.Counter HITS = Metrics.process().counter("sound.cache_hits");
+    private static final Metrics.Counter MISSES = Metrics.process().counter("sound.cache_misses");
+    private static final Metrics.Counter EVICTIONS = Metrics.process().counter("sound.cache_evictions");
+
+    // access order: iteration starts at the least recently used clip
+    private final LinkedHashMap<String, Clip> clips = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes;
+    private long bytes;
+    private long evictions;
+
+    public PcmCache(long maxBytes) {
+        this.maxBytes = Math.max(0L, maxBytes);
+    }
+
+    /** The clip for {@code key}, now the most recently used, or null. */
+    public synchronized Clip get(String key) {
+        Clip clip = clips.get(key);
+        (clip != null ? HITS : MISSES).increment();
+        return clip;
+    }
+
+    /**
+     * Caches {@code clip}, evicting least recently used clips to make room. Returns false if
+     * it is larger than the whole budget and was not cached.
+     */
+    public synchronized boolean put(String key, Clip clip) {
+        Clip old = clips.remove(key);
+        if (old != null) bytes -= old.getBytes();
+        if (clip.getBytes() > maxBytes) return false;
+        evictDownTo(maxBytes - clip.getBytes());
+        clips.put(key, clip);
+        bytes += clip.getBytes();
+        return true;
+    }
+
+    /** Evicts least recently used clips until at most {@code targetBytes} are held. */
+    public synchronized void trimTo(long targetBytes) {
+        evictDownTo(Math.max(0L, targetBytes));
+    }
+
+    /** Changes the budget, evicting down to it if it shrank. */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0L, maxBytes);
+        evictDownTo(this.maxBytes);
+    }
+
+    public synchronized void clear() {
+        evictDownTo(0L);
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /** Bytes of PCM currently held; never more than {@link #getMaxBytes()}. */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return clips.size();
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // caller holds the lock
+    private void evictDownTo(long target) {
+        Iterator<Map.Entry<String, Clip>> it = clips.entrySet().iterator();
+        while (bytes > target && it.hasNext()) {
+            bytes -= it.next().getValue().getBytes();
+            it.remove();
+            evictions++;
+            EVICTIONS.increment();
+        }
+    }
+}
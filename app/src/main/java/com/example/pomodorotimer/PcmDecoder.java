@@ -0,0 +1,106 @@
+package com.example.pomodorotimer;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Decodes a sound file into mono or stereo 16-bit PCM with {@link MediaCodec}. Blocking; only
+ * called on the sound thread of {@link SoundCues}.
+ */
+final class PcmDecoder {
+
+    // cues are short; anything longer is cut so one odd file cannot take the whole cache
+    static final long MAX_DURATION_MS = 10_000L;
+    private static final long TIMEOUT_US = 10_000L;
+
+    private PcmDecoder() {
+    }
+
+    static PcmCache.Clip decode(FileDescriptor fd, long offset, long length) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            extractor.setDataSource(fd, offset, length);
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat candidate = extractor.getTrackFormat(i);
+                String mime = candidate.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    extractor.selectTrack(i);
+                    format = candidate;
+                    break;
+                }
+            }
+            if (format == null) throw new IOException("No audio track");
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            short[] samples = new short[sampleRate * channels]; // grows as needed
+            int count = 0;
+            long maxSamples = MAX_DURATION_MS * sampleRate * channels / 1000L;
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            boolean outputDone = false;
+            while (!outputDone) {
+                if (!inputDone) {
+                    int in = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (in >= 0) {
+                        ByteBuffer buffer = codec.getInputBuffer(in);
+                        int size = buffer == null ? -1 : extractor.readSampleData(buffer, 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(in, 0, 0, 0L, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(in, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+                int out = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (out == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat output = codec.getOutputFormat();
+                    sampleRate = output.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channels = output.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                    maxSamples = MAX_DURATION_MS * sampleRate * channels / 1000L;
+                } else if (out >= 0) {
+                    ByteBuffer buffer = codec.getOutputBuffer(out);
+                    if (buffer != null && info.size > 0) {
+                        buffer.position(info.offset).limit(info.offset + info.size);
+                        ShortBuffer pcm = buffer.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                        int n = (int) Math.min(pcm.remaining(), maxSamples - count);
+                        if (count + n > samples.length) samples = Arrays.copyOf(samples, Math.max(count + n, samples.length * 2));
+                        pcm.get(samples, count, n);
+                        count += n;
+                    }
+                    codec.releaseOutputBuffer(out, false);
+                    outputDone = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0 || count >= maxSamples;
+                }
+            }
+            if (count == 0) throw new IOException("No audio decoded");
+            // surround files would otherwise be played with a stereo frame size
+            return new PcmCache.Clip(Arrays.copyOf(samples, count), sampleRate, channels).downmixed();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new IOException("Cannot decode", e);
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (IllegalStateException ignored) {
+                }
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.pomodorotimer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs the timer state machine (engine, cues and session counting, hosted the way the service
+ * hosts them) against a virtual clock, so weeks of back-to-back phases take milliseconds.
+ *
+ * The host loop jumps straight to the next wakeup of a {@link TimerStation}, like the
+ * service's alarm. Random user actions (pause, resume, skip) can be injected at exponentially
+ * distributed times, and every wakeup can be made late by up to a bound to mimic inexact
+ * alarms. Everything is derived from the seed, so a run is reproducible from it.
+ *
+ * Every observable step is reported to a {@link Trace} as an {@link Event}; tests assert on
+ * the trace and {@link Report} gives the throughput for bulk fuzzing.
+ */
+public class PomodoroSimulator {
+
+    public enum Type { STARTED, FINISHED, SKIPPED, PAUSED, RESUMED, CUE }
+
+    /** One step of a run; {@code at} is virtual time since the start of the run. */
+    public static final class Event {
+        public final long at;
+        public final Type type;
+        public final TimerEngine.Phase phase;
+        /** Cue name for {@link Type#CUE} (whose phase is the one the cue belongs to), otherwise null. */
+        public final String cue;
+        /** Time spent in the phase for FINISHED/SKIPPED, lateness for CUE, otherwise 0. */
+        public final long millis;
+        /** Completed work sessions so far. */
+        public final int sessions;
+
+        Event(long at, Type type, TimerEngine.Phase phase, String cue, long millis, int sessions) {
+            this.at = at;
+            this.type = type;
+            this.phase = phase;
+            this.cue = cue;
+            this.millis = millis;
+            this.sessions = sessions;
+        }
+
+        @Override
+        public String toString() {
+            return at + " " + type + " " + phase + (cue != null ? " " + cue : "") + (millis != 0 ? " " + millis + "ms" : "") + " #" + sessions;
+        }
+    }
+
+    public interface Trace {
+        void onEvent(Event event);
+    }
+
+    /** Cost and outcome of a run. */
+    public static final class Report {
+        public final long simulatedMillis;
+        public final long wallNanos;
+        public final long wakeups;
+        public final long events;
+        public final int sessions;
+
+        Report(long simulatedMillis, long wallNanos, long wakeups, long events, int sessions) {
+            this.simulatedMillis = simulatedMillis;
+            this.wallNanos = wallNanos;
+            this.wakeups = wakeups;
+            this.events = events;
+            this.sessions = sessions;
+        }
+
+        /** Simulated time per unit of real time. */
+        public double getSpeedup() {
+            return simulatedMillis * 1e6 / Math.max(1L, wallNanos);
+        }
+
+        public double getEventsPerSecond() {
+            return events * 1e9 / Math.max(1L, wallNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.ROOT, "%d h simulated in %.1f ms (%.0fx): %d wakeups, %d events (%.0f/s), %d sessions",
+                    simulatedMillis / 3_600_000L, wallNanos / 1e6, getSpeedup(), wakeups, events, getEventsPerSecond(), sessions);
+        }
+    }
+
+    private final long workMillis;
+    private final long breakMillis;
+    private final List<CueScheduler.Cue> cues;
+    private final long seed;
+    private long meanActionIntervalMillis = 0L; // 0: no injected actions
+    private double skipShare = 0.3;
+    private long maxPauseMillis = 10 * 60 * 1000L;
+    private long maxLatenessMillis = 0L;
+
+    public PomodoroSimulator(long workMillis, long breakMillis, List<CueScheduler.Cue> cues, long seed) {
+        this.workMillis = workMillis;
+        this.breakMillis = breakMillis;
+        this.cues = new ArrayList<>(cues);
+        this.seed = seed;
+    }
+
+    /**
+     * Injects a user action on average every {@code meanIntervalMillis} of running time: a
+     * skip with probability {@code skipShare}, otherwise a pause lasting up to
+     * {@code maxPauseMillis} followed by a resume.
+     */
+    public PomodoroSimulator withActions(long meanIntervalMillis, double skipShare, long maxPauseMillis) {
+        this.meanActionIntervalMillis = meanIntervalMillis;
+        this.skipShare = skipShare;
+        this.maxPauseMillis = maxPauseMillis;
+        return this;
+    }
+
+    /** Delivers every wakeup up to {@code maxLatenessMillis} late, as inexact alarms do. */
+    public PomodoroSimulator withLateWakeups(long maxLatenessMillis) {
+        this.maxLatenessMillis = maxLatenessMillis;
+        return this;
+    }
+
+    /** Starts a work phase at virtual time 0 and runs it for {@code durationMillis}. */
+    public Report run(long durationMillis, Trace trace) {
+        long wallStart = System.nanoTime();
+        Random random = new Random(seed);
+        long[] now = {0L};
+        long[] events = {0L};
+        int[] sessions = {0};
+        TimerEngine engine = new TimerEngine(() -> now[0], workMillis, breakMillis);
+        CueScheduler cueScheduler = new CueScheduler(engine, () -> now[0], cues, (cue, late) -> {
+            events[0]++;
+            trace.onEvent(new Event(now[0], Type.CUE, cue.phase, cue.name, late, sessions[0]));
+        });
+        // registered in the service's order: cues, station entry, then the host's own listener
+        engine.addListener(cueScheduler);
+        TimerStation station = new TimerStation(() -> now[0], 1L);
+        station.add(engine, cueScheduler);
+        engine.addListener(new TimerEngine.Listener() {
+            @Override
+            public void onPhaseStarted(TimerEngine.Phase phase) {
+                emit(Type.STARTED, phase, 0L);
+            }
+
+            @Override
+            public void onPhaseFinished(TimerEngine.Phase phase, long elapsedMillis, boolean skipped) {
+                if (phase == TimerEngine.Phase.WORK && !skipped) sessions[0]++;
+                emit(skipped ? Type.SKIPPED : Type.FINISHED, phase, elapsedMillis);
+            }
+
+            @Override
+            public void onRunningChanged(boolean running) {
+                emit(running ? Type.RESUMED : Type.PAUSED, engine.getPhase(), 0L);
+            }
+
+            private void emit(Type type, TimerEngine.Phase phase, long millis) {
+                events[0]++;
+                trace.onEvent(new Event(now[0], type, phase, null, millis, sessions[0]));
+            }
+        });
+
+        engine.start();
+        long nextActionAt = nextAction(random, 0L);
+        long armedFor = TimerStation.NONE;
+        long lateness = 0L;
+        while (true) {
+            long due = station.nextWakeup();
+            if (due != armedFor) {
+                armedFor = due;
+                lateness = maxLatenessMillis > 0 && due != TimerStation.NONE ? (long) (random.nextDouble() * (maxLatenessMillis + 1)) : 0L;
+            }
+            long wakeupAt = due == TimerStation.NONE ? TimerStation.NONE : due + lateness;
+            long next = Math.min(wakeupAt, nextActionAt);
+            if (next > durationMillis) break;
+            now[0] = next;
+            if (next == nextActionAt) {
+                if (!engine.isRunning()) {
+                    engine.resume();
+                    nextActionAt = nextAction(random, now[0]);
+                } else if (random.nextDouble() < skipShare) {
+                    engine.skip();
+                    nextActionAt = nextAction(random, now[0]);
+                } else {
+                    engine.pause();
+                    nextActionAt = now[0] + 1 + (long) (random.nextDouble() * maxPauseMillis);
+                }
+            } else {
+                engine.update();
+                station.advance();
+            }
+        }
+        return new Report(durationMillis, System.nanoTime() - wallStart, station.getWakeups(), events[0], sessions[0]);
+    }
+
+    /** Runs and collects the whole trace. */
+    public List<Event> trace(long durationMillis) {
+        List<Event> events = new ArrayList<>();
+        run(durationMillis, events::add);
+        return events;
+    }
+
+    private long nextAction(Random random, long from) {
+        if (meanActionIntervalMillis <= 0) return TimerStation.NONE;
+        double gap = -Math.log(1.0 - random.nextDouble()) * meanActionIntervalMillis;
+        return from + 1 + (long) gap;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.pomodorotimer;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.function.Supplier;
+
+/**
+ * Circular progress of the current phase, computed from the published deadline on
+ * {@link Choreographer} frames instead of animating an integer percent per tick.
+ *
+ * A frame is only requested when {@link RingProgress} says the drawn sweep will change and only
+ * while the view is attached and visible; nothing is allocated per frame. Call
+ * {@link #refresh()} after a new {@link TimerSnapshot} is published (phase change, pause,
+ * resume) so the ring picks it up on the next frame; snapshots are read without locking.
+ */
+public class ProgressRingView extends View implements Choreographer.FrameCallback {
+
+    private static final Metrics.Counter FRAMES = Metrics.process().counter("ui.ring_frames");
+
+    private final Paint trackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint indicatorPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF oval = new RectF();
+    private final RingProgress progress = new RingProgress();
+    private Supplier<TimerSnapshot> source;
+    private boolean framePosted = false;
+
+    public ProgressRingView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.ProgressRingView);
+        try {
+            float thickness = a.getDimension(R.styleable.ProgressRingView_ringThickness, 8 * getResources().getDisplayMetrics().density);
+            trackPaint.setStyle(Paint.Style.STROKE);
+            trackPaint.setStrokeWidth(thickness);
+            trackPaint.setColor(a.getColor(R.styleable.ProgressRingView_ringTrackColor, 0x33FFFFFF));
+            indicatorPaint.setStyle(Paint.Style.STROKE);
+            indicatorPaint.setStrokeWidth(thickness);
+            indicatorPaint.setColor(a.getColor(R.styleable.ProgressRingView_ringColor, 0xFFFFFFFF));
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /** Follows the latest snapshot from {@code source}, or stops following when null. */
+    public void setSource(@Nullable Supplier<TimerSnapshot> source) {
+        this.source = source;
+        if (source == null) {
+            cancelFrame();
+        } else {
+            refresh();
+        }
+    }
+
+    /** Re-reads the snapshot on the next frame. */
+    public void refresh() {
+        postFrame(0L);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        framePosted = false;
+        TimerSnapshot snapshot = source != null ? source.get() : null;
+        if (snapshot == null) return;
+        FRAMES.increment();
+        long now = SystemClock.elapsedRealtime();
+        if (progress.update(snapshot.getProgress(now), frameTimeNanos)) invalidate();
+        long delay = progress.nextFrameDelayMillis(snapshot.getRemainingMillis(now), snapshot.getPhaseDurationMillis(), snapshot.running);
+        if (delay != RingProgress.NO_FRAME) postFrame(delay);
+    }
+
+    private void postFrame(long delayMillis) {
+        cancelFrame();
+        if (source == null || !isAttachedToWindow() || getWindowVisibility() != VISIBLE || !isShown()) return;
+        Choreographer.getInstance().postFrameCallbackDelayed(this, delayMillis);
+        framePosted = true;
+    }
+
+    private void cancelFrame() {
+        if (!framePosted) return;
+        Choreographer.getInstance().removeFrameCallback(this);
+        framePosted = false;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        refresh();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelFrame();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility == VISIBLE) refresh();
+        else cancelFrame();
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (isShown()) refresh();
+        else cancelFrame();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        float inset = trackPaint.getStrokeWidth() / 2f;
+        float size = Math.min(w - getPaddingLeft() - getPaddingRight(), h - getPaddingTop() - getPaddingBottom());
+        float left = getPaddingLeft() + (w - getPaddingLeft() - getPaddingRight() - size) / 2f;
+        float top = getPaddingTop() + (h - getPaddingTop() - getPaddingBottom() - size) / 2f;
+        oval.set(left + inset, top + inset, left + size - inset, top + size - inset);
+        // one step per pixel of circumference: finer values would draw the same arc
+        progress.setSteps((int) Math.ceil(Math.PI * oval.width()));
+        refresh();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        canvas.drawArc(oval, 0f, 360f, false, trackPaint);
+        float sweep = progress.getShown() * 360f;
+        if (sweep > 0f) canvas.drawArc(oval, -90f, sweep, false, indicatorPaint);
+    }
+}
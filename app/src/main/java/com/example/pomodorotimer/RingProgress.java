@@ -0,0 +1,91 @@
+package com.example.pomodorotimer;
+
+/**
+ * What the progress ring draws, and when it next needs a frame.
+ *
+ * The sweep is quantized to the ring's circumference in pixels: a finer value would not change
+ * a single pixel, so a 25-minute phase on a phone-sized ring needs a frame roughly every half
+ * second rather than on every vsync. Jumps larger than a couple of steps (resume after being
+ * hidden, a phase change) are eased over {@link #TRANSITION_NANOS} instead of snapping; only
+ * then does the ring ask for consecutive frames.
+ *
+ * Pure Java and allocation-free so the frame callback can call it on every frame.
+ */
+public final class RingProgress {
+
+    /** Returned by {@link #nextFrameDelayMillis} when the sweep will not change by itself. */
+    public static final long NO_FRAME = -1L;
+
+    static final long TRANSITION_NANOS = 200_000_000L;
+    // jumps up to this many steps are drawn directly
+    private static final int MAX_STEP_WITHOUT_TRANSITION = 2;
+
+    private int steps = 100;
+    private float shown;
+    private float transitionFrom;
+    private long transitionStart = -1L; // frame time the running transition began, -1 if none
+
+    /** Number of distinct sweeps, normally the circumference in pixels. */
+    public void setSteps(int steps) {
+        this.steps = Math.max(1, steps);
+        shown = quantize(shown);
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    /** Fraction of the ring currently drawn. */
+    public float getShown() {
+        return shown;
+    }
+
+    /**
+     * Moves the drawn sweep towards {@code target} (0..1) for the frame at {@code frameTimeNanos}.
+     * Returns true if the ring has to be redrawn.
+     */
+    public boolean update(float target, long frameTimeNanos) {
+        float goal = quantize(target);
+        float next;
+        if (transitionStart < 0 && Math.abs(goal - shown) * steps > MAX_STEP_WITHOUT_TRANSITION) {
+            transitionFrom = shown;
+            transitionStart = frameTimeNanos;
+        }
+        if (transitionStart >= 0) {
+            float t = (float) (frameTimeNanos - transitionStart) / TRANSITION_NANOS;
+            if (t >= 1f) {
+                transitionStart = -1L;
+                next = goal;
+            } else {
+                // decelerate towards a moving goal, so the ring lands on the live value
+                float eased = 1f - (1f - t) * (1f - t);
+                next = quantize(transitionFrom + (goal - transitionFrom) * eased);
+            }
+        } else {
+            next = goal;
+        }
+        boolean changed = next != shown;
+        shown = next;
+        return changed;
+    }
+
+    public boolean isTransitioning() {
+        return transitionStart >= 0;
+    }
+
+    /**
+     * Delay until the sweep changes: 0 (next vsync) during a transition, the time until the
+     * next step while running, otherwise {@link #NO_FRAME}.
+     */
+    public long nextFrameDelayMillis(long remainingMillis, long phaseMillis, boolean running) {
+        if (transitionStart >= 0) return 0L;
+        if (!running) return NO_FRAME;
+        long delay = TickScheduler.untilNextProgressStep(remainingMillis, phaseMillis, steps);
+        return delay == Long.MAX_VALUE ? NO_FRAME : delay;
+    }
+
+    private float quantize(float fraction) {
+        float clamped = Math.max(0f, Math.min(1f, fraction));
+        return (float) Math.round(clamped * steps) / steps;
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.pomodorotimer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only history of finished phases, stored as fixed-width {@link SessionRecord}s.
+ *
+ * Records are appended to an active file through a {@link FileChannel}. {@link #append}
+ * fills an in-memory batch and writes it out unsynced when full; {@link #flush()} writes the
+ * rest and calls {@code force()} once for all of it, so bulk appends (an import) cost one
+ * sync per segment rather than per batch. Each record carries a CRC32, so a write torn by a
+ * crash is detected on open and the tail is truncated back to the last valid record.
+ *
+ * Once the active file reaches the compaction threshold it is sealed: renamed (atomically)
+ * to the next numbered segment file and replaced by an empty active file. Segments are never
+ * written again, which keeps the recovery scan on open bounded by the threshold.
+ *
+ * Not thread-safe; the owner confines it to a single background thread.
+ */
+public class SessionLog implements Closeable {
+
+    static final String ACTIVE_FILE = "sessions.log";
+    private static final String SEGMENT_PREFIX = "sessions-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    static final int DEFAULT_COMPACT_THRESHOLD = 4096; // records per segment
+    private static final int BATCH_RECORDS = 64;
+    private static final int READ_RECORDS = 512;
+
+    private static final Metrics.Histogram FLUSH_MICROS = Metrics.process().histogram("session_log.flush");
+
+    private final File dir;
+    private final int compactThreshold;
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer pending = ByteBuffer.allocate(BATCH_RECORDS * SessionRecord.SIZE);
+    private final List<File> segments = new ArrayList<>();
+
+    private FileChannel active;
+    private long activeRecords;
+    private long segmentRecords;
+
+    public SessionLog(File dir) throws IOException {
+        this(dir, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    SessionLog(File dir, int compactThreshold) throws IOException {
+        this.dir = dir;
+        this.compactThreshold = compactThreshold;
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File[] sealed = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (sealed != null) Collections.addAll(segments, sealed);
+        // zero-padded sequence numbers sort lexicographically
+        Collections.sort(segments);
+        for (File segment : segments) segmentRecords += segment.length() / SessionRecord.SIZE;
+        openActive();
+    }
+
+    /** Queues a record; it becomes durable on the next {@link #flush()}. */
+    public void append(SessionRecord record) throws IOException {
+        if (!pending.hasRemaining()) writePending();
+        record.writeTo(pending, crc);
+    }
+
+    /** Writes all queued records and forces them to disk with a single sync. */
+    public void flush() throws IOException {
+        if (pending.position() == 0) return;
+        long start = System.nanoTime();
+        writePending();
+        active.force(false);
+        FLUSH_MICROS.recordSinceNanos(start);
+    }
+
+    // Writes the batch without syncing; sealing a segment syncs it first
+    private void writePending() throws IOException {
+        pending.flip();
+        int records = pending.remaining() / SessionRecord.SIZE;
+        long position = active.size();
+        while (pending.hasRemaining()) position += active.write(pending, position);
+        pending.clear();
+        activeRecords += records;
+        if (activeRecords >= compactThreshold) compact();
+    }
+
+    /** Seals the active file into a new segment. Called automatically when it is full. */
+    void compact() throws IOException {
+        if (activeRecords == 0) return;
+        active.force(false);
+        active.close();
+        File segment = new File(dir, String.format(java.util.Locale.ROOT, "%s%06d%s", SEGMENT_PREFIX, nextSegmentNumber(), SEGMENT_SUFFIX));
+        if (!new File(dir, ACTIVE_FILE).renameTo(segment)) {
+            openActive();
+            throw new IOException("Cannot seal " + segment);
+        }
+        segments.add(segment);
+        segmentRecords += activeRecords;
+        openActive();
+    }
+
+    /** Number of durable records (queued ones are not counted until flushed). */
+    public long size() {
+        return segmentRecords + activeRecords;
+    }
+
+    /** Streams every durable record, oldest first, through a fixed-size read buffer. */
+    public void forEach(Consumer<SessionRecord> visitor) throws IOException {
+        forEach(0L, visitor);
+    }
+
+    /** Streams durable records starting at the given index (0 = oldest); whole segments before it are skipped. */
+    public void forEach(long fromIndex, Consumer<SessionRecord> visitor) throws IOException {
+        try (Reader reader = openReader(fromIndex)) {
+            SessionRecord record;
+            while ((record = reader.next()) != null) visitor.accept(record);
+        }
+    }
+
+    /**
+     * Opens a pull-style reader over the records durable now, starting at {@code fromIndex};
+     * records appended later are not seen, so the log may be appended to while it is open.
+     */
+    public Reader openReader(long fromIndex) throws IOException {
+        return new Reader(fromIndex);
+    }
+
+    /** Reads records oldest first through one fixed-size buffer. Not thread-safe. */
+    public final class Reader implements Closeable {
+        private final List<File> files = new ArrayList<>();
+        private final List<Long> limits = new ArrayList<>();
+        private final ByteBuffer buffer = ByteBuffer.allocate(READ_RECORDS * SessionRecord.SIZE);
+        private final CRC32 readCrc = new CRC32();
+        private int fileIndex = 0;
+        private FileChannel channel;
+        private long position;
+        // opened up front: sealing renames the active file, which an open channel survives
+        private FileChannel activeSnapshot;
+        // log index of the next slot in the buffer, counting skipped invalid records
+        private long index;
+
+        private Reader(long fromIndex) throws IOException {
+            index = fromIndex;
+            long skip = fromIndex;
+            for (File segment : segments) {
+                long records = segment.length() / SessionRecord.SIZE;
+                if (skip >= records) {
+                    skip -= records;
+                    continue;
+                }
+                if (files.isEmpty()) position = skip * SessionRecord.SIZE;
+                files.add(segment);
+                limits.add(records * SessionRecord.SIZE);
+                skip = 0;
+            }
+            if (skip < activeRecords) {
+                if (files.isEmpty()) position = skip * SessionRecord.SIZE;
+                activeSnapshot = FileChannel.open(new File(dir, ACTIVE_FILE).toPath(), StandardOpenOption.READ);
+                files.add(null);
+                limits.add(activeRecords * SessionRecord.SIZE);
+            }
+            buffer.limit(0);
+        }
+
+        /** Returns the next valid record, or null at the end; invalid records are skipped. */
+        public SessionRecord next() throws IOException {
+            while (true) {
+                while (buffer.remaining() >= SessionRecord.SIZE) {
+                    SessionRecord record = SessionRecord.readFrom(buffer, readCrc);
+                    index++;
+                    if (record != null) return record;
+                }
+                if (!fill()) return null;
+            }
+        }
+
+        /** Log index just past the last record returned (or skipped as invalid). */
+        public long getIndex() {
+            return index;
+        }
+
+        // Reads the next chunk of the current file, moving on to the next file at its end
+        private boolean fill() throws IOException {
+            while (fileIndex < files.size()) {
+                long limit = limits.get(fileIndex);
+                if (channel == null) {
+                    File file = files.get(fileIndex);
+                    channel = file == null ? activeSnapshot : FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                }
+                if (position < limit) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, position + buffer.position()) < 0) break;
+                    }
+                    buffer.flip();
+                    // a truncated file ends at its last whole record
+                    buffer.limit(buffer.limit() / SessionRecord.SIZE * SessionRecord.SIZE);
+                    position = buffer.limit() == 0 ? limit : position + buffer.limit();
+                    if (buffer.hasRemaining()) return true;
+                    continue;
+                }
+                channel.close();
+                channel = null;
+                fileIndex++;
+                position = 0;
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) channel.close();
+            if (activeSnapshot != null && activeSnapshot != channel) activeSnapshot.close();
+            channel = null;
+            activeSnapshot = null;
+            fileIndex = files.size();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            active.close();
+        }
+    }
+
+    private void openActive() throws IOException {
+        active = FileChannel.open(new File(dir, ACTIVE_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeRecords = recoverTail();
+    }
+
+    // Counts valid records from the start of the active file and truncates anything after them
+    private long recoverTail() throws IOException {
+        long size = active.size();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_RECORDS * SessionRecord.SIZE);
+        long valid = 0;
+        long position = 0;
+        scan:
+        while (position + SessionRecord.SIZE <= size) {
+            buffer.clear();
+            long toRead = Math.min(buffer.capacity(), (size - position) / SessionRecord.SIZE * SessionRecord.SIZE);
+            buffer.limit((int) toRead);
+            while (buffer.hasRemaining()) {
+                if (active.read(buffer, position + buffer.position()) < 0) break;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= SessionRecord.SIZE) {
+                if (SessionRecord.readFrom(buffer, crc) == null) break scan;
+                valid++;
+            }
+            position += toRead;
+        }
+        long validBytes = valid * SessionRecord.SIZE;
+        if (validBytes != size) {
+            active.truncate(validBytes);
+            active.force(false);
+        }
+        return valid;
+    }
+
+    private int nextSegmentNumber() {
+        if (segments.isEmpty()) return 1;
+        String name = segments.get(segments.size() - 1).getName();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())) + 1;
+    }
+}
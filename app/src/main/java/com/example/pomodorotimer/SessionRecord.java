@@ -0,0 +1,138 @@
+package com.example.pomodorotimer;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * One finished work or break phase, as stored in the {@link SessionLog}.
+ *
+ * On disk every record is exactly {@link #SIZE} bytes, big-endian:
+ * <pre>
+ *  0  long  start (epoch millis)
+ *  8  int   duration (running millis, pauses excluded)
+ * 12  byte  phase (TimerEngine.Phase ordinal)
+ * 13  byte  outcome (Outcome ordinal)
+ * 14  short flags (FLAG_* bits)
+ * 16  int   tag (TaskRegistry id of the task worked on, 0 if none)
+ * 20  int   CRC32 of bytes 0..19
+ * </pre>
+ */
+public final class SessionRecord {
+
+    public enum Outcome { COMPLETED, SKIPPED, ABORTED }
+
+    /** Merged from another device by {@link HistorySync}, so it is not sent back out. */
+    static final int FLAG_REMOTE = 1;
+
+    public static final int SIZE = 24;
+    private static final int PAYLOAD = 20;
+
+    private final long startEpochMillis;
+    private final int durationMillis;
+    private final TimerEngine.Phase phase;
+    private final Outcome outcome;
+    private final int flags;
+    private final int tag;
+
+    public SessionRecord(long startEpochMillis, int durationMillis, TimerEngine.Phase phase, Outcome outcome) {
+        this(startEpochMillis, durationMillis, phase, outcome, 0, 0);
+    }
+
+    /** A record for the task with id {@code tag} (see {@link TaskRegistry}). */
+    public SessionRecord(long startEpochMillis, int durationMillis, TimerEngine.Phase phase, Outcome outcome, int tag) {
+        this(startEpochMillis, durationMillis, phase, outcome, 0, tag);
+    }
+
+    SessionRecord(long startEpochMillis, int durationMillis, TimerEngine.Phase phase, Outcome outcome, int flags, int tag) {
+        this.startEpochMillis = startEpochMillis;
+        this.durationMillis = durationMillis;
+        this.phase = phase;
+        this.outcome = outcome;
+        this.flags = flags;
+        this.tag = tag;
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    public int getDurationMillis() {
+        return durationMillis;
+    }
+
+    public TimerEngine.Phase getPhase() {
+        return phase;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    int getFlags() {
+        return flags;
+    }
+
+    /** Task id, {@link TaskRegistry#NONE} if the session was not tagged. */
+    public int getTag() {
+        return tag;
+    }
+
+    /** Writes the record, including its checksum, at the buffer's position. */
+    void writeTo(ByteBuffer out, CRC32 crc) {
+        int start = out.position();
+        out.putLong(startEpochMillis);
+        out.putInt(durationMillis);
+        out.put((byte) phase.ordinal());
+        out.put((byte) outcome.ordinal());
+        out.putShort((short) flags);
+        out.putInt(tag);
+        crc.reset();
+        crc.update(out.array(), out.arrayOffset() + start, PAYLOAD);
+        out.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Reads a record at the buffer's position, or returns null (leaving the position after the
+     * record) if its checksum or enum values are invalid, e.g. a torn write.
+     */
+    static SessionRecord readFrom(ByteBuffer in, CRC32 crc) {
+        int start = in.position();
+        crc.reset();
+        crc.update(in.array(), in.arrayOffset() + start, PAYLOAD);
+        long startEpochMillis = in.getLong();
+        int durationMillis = in.getInt();
+        int phase = in.get();
+        int outcome = in.get();
+        int flags = in.getShort() & 0xFFFF;
+        int tag = in.getInt();
+        int stored = in.getInt();
+        if (stored != (int) crc.getValue()) return null;
+        if (phase < 0 || phase >= TimerEngine.Phase.values().length) return null;
+        if (outcome < 0 || outcome >= Outcome.values().length) return null;
+        return new SessionRecord(startEpochMillis, durationMillis, TimerEngine.Phase.values()[phase], Outcome.values()[outcome], flags, tag);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SessionRecord)) return false;
+        SessionRecord r = (SessionRecord) o;
+        return startEpochMillis == r.startEpochMillis && durationMillis == r.durationMillis && phase == r.phase
+                && outcome == r.outcome && flags == r.flags && tag == r.tag;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Long.hashCode(startEpochMillis);
+        h = 31 * h + durationMillis;
+        h = 31 * h + phase.ordinal();
+        h = 31 * h + outcome.ordinal();
+        h = 31 * h + flags;
+        return 31 * h + tag;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionRecord{" + phase + " " + outcome + " start=" + startEpochMillis + " duration=" + durationMillis + "}";
+    }
+}
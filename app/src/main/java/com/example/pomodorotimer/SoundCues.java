@@ -0,0 +1,273 @@
+package com.example.pomodorotimer;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.media.Ringtone;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Event sounds from the selected {@link SoundPackStore.Pack}, with the built-in sounds for
+ * events the pack leaves out.
+ *
+ * Selecting a pack decodes its sounds once and writes each into its own static
+ * {@link AudioTrack}. Those tracks stay pinned while the pack is selected, so playing a cue
+ * only rewinds and restarts a ready track: nothing is decoded or allocated on the cue path.
+ * Decoded PCM of earlier selections is kept in a {@link PcmCache} so switching back is quick.
+ * The store's cache budget bounds the pinned tracks and the cache together (the cache gets
+ * what the pinned tracks leave), however many packs are installed; {@link #onTrimMemory}
+ * only gives up the cache. Decoding and playback run on a dedicated audio-priority thread:
+ * {@link #play} and {@link #setPack} only post to it, so the main thread never decodes or
+ * waits. If a sound cannot be decoded or played, the default notification sound is played
+ * instead.
+ */
+public class SoundCues {
+
+    public enum Cue {
+        WORK_START(R.raw.work_start, "sound.work_start"),
+        WORK_END(0, "sound.work_end"),
+        BREAK_START(R.raw.break_start, "sound.break_start"),
+        BREAK_END(R.raw.break_end, "sound.break_end");
+
+        // built-in sound, 0 if there is none
+        final int resId;
+        // SoundPackStore event name
+        final String event;
+        // from the time the cue was due to the track consuming its first frame, in microseconds
+        final Metrics.Histogram latency;
+
+        Cue(int resId, String metric) {
+            this.resId = resId;
+            this.event = name().toLowerCase(Locale.ROOT);
+            this.latency = Metrics.process().histogram(metric);
+        }
+    }
+
+    // the playback head is polled this often after a start, for at most MAX_HEAD_POLLS polls
+    private static final long HEAD_POLL_MS = 2L;
+    private static final int MAX_HEAD_POLLS = 250;
+
+    private static final Metrics.Counter FALLBACKS = Metrics.process().counter("sound.fallback");
+    private static final Metrics.Counter NEVER_STARTED = Metrics.process().counter("sound.never_started");
+    private static final Metrics.Histogram DECODE_MICROS = Metrics.process().histogram("sound.decode");
+
+    private final Context context;
+    private final AudioAttributes attributes;
+    private final PcmCache cache;
+    private final HandlerThread thread = new HandlerThread("sound-cues", Process.THREAD_PRIORITY_AUDIO);
+    private final Handler handler;
+    // sound thread only
+    private SoundPackStore.Pack pack;
+    // the selected pack's cues by ordinal, null if the cue has no sound; one track per cue, so a
+    // pre-played end cue can overlap the next start cue (sound thread)
+    private final AudioTrack[] voices = new AudioTrack[Cue.values().length];
+    private long budgetBytes = SoundPackStore.DEFAULT_CACHE_BYTES; // sound thread
+    private long pinnedBytes; // PCM held by voices; sound thread
+    // plays per cue, so a head poll can tell its own play from a later one (sound thread)
+    private final int[] plays = new int[Cue.values().length];
+
+    /** Plays the pack selected in {@code store} within its cache budget, both read on the sound thread. */
+    public SoundCues(Context context, SoundPackStore store) {
+        this.context = context.getApplicationContext();
+        this.attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_NOTIFICATION_EVENT)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        this.cache = new PcmCache(budgetBytes);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(() -> {
+            budgetBytes = store.getCacheBudget();
+            prefetch(store.getSelected());
+        });
+    }
+
+    /** Switches to {@code pack} and prepares its sounds in the background. */
+    public void setPack(SoundPackStore.Pack pack) {
+        handler.post(() -> prefetch(pack));
+    }
+
+    /** Changes the memory cap for decoded sounds; see {@link SoundPackStore#setCacheBudget}. */
+    public void setCacheBudget(long bytes) {
+        handler.post(() -> {
+            budgetBytes = bytes;
+            fitCache();
+        });
+    }
+
+    /**
+     * Plays the cue as soon as the sound thread gets to it; never blocks the caller.
+     * {@code dueAtMillis} is the {@link SystemClock#elapsedRealtime()} the cue was scheduled
+     * for; its latency is measured from then to the first frame the track plays.
+     */
+    public void play(Cue cue, long dueAtMillis) {
+        long dueAtNanos = dueAtMillis * 1_000_000L;
+        handler.post(() -> playNow(cue, dueAtNanos));
+    }
+
+    /**
+     * Gives cached sounds of other packs back when the process leaves the foreground; they are
+     * decoded again if their pack is selected. The selected pack's tracks are kept so cues
+     * still play on time. Only the thresholds that are not deprecated since API 34 are used.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            cache.clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            cache.trimTo(cache.getMaxBytes() / 2);
+        }
+    }
+
+    public void release() {
+        handler.post(() -> {
+            releaseVoices();
+            cache.clear();
+        });
+        thread.quitSafely();
+    }
+
+    // Decodes the pack's cues (or takes them from the cache) into pinned tracks (sound thread)
+    private void prefetch(SoundPackStore.Pack pack) {
+        this.pack = pack;
+        releaseVoices();
+        fitCache(); // the old pack's share goes back to the cache, so it can still be switched back to quickly
+        for (Cue cue : Cue.values()) {
+            PcmCache.Clip clip = clip(pack, cue);
+            AudioTrack voice = clip != null ? prepare(clip) : null;
+            if (voice == null) continue;
+            voices[cue.ordinal()] = voice;
+            pinnedBytes += clip.getBytes();
+        }
+        fitCache();
+    }
+
+    // The cache gets what the pinned tracks leave of the budget (sound thread)
+    private void fitCache() {
+        cache.setMaxBytes(Math.max(0L, budgetBytes - pinnedBytes));
+    }
+
+    // sound thread
+    private void releaseVoices() {
+        for (int i = 0; i < voices.length; i++) {
+            if (voices[i] != null) voices[i].release();
+            voices[i] = null;
+        }
+        pinnedBytes = 0L;
+    }
+
+    // sound thread
+    private void playNow(Cue cue, long dueAtNanos) {
+        boolean hasSound = pack.getSound(cue.event) != null || cue.resId != 0;
+        if (!hasSound) return; // e.g. work_end without a pack that provides it
+        AudioTrack voice = voices[cue.ordinal()];
+        if (voice == null || !restart(voice)) {
+            FALLBACKS.increment();
+            playFallback();
+            return;
+        }
+        int play = ++plays[cue.ordinal()];
+        recordWhenStarted(cue, voice, play, dueAtNanos, 0);
+    }
+
+    // Records the cue's latency once the playback head has moved, i.e. the mixer took the first
+    // frame; that is the earliest point the device reports, one output buffer before it is heard
+    // (sound thread)
+    private void recordWhenStarted(Cue cue, AudioTrack voice, int play, long dueAtNanos, int polls) {
+        // replayed, or the pack changed and the track was released
+        if (voices[cue.ordinal()] != voice || plays[cue.ordinal()] != play) return;
+        if (voice.getPlaybackHeadPosition() > 0) {
+            cue.latency.record(Math.max(0L, SystemClock.elapsedRealtimeNanos() - dueAtNanos) / 1000L);
+        } else if (polls < MAX_HEAD_POLLS) {
+            handler.postDelayed(() -> recordWhenStarted(cue, voice, play, dueAtNanos, polls + 1), HEAD_POLL_MS);
+        } else {
+            NEVER_STARTED.increment();
+        }
+    }
+
+    // The decoded sound for the cue, from the cache or decoded now; null if there is none (sound thread)
+    private PcmCache.Clip clip(SoundPackStore.Pack pack, Cue cue) {
+        File file = pack.getSound(cue.event);
+        if (file == null && cue.resId == 0) return null;
+        String key = (file != null ? pack.id : SoundPackStore.BUILT_IN) + "/" + cue.event;
+        PcmCache.Clip clip = cache.get(key);
+        if (clip != null) return clip;
+        long start = System.nanoTime();
+        try {
+            if (file != null) {
+                try (ParcelFileDescriptor pfd = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY)) {
+                    clip = PcmDecoder.decode(pfd.getFileDescriptor(), 0L, file.length());
+                }
+            } else {
+                try (AssetFileDescriptor afd = context.getResources().openRawResourceFd(cue.resId)) {
+                    clip = PcmDecoder.decode(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            android.util.Log.w("SoundCues", "Cannot decode " + key, e);
+            return null;
+        }
+        DECODE_MICROS.recordSinceNanos(start);
+        cache.put(key, clip);
+        return clip;
+    }
+
+    // A static track holding the clip, ready to be restarted for every play; null if the device refuses it (sound thread)
+    private AudioTrack prepare(PcmCache.Clip clip) {
+        AudioTrack track = null;
+        try {
+            AudioFormat format = new AudioFormat.Builder()
+                    .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                    .setSampleRate(clip.sampleRate)
+                    .setChannelMask(clip.channels == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO)
+                    .build();
+            track = new AudioTrack.Builder()
+                    .setAudioAttributes(attributes)
+                    .setAudioFormat(format)
+                    .setTransferMode(AudioTrack.MODE_STATIC)
+                    .setBufferSizeInBytes((int) clip.getBytes())
+                    .build();
+            track.write(clip.samples, 0, clip.samples.length);
+            return track;
+        } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
+            android.util.Log.w("SoundCues", "Cannot prepare cue", e);
+            if (track != null) track.release();
+            return null;
+        }
+    }
+
+    // Plays a pinned track from the start, cutting off a previous play of the same cue (sound thread)
+    private boolean restart(AudioTrack track) {
+        try {
+            track.stop();
+            track.reloadStaticData();
+            track.play();
+            return true;
+        } catch (IllegalStateException e) {
+            android.util.Log.w("SoundCues", "Cannot play cue", e);
+            return false;
+        }
+    }
+
+    private void playFallback() {
+        try {
+            Uri soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+            Ringtone r = RingtoneManager.getRingtone(context, soundUri);
+            if (r != null) r.play();
+        } catch (Exception e) {
+            android.util.Log.w("SoundCues", "Fallback sound error", e);
+        }
+    }
+}
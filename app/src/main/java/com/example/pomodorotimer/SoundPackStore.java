@@ -0,0 +1,252 @@
+package com.example.pomodorotimer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * User sound packs, imported from zip files into a directory of the app's own storage.
+ *
+ * A pack maps some of the {@link #EVENTS} to an audio file, found in the zip by file name
+ * regardless of folders ({@code work_end.ogg}, {@code sounds/break_start.mp3}, ...). Events a
+ * pack leaves out play the built-in sound, if there is one. Only the selected pack is ever
+ * decoded, so installing more packs costs disk space but no memory. The memory decoded sounds
+ * may use is a setting of the store too ({@link #getCacheBudget}).
+ *
+ * Every method does file I/O; call it off the main thread.
+ */
+public class SoundPackStore {
+
+    /** Id of the sounds shipped in the APK. */
+    public static final String BUILT_IN = "builtin";
+
+    public static final List<String> EVENTS = Collections.unmodifiableList(Arrays.asList("work_start", "work_end", "break_start", "break_end"));
+
+    /** Default memory cap for decoded sounds: a few seconds of stereo audio for every event. */
+    public static final long DEFAULT_CACHE_BYTES = 4L * 1024 * 1024;
+    /** Smallest accepted cap; below it even the built-in cues would not stay decoded. */
+    public static final long MIN_CACHE_BYTES = 1024L * 1024;
+
+    static final long MAX_SOUND_BYTES = 2L * 1024 * 1024;
+    private static final List<String> AUDIO_EXTENSIONS = Arrays.asList("ogg", "opus", "mp3", "m4a", "aac", "wav", "flac");
+    private static final String NAME_FILE = "name";
+    private static final String SELECTED_FILE = "selected";
+    private static final String BUDGET_FILE = "cache_budget";
+
+    /** An installed pack; the built-in one has no files. */
+    public static final class Pack {
+        public final String id;
+        public final String name;
+        private final Map<String, File> sounds;
+
+        Pack(String id, String name, Map<String, File> sounds) {
+            this.id = id;
+            this.name = name;
+            this.sounds = sounds;
+        }
+
+        public boolean isBuiltIn() {
+            return BUILT_IN.equals(id);
+        }
+
+        /** The pack's file for {@code event}, or null if it uses the built-in sound. */
+        public File getSound(String event) {
+            return sounds.get(event);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final File dir;
+    private final String builtInName;
+
+    public SoundPackStore(File dir, String builtInName) {
+        this.dir = dir;
+        this.builtInName = builtInName;
+    }
+
+    /** The built-in pack first, then the installed ones by name. */
+    public List<Pack> list() {
+        List<Pack> packs = new ArrayList<>();
+        File[] children = dir.listFiles(File::isDirectory);
+        if (children != null) {
+            for (File child : children) {
+                Pack pack = load(child.getName());
+                if (pack != null) packs.add(pack);
+            }
+        }
+        packs.sort((a, b) -> a.name.compareToIgnoreCase(b.name));
+        packs.add(0, builtIn());
+        return packs;
+    }
+
+    /** The selected pack; the built-in one if none was selected or it was deleted. */
+    public Pack getSelected() {
+        File file = new File(dir, SELECTED_FILE);
+        if (!file.isFile()) return builtIn();
+        try {
+            Pack pack = load(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim());
+            return pack != null ? pack : builtIn();
+        } catch (IOException e) {
+            return builtIn();
+        }
+    }
+
+    public void select(String id) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File tmp = new File(dir, SELECTED_FILE + ".tmp");
+        Files.write(tmp.toPath(), id.getBytes(StandardCharsets.UTF_8));
+        if (!tmp.renameTo(new File(dir, SELECTED_FILE))) throw new IOException("Cannot select " + id);
+    }
+
+    /** Memory cap in bytes for decoded sounds; {@link #DEFAULT_CACHE_BYTES} until one is set. */
+    public long getCacheBudget() {
+        File file = new File(dir, BUDGET_FILE);
+        if (!file.isFile()) return DEFAULT_CACHE_BYTES;
+        try {
+            long bytes = Long.parseLong(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim());
+            return Math.max(MIN_CACHE_BYTES, bytes);
+        } catch (IOException | NumberFormatException e) {
+            return DEFAULT_CACHE_BYTES;
+        }
+    }
+
+    /** Stores the memory cap, raised to {@link #MIN_CACHE_BYTES} if smaller; returns the cap stored. */
+    public long setCacheBudget(long bytes) throws IOException {
+        long budget = Math.max(MIN_CACHE_BYTES, bytes);
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File tmp = new File(dir, BUDGET_FILE + ".tmp");
+        Files.write(tmp.toPath(), Long.toString(budget).getBytes(StandardCharsets.UTF_8));
+        if (!tmp.renameTo(new File(dir, BUDGET_FILE))) throw new IOException("Cannot store the cache budget");
+        return budget;
+    }
+
+    /**
+     * Installs the sounds found in a zip as a new pack named {@code name}. Entries that are not
+     * an event's audio file, or larger than {@link #MAX_SOUND_BYTES}, are ignored.
+     *
+     * @throws IOException if the zip cannot be read or contains no usable sound
+     */
+    public Pack importZip(InputStream in, String name) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        String id = UUID.randomUUID().toString();
+        File staging = new File(dir, "." + id);
+        if (!staging.mkdir()) throw new IOException("Cannot create " + staging);
+        try {
+            int sounds = 0;
+            byte[] buffer = new byte[16 * 1024];
+            ZipInputStream zip = new ZipInputStream(in);
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String event = eventOf(entry);
+                if (event == null || hasSound(staging, event)) continue;
+                // only the base name is used, so entry paths cannot point outside the pack
+                File file = new File(staging, event + "." + extensionOf(entry.getName()));
+                if (copyBounded(zip, file, buffer)) sounds++;
+                else file.delete();
+            }
+            if (sounds == 0) throw new IOException("No " + String.join("/", EVENTS) + " sounds in " + name);
+            Files.write(new File(staging, NAME_FILE).toPath(), name.getBytes(StandardCharsets.UTF_8));
+            File installed = new File(dir, id);
+            if (!staging.renameTo(installed)) throw new IOException("Cannot install " + name);
+            return load(id);
+        } finally {
+            delete(staging);
+        }
+    }
+
+    /** Removes an installed pack; if it was selected, the built-in pack is selected again. */
+    public void delete(String id) throws IOException {
+        if (BUILT_IN.equals(id)) throw new IllegalArgumentException("the built-in pack cannot be deleted");
+        boolean selected = getSelected().id.equals(id);
+        delete(new File(dir, id));
+        if (selected) select(BUILT_IN);
+    }
+
+    private Pack builtIn() {
+        return new Pack(BUILT_IN, builtInName, Collections.emptyMap());
+    }
+
+    private Pack load(String id) {
+        if (BUILT_IN.equals(id)) return builtIn();
+        File packDir = new File(dir, id);
+        File[] files = packDir.listFiles();
+        if (id.startsWith(".") || files == null) return null;
+        String name = id;
+        Map<String, File> sounds = new HashMap<>();
+        for (File file : files) {
+            if (file.getName().equals(NAME_FILE)) {
+                try {
+                    name = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                } catch (IOException ignored) {
+                }
+                continue;
+            }
+            String event = baseName(file.getName());
+            if (EVENTS.contains(event)) sounds.put(event, file);
+        }
+        return sounds.isEmpty() ? null : new Pack(id, name, sounds);
+    }
+
+    private static String eventOf(ZipEntry entry) {
+        if (entry.isDirectory()) return null;
+        String fileName = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+        String event = baseName(fileName).toLowerCase(Locale.ROOT);
+        if (!EVENTS.contains(event) || !AUDIO_EXTENSIONS.contains(extensionOf(fileName))) return null;
+        return event;
+    }
+
+    private static boolean hasSound(File packDir, String event) {
+        String[] names = packDir.list();
+        if (names == null) return false;
+        for (String n : names) if (baseName(n).equals(event)) return true;
+        return false;
+    }
+
+    private static String baseName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    // Copies the current zip entry; false if it exceeds MAX_SOUND_BYTES
+    private static boolean copyBounded(InputStream in, File file, byte[] buffer) throws IOException {
+        long total = 0;
+        try (OutputStream out = new FileOutputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                total += n;
+                if (total > MAX_SOUND_BYTES) return false;
+                out.write(buffer, 0, n);
+            }
+        }
+        return total > 0;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File c : children) delete(c);
+        file.delete();
+    }
+}
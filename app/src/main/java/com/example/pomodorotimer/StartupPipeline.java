@@ -0,0 +1,116 @@
+package com.example.pomodorotimer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Ordered startup work split into explicit stages.
+ *
+ * Only {@link Stage#BEFORE_FIRST_FRAME} tasks run synchronously; {@link Stage#IDLE} tasks are
+ * handed one by one to an idle executor (a main-thread IdleHandler on device) and
+ * {@link Stage#BACKGROUND} tasks to a background executor. Every task is timed through a
+ * {@link StartupTrace}.
+ *
+ * A deferred task that something needs earlier can be pulled forward with {@link #ensure};
+ * each task runs at most once, whichever path reaches it first, and {@link #ensure} returns
+ * only once it has finished, even when another thread got there first.
+ */
+public class StartupPipeline {
+
+    public enum Stage { BEFORE_FIRST_FRAME, IDLE, BACKGROUND }
+
+    private static final class Task {
+        final Stage stage;
+        final String name;
+        final Runnable work;
+        boolean started; // guarded by the pipeline
+        final CountDownLatch done = new CountDownLatch(1); // released when run or cancelled
+
+        Task(Stage stage, String name, Runnable work) {
+            this.stage = stage;
+            this.name = name;
+            this.work = work;
+        }
+    }
+
+    private final StartupTrace trace;
+    private final Executor idleExecutor;
+    private final Executor backgroundExecutor;
+    private final List<Task> tasks = new ArrayList<>();
+
+    public StartupPipeline(StartupTrace trace, Executor idleExecutor, Executor backgroundExecutor) {
+        this.trace = trace;
+        this.idleExecutor = idleExecutor;
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    public StartupPipeline add(Stage stage, String name, Runnable work) {
+        synchronized (this) {
+            tasks.add(new Task(stage, name, work));
+        }
+        return this;
+    }
+
+    /**
+     * Runs the {@link Stage#BEFORE_FIRST_FRAME} tasks in order on the calling thread, then
+     * schedules the deferred ones.
+     */
+    public void start() {
+        for (Task task : snapshot()) {
+            if (task.stage == Stage.BEFORE_FIRST_FRAME) run(task);
+        }
+        for (Task task : snapshot()) {
+            if (task.stage == Stage.IDLE) idleExecutor.execute(() -> run(task));
+            else if (task.stage == Stage.BACKGROUND) backgroundExecutor.execute(() -> run(task));
+        }
+    }
+
+    /**
+     * Runs the named task on the calling thread unless it already ran, or waits for it if it is
+     * running elsewhere. Callers that depend on a deferred task's result call this first.
+     * Must not be called from inside the task itself.
+     */
+    public void ensure(String name) {
+        for (Task task : snapshot()) {
+            if (!task.name.equals(name)) continue;
+            run(task);
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    task.done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Drops every task that has not started yet (e.g. the owner was destroyed before going idle). */
+    public synchronized void cancel() {
+        for (Task task : tasks) {
+            if (task.started) continue;
+            task.started = true;
+            task.done.countDown();
+        }
+    }
+
+    private synchronized List<Task> snapshot() {
+        return new ArrayList<>(tasks);
+    }
+
+    private void run(Task task) {
+        synchronized (this) {
+            if (task.started) return;
+            task.started = true;
+        }
+        try {
+            trace.trace(task.name, task.work);
+        } finally {
+            task.done.countDown();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.pomodorotimer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Timeline of the cold start: one entry per startup phase plus the moment the first frame
+ * was drawn.
+ *
+ * Times are monotonic nanoseconds relative to the trace origin (the first use of
+ * {@link #process()} in a real start). Phases finished before {@link #markFirstFrame()} count
+ * towards time-to-first-frame; everything deferred by {@link StartupPipeline} ends up after it.
+ *
+ * Thread-safe; phases may be recorded from the main thread and background executors.
+ */
+public class StartupTrace {
+
+    /** Monotonic nanosecond time source. */
+    public interface Clock {
+        long nanoTime();
+    }
+
+    public interface Listener {
+        default void onPhase(Phase phase) {}
+
+        default void onFirstFrame(long timeToFirstFrameNanos) {}
+    }
+
+    /** One finished startup phase. */
+    public static final class Phase {
+        public final String name;
+        public final long startNanos;
+        public final long durationNanos;
+        public final boolean beforeFirstFrame;
+        public final String thread;
+
+        Phase(String name, long startNanos, long durationNanos, boolean beforeFirstFrame, String thread) {
+            this.name = name;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.beforeFirstFrame = beforeFirstFrame;
+            this.thread = thread;
+        }
+
+        @Override
+        public String toString() {
+            return name + " +" + startNanos / 1000 + "us " + durationNanos / 1000 + "us"
+                    + (beforeFirstFrame ? " (before first frame)" : "") + " [" + thread + "]";
+        }
+    }
+
+    public static final long NOT_DRAWN = -1L;
+
+    private static StartupTrace process;
+
+    private final Clock clock;
+    private final long origin;
+    private final List<Phase> phases = new ArrayList<>(); // guarded by this
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private long firstFrameNanos = NOT_DRAWN; // guarded by this
+
+    public StartupTrace(Clock clock) {
+        this.clock = clock;
+        this.origin = clock.nanoTime();
+    }
+
+    /** Trace shared by every component of this process, started on first use. */
+    public static synchronized StartupTrace process() {
+        if (process == null) process = new StartupTrace(System::nanoTime);
+        return process;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Current time on the trace timeline; pass it to {@link #end} when the phase is done. */
+    public long begin() {
+        return clock.nanoTime() - origin;
+    }
+
+    /** Records a phase that started at {@code startNanos} (from {@link #begin()}) and ends now. */
+    public void end(String name, long startNanos) {
+        long now = clock.nanoTime() - origin;
+        Phase phase;
+        synchronized (this) {
+            phase = new Phase(name, startNanos, now - startNanos, firstFrameNanos == NOT_DRAWN, Thread.currentThread().getName());
+            phases.add(phase);
+        }
+        for (Listener l : listeners) l.onPhase(phase);
+    }
+
+    /** Runs and records a phase. */
+    public void trace(String name, Runnable work) {
+        long start = begin();
+        try {
+            work.run();
+        } finally {
+            end(name, start);
+        }
+    }
+
+    /** Records the first drawn frame; later calls are ignored. */
+    public void markFirstFrame() {
+        long ttff;
+        synchronized (this) {
+            if (firstFrameNanos != NOT_DRAWN) return;
+            ttff = firstFrameNanos = clock.nanoTime() - origin;
+        }
+        for (Listener l : listeners) l.onFirstFrame(ttff);
+    }
+
+    /** Nanoseconds from the origin to the first frame, or {@link #NOT_DRAWN}. */
+    public synchronized long getTimeToFirstFrameNanos() {
+        return firstFrameNanos;
+    }
+
+    /** Phases recorded so far, in the order they finished. */
+    public synchronized List<Phase> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<>(phases));
+    }
+
+    /** Total time spent in phases that finished before the first frame. */
+    public synchronized long getBlockingNanos() {
+        long total = 0;
+        for (Phase p : phases) {
+            if (p.beforeFirstFrame) total += p.durationNanos;
+        }
+        return total;
+    }
+
+    /** The recorded phase with this name, or null. */
+    public synchronized Phase getPhase(String name) {
+        for (Phase p : phases) {
+            if (p.name.equals(name)) return p;
+        }
+        return null;
+    }
+}
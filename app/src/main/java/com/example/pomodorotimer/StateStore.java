@@ -0,0 +1,334 @@
+package com.example.pomodorotimer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Typed, write-behind store for the timer settings and running state.
+ *
+ * Setters only update memory and mark the store dirty; a single background thread writes one
+ * snapshot of everything shortly afterwards, so a burst of mutations (e.g. a phase transition
+ * touching mode, deadline and session count) costs one write. Snapshots are written to a temp
+ * file, synced and renamed over the previous one, so a reader only ever sees a complete state.
+ * Loading is a single small read and is done synchronously in {@link #open}. A write that
+ * fails (e.g. the disk is full) is counted, reported to the write error listener and retried
+ * with exponential backoff until one succeeds; {@link #awaitDurable} only returns true once
+ * the state is really on disk.
+ *
+ * A running phase is stored as its deadline on both clocks: the monotonic one is exact within a
+ * boot, the wall-clock one survives a reboot. {@link #getDeadline(long, long)} picks whichever
+ * still applies, so a restore after process death or a reboot can fast-forward from the real
+ * time instead of resuming a stale remainder. Snapshots of the previous formats (monotonic
+ * deadline only, or without the current task) are still read.
+ *
+ * Setters and getters may be called from any thread.
+ */
+public class StateStore {
+
+    private static final int MAGIC_V1 = 0x50535331; // "PSS1"
+    private static final int SIZE_V1 = 4 + 8 + 8 + 1 + 8 + 8 + 4 + 4;
+    private static final int MAGIC_V2 = 0x50535332; // "PSS2": adds the wall-clock deadline
+    private static final int SIZE_V2 = 4 + 8 + 8 + 1 + 8 + 8 + 8 + 4 + 4;
+    private static final int MAGIC = 0x50535333; // "PSS3": adds the current task
+    private static final int SIZE = 4 + 8 + 8 + 1 + 8 + 8 + 8 + 4 + 4 + 4;
+    private static final byte FLAG_WORK = 1;
+    private static final byte FLAG_RUNNING = 2;
+
+    static final long DEFAULT_WORK_MILLIS = 25 * 60 * 1000L;
+    static final long DEFAULT_BREAK_MILLIS = 5 * 60 * 1000L;
+    static final long COALESCE_DELAY_MS = 50L;
+    static final long MAX_RETRY_DELAY_MS = 30_000L;
+    // boot anchors (wall clock minus monotonic clock) closer than this are taken to be the same
+    // boot; a reboot moves the anchor by at least the previous uptime
+    static final long SAME_BOOT_TOLERANCE_MS = 30_000L;
+
+    private static final Metrics.Histogram WRITE_MICROS = Metrics.process().histogram("state_store.write");
+    private static final Metrics.Counter MUTATIONS = Metrics.process().counter("state_store.mutations");
+    private static final Metrics.Counter WRITE_FAILURES = Metrics.process().counter("state_store.write_failures");
+
+    private final File file;
+    private final ScheduledExecutorService writer;
+    private final CRC32 crc = new CRC32();
+    private final boolean loaded;
+
+    // guarded by this
+    private long workMillis = DEFAULT_WORK_MILLIS;
+    private long breakMillis = DEFAULT_BREAK_MILLIS;
+    private boolean workMode = true;
+    private boolean running = false;
+    private long deadline = 0L;
+    private long wallDeadline = 0L; // epoch millis, 0 if unknown
+    private long remainingMillis = DEFAULT_WORK_MILLIS;
+    private int sessionsCompleted = 1;
+    private int taskId = TaskRegistry.NONE;
+    private long version = 0L;        // bumped by every mutation
+    private long durableVersion = 0L; // last version known to be on disk
+    private boolean writeScheduled = false;
+    private int writeCount = 0;
+    private int failedWrites = 0;     // consecutive, for the retry backoff
+    private Consumer<IOException> writeErrorListener;
+
+    private StateStore(File file) {
+        this.file = file;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "state-store");
+            t.setDaemon(true);
+            return t;
+        });
+        this.loaded = read();
+    }
+
+    /** Loads the snapshot (or defaults if there is none) synchronously. */
+    public static StateStore open(File file) {
+        return new StateStore(file);
+    }
+
+    /** False if no valid snapshot existed, so the caller may seed values (e.g. from an older format). */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized long getWorkMillis() {
+        return workMillis;
+    }
+
+    public synchronized long getBreakMillis() {
+        return breakMillis;
+    }
+
+    public synchronized boolean isWorkMode() {
+        return workMode;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /** Monotonic deadline of the running phase; only meaningful if {@link #isRunning()}. */
+    public synchronized long getDeadline() {
+        return deadline;
+    }
+
+    /** Wall-clock deadline of the running phase, or 0 if unknown (older snapshot). */
+    public synchronized long getWallDeadline() {
+        return wallDeadline;
+    }
+
+    /**
+     * The running phase's deadline on the monotonic clock of the current boot, given both
+     * clocks now. The stored monotonic deadline is used while the boot is the same (it is
+     * immune to wall-clock changes); after a reboot the wall-clock deadline is translated.
+     * The result may lie in the past, by as many phases as ended in between.
+     */
+    public synchronized long getDeadline(long nowElapsed, long nowEpochMillis) {
+        if (wallDeadline == 0L) return deadline;
+        long savedBoot = wallDeadline - deadline;
+        long currentBoot = nowEpochMillis - nowElapsed;
+        if (Math.abs(currentBoot - savedBoot) <= SAME_BOOT_TOLERANCE_MS) return deadline;
+        return nowElapsed + (wallDeadline - nowEpochMillis);
+    }
+
+    public synchronized long getRemainingMillis() {
+        return remainingMillis;
+    }
+
+    public synchronized int getSessionsCompleted() {
+        return sessionsCompleted;
+    }
+
+    /** {@link TaskRegistry} id of the task new work sessions are tagged with. */
+    public synchronized int getTaskId() {
+        return taskId;
+    }
+
+    public synchronized void setDurations(long workMillis, long breakMillis) {
+        if (this.workMillis == workMillis && this.breakMillis == breakMillis) return;
+        this.workMillis = workMillis;
+        this.breakMillis = breakMillis;
+        markDirty();
+    }
+
+    public synchronized void setTaskId(int taskId) {
+        if (this.taskId == taskId) return;
+        this.taskId = taskId;
+        markDirty();
+    }
+
+    public synchronized void setSessionsCompleted(int sessionsCompleted) {
+        if (this.sessionsCompleted == sessionsCompleted) return;
+        this.sessionsCompleted = sessionsCompleted;
+        markDirty();
+    }
+
+    /**
+     * Records the phase and either its running deadline (monotonic and wall-clock) or its
+     * paused remaining time.
+     */
+    public synchronized void setTimer(boolean workMode, boolean running, long deadline, long wallDeadline, long remainingMillis) {
+        if (this.workMode == workMode && this.running == running && this.deadline == deadline
+                && this.wallDeadline == wallDeadline && this.remainingMillis == remainingMillis) return;
+        this.workMode = workMode;
+        this.running = running;
+        this.deadline = deadline;
+        this.wallDeadline = wallDeadline;
+        this.remainingMillis = remainingMillis;
+        markDirty();
+    }
+
+    /**
+     * Blocks until every mutation made before this call is on disk.
+     *
+     * @return false if that did not happen within the timeout
+     */
+    public boolean awaitDurable(long timeoutMillis) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (this) {
+            long target = version;
+            if (durableVersion < target && !writer.isShutdown()) {
+                // skip the coalescing delay; the caller is waiting
+                writer.execute(this::write);
+            }
+            while (durableVersion < target) {
+                long waitMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                if (waitMillis <= 0) return false;
+                wait(waitMillis);
+            }
+            return true;
+        }
+    }
+
+    /** Called on the writer thread with every failed write, before it is retried. */
+    public synchronized void setWriteErrorListener(Consumer<IOException> listener) {
+        writeErrorListener = listener;
+    }
+
+    /** Number of snapshots written so far, for tests. */
+    synchronized int getWriteCount() {
+        return writeCount;
+    }
+
+    /** Failed writes since the last successful one, for tests. */
+    synchronized int getFailedWrites() {
+        return failedWrites;
+    }
+
+    /**
+     * Stops accepting writes without blocking. Pending state is still written by the writer
+     * thread before it exits; use {@link #awaitDurable} first to wait for it.
+     */
+    public void close() {
+        synchronized (this) {
+            if (writer.isShutdown()) return;
+            if (durableVersion < version) writer.execute(this::write);
+            writer.shutdown();
+        }
+    }
+
+    // caller holds the lock
+    private void markDirty() {
+        version++;
+        MUTATIONS.increment();
+        if (writeScheduled || writer.isShutdown()) return;
+        writeScheduled = true;
+        writer.schedule(this::write, COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Runs on the writer thread: snapshot under the lock, then do the I/O without holding it
+    private void write() {
+        ByteBuffer out = ByteBuffer.allocate(SIZE);
+        long snapshotVersion;
+        synchronized (this) {
+            writeScheduled = false;
+            if (durableVersion >= version) return;
+            snapshotVersion = version;
+            out.putInt(MAGIC);
+            out.putLong(workMillis);
+            out.putLong(breakMillis);
+            out.put((byte) ((workMode ? FLAG_WORK : 0) | (running ? FLAG_RUNNING : 0)));
+            out.putLong(deadline);
+            out.putLong(wallDeadline);
+            out.putLong(remainingMillis);
+            out.putInt(sessionsCompleted);
+            out.putInt(taskId);
+        }
+        crc.reset();
+        crc.update(out.array(), 0, out.position());
+        out.putInt((int) crc.getValue());
+        File tmp = new File(file.getPath() + ".tmp");
+        long start = System.nanoTime();
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                fos.write(out.array());
+                fos.getFD().sync();
+            }
+            if (!tmp.renameTo(file)) throw new IOException("Cannot replace " + file);
+        } catch (IOException e) {
+            onWriteFailed(e);
+            return;
+        }
+        WRITE_MICROS.recordSinceNanos(start);
+        synchronized (this) {
+            if (snapshotVersion > durableVersion) durableVersion = snapshotVersion;
+            writeCount++;
+            failedWrites = 0;
+            notifyAll();
+        }
+    }
+
+    // Writer thread: the state is still dirty, so try again after 2x, 4x, ... the coalescing delay
+    private void onWriteFailed(IOException e) {
+        WRITE_FAILURES.increment();
+        Consumer<IOException> listener;
+        synchronized (this) {
+            listener = writeErrorListener;
+            failedWrites++;
+            if (!writeScheduled && !writer.isShutdown()) {
+                writeScheduled = true;
+                long delay = Math.min(MAX_RETRY_DELAY_MS, COALESCE_DELAY_MS << Math.min(failedWrites, 20));
+                writer.schedule(this::write, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (listener != null) listener.accept(e);
+    }
+
+    private boolean read() {
+        if (!file.isFile()) return false;
+        int size = (int) Math.min(file.length(), SIZE + 1);
+        if (size != SIZE && size != SIZE_V2 && size != SIZE_V1) return false;
+        byte[] bytes = new byte[size];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.readFully(bytes);
+        } catch (IOException e) {
+            return false;
+        }
+        crc.update(bytes, 0, size - 4);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        boolean v1 = size == SIZE_V1;
+        boolean v2 = size == SIZE_V2;
+        if (in.getInt() != (v1 ? MAGIC_V1 : v2 ? MAGIC_V2 : MAGIC) || in.getInt(size - 4) != (int) crc.getValue()) return false;
+        long work = in.getLong();
+        long brk = in.getLong();
+        if (work <= 0 || brk <= 0) return false;
+        byte flags = in.get();
+        synchronized (this) {
+            workMillis = work;
+            breakMillis = brk;
+            workMode = (flags & FLAG_WORK) != 0;
+            running = (flags & FLAG_RUNNING) != 0;
+            deadline = in.getLong();
+            wallDeadline = v1 ? 0L : in.getLong();
+            remainingMillis = in.getLong();
+            sessionsCompleted = in.getInt();
+            taskId = v1 || v2 ? TaskRegistry.NONE : in.getInt();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.pomodorotimer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Task and project labels, interned to compact int ids for {@link SessionRecord}'s tag.
+ *
+ * Every label is stored once, in an append-only file where its position is its id (1, 2, ...;
+ * 0 means no task), so records and {@link FocusStats} only ever carry the int. Labels that
+ * differ only in case or spacing intern to the same id; the first spelling is kept.
+ *
+ * Lookups by prefix go through a sorted index of every word start of every label, so the
+ * picker finds "report" in "Write report" with a binary search plus one step per match,
+ * however many tasks exist.
+ *
+ * File layout: the magic, then per label a short UTF-8 length, the bytes and a CRC32 of both.
+ * A torn last entry is cut off on load and counted in {@code task_registry.dropped_bytes}.
+ * Not thread-safe; use it from the thread that owns the history.
+ */
+public class TaskRegistry {
+
+    /** Tag of sessions without a task. */
+    public static final int NONE = 0;
+    static final int MAX_LABEL_LENGTH = 200;
+
+    private static final int MAGIC = 0x50544b31; // "PTK1"
+    private static final Metrics.Counter DROPPED_BYTES = Metrics.process().counter("task_registry.dropped_bytes");
+
+    /** One interned label. */
+    public static final class Task {
+        public final int id;
+        public final String label;
+
+        Task(int id, String label) {
+            this.id = id;
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final File file;
+    private final CRC32 crc = new CRC32();
+    private final List<String> labels = new ArrayList<>(); // labels.get(id - 1)
+    private final Map<String, Integer> ids = new HashMap<>(); // by key()
+    // prefix index: folded label suffixes starting at a word, sorted, with their task ids
+    private String[] words = new String[16];
+    private int[] wordIds = new int[16];
+    private int wordCount;
+
+    private TaskRegistry(File file) {
+        this.file = file;
+    }
+
+    /** Loads the labels; a missing file is an empty registry. */
+    public static TaskRegistry open(File file) throws IOException {
+        TaskRegistry registry = new TaskRegistry(file);
+        registry.read();
+        return registry;
+    }
+
+    public int size() {
+        return labels.size();
+    }
+
+    /** The label of {@code id}, or null for {@link #NONE} and unknown ids. */
+    public String getLabel(int id) {
+        return id >= 1 && id <= labels.size() ? labels.get(id - 1) : null;
+    }
+
+    /** The id of {@code label}, or {@link #NONE} if it was never interned. */
+    public int find(String label) {
+        Integer id = ids.get(key(normalize(label)));
+        return id != null ? id : NONE;
+    }
+
+    /**
+     * The id of {@code label}, stored first if it is new.
+     *
+     * @throws IllegalArgumentException if the label is blank or longer than {@link #MAX_LABEL_LENGTH}
+     */
+    public int intern(String label) throws IOException {
+        String normalized = normalize(label);
+        if (normalized.isEmpty() || normalized.length() > MAX_LABEL_LENGTH) throw new IllegalArgumentException("bad task label");
+        Integer existing = ids.get(key(normalized));
+        if (existing != null) return existing;
+        append(normalized);
+        return add(normalized);
+    }
+
+    /**
+     * Up to {@code limit} tasks with a word starting with {@code prefix} (case-insensitive), in
+     * order of the matching word. An empty prefix lists tasks from the start of the index.
+     */
+    public List<Task> search(String prefix, int limit) {
+        String folded = key(normalize(prefix));
+        List<Task> found = new ArrayList<>(Math.min(limit, 16));
+        for (int i = lowerBound(folded); i < wordCount && found.size() < limit && words[i].startsWith(folded); i++) {
+            int id = wordIds[i];
+            if (!contains(found, id)) found.add(new Task(id, labels.get(id - 1)));
+        }
+        return found;
+    }
+
+    private int add(String label) {
+        labels.add(label);
+        int id = labels.size();
+        String folded = key(label);
+        ids.put(folded, id);
+        for (int i = 0; i < folded.length(); i++) {
+            if (i == 0 || !Character.isLetterOrDigit(folded.charAt(i - 1)) && Character.isLetterOrDigit(folded.charAt(i))) {
+                indexWord(folded.substring(i), id);
+            }
+        }
+        return id;
+    }
+
+    // Inserts into the sorted word arrays; O(words), but labels are added rarely and searched often
+    private void indexWord(String word, int id) {
+        if (wordCount == words.length) {
+            words = Arrays.copyOf(words, wordCount * 2);
+            wordIds = Arrays.copyOf(wordIds, wordCount * 2);
+        }
+        int at = lowerBound(word);
+        System.arraycopy(words, at, words, at + 1, wordCount - at);
+        System.arraycopy(wordIds, at, wordIds, at + 1, wordCount - at);
+        words[at] = word;
+        wordIds[at] = id;
+        wordCount++;
+    }
+
+    // First index whose word is >= key
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = wordCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (words[mid].compareTo(key) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static boolean contains(List<Task> tasks, int id) {
+        for (Task t : tasks) if (t.id == id) return true;
+        return false;
+    }
+
+    private static String normalize(String label) {
+        return label == null ? "" : label.trim().replaceAll("\\s+", " ");
+    }
+
+    private static String key(String normalized) {
+        return normalized.toLowerCase(Locale.ROOT);
+    }
+
+    private void append(String label) throws IOException {
+        byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(2 + bytes.length + 4);
+        entry.putShort((short) bytes.length).put(bytes);
+        crc.reset();
+        crc.update(entry.array(), 0, entry.position());
+        entry.putInt((int) crc.getValue());
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() == 0) raf.writeInt(MAGIC);
+            raf.seek(raf.length());
+            raf.write(entry.array());
+        }
+    }
+
+    private void read() throws IOException {
+        if (!file.isFile()) return;
+        byte[] bytes;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (bytes.length < 4 || in.getInt() != MAGIC) throw new IOException("Not a task registry: " + file);
+        int valid = in.position();
+        while (in.remaining() >= 2) {
+            int start = in.position();
+            int length = in.getShort() & 0xFFFF;
+            if (in.remaining() < length + 4) break;
+            crc.reset();
+            crc.update(bytes, start, 2 + length);
+            String label = new String(bytes, in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            if (in.getInt() != (int) crc.getValue()) break;
+            add(label);
+            valid = in.position();
+        }
+        if (valid < bytes.length) {
+            // a torn append: drop it so the next label gets the id it was meant to have
+            DROPPED_BYTES.add(bytes.length - valid);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(valid);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.pomodorotimer;
+
+/**
+ * Works out when the UI next has something new to show, so the main thread can sleep until
+ * then instead of polling at a fixed rate.
+ *
+ * A running countdown only changes on screen when the displayed second rolls over (aligned to
+ * the deadline, since the remaining time is derived from it), when a progress display moves to
+ * its next step, or when a sound cue is due. The progress ring schedules its own frames from
+ * {@link #untilNextProgressStep(long, long, int)}, so the text tick only needs seconds and cues.
+ */
+public final class TickScheduler {
+
+    /** Passed as cue position when no cue is pending. */
+    public static final long NO_CUE = -1L;
+
+    private TickScheduler() {}
+
+    /**
+     * Delay until the displayed second rolls over or the next cue is due.
+     *
+     * @param remainingMillis time left in the phase
+     * @param cueAtRemaining  remaining time at which the next cue must fire, or {@link #NO_CUE}
+     * @return delay in milliseconds until the next tick, at least 1
+     */
+    public static long nextTickDelay(long remainingMillis, long cueAtRemaining) {
+        if (remainingMillis <= 0) return 1L;
+        // floor(remaining / 1000) is shown, so it changes just after the next whole second
+        long delay = remainingMillis % 1000L + 1L;
+        if (cueAtRemaining >= 0 && remainingMillis > cueAtRemaining) {
+            delay = Math.min(delay, remainingMillis - cueAtRemaining);
+        }
+        return Math.max(1L, delay);
+    }
+
+    /**
+     * Like {@link #nextTickDelay(long, long)}, also waking when a percent progress display changes.
+     *
+     * @param remainingMillis time left in the phase
+     * @param phaseMillis     full phase duration, used for progress steps
+     * @param cueAtRemaining  remaining time at which the next cue must fire, or {@link #NO_CUE}
+     * @return delay in milliseconds until the next tick, at least 1
+     */
+    public static long nextTickDelay(long remainingMillis, long phaseMillis, long cueAtRemaining) {
+        if (remainingMillis <= 0) return 1L;
+        return Math.min(nextTickDelay(remainingMillis, cueAtRemaining), untilNextProgressStep(remainingMillis, phaseMillis, 100));
+    }
+
+    /**
+     * Progress is shown as round(elapsed * steps / phase); returns the delay until that value
+     * changes, or {@link Long#MAX_VALUE} once it is complete.
+     */
+    public static long untilNextProgressStep(long remainingMillis, long phaseMillis, int steps) {
+        if (phaseMillis <= 0) return Long.MAX_VALUE;
+        long elapsed = phaseMillis - remainingMillis;
+        long step = Math.round((double) elapsed * steps / phaseMillis);
+        if (step >= steps) return Long.MAX_VALUE;
+        // the value rounds up to step + 1 once elapsed reaches (step + 0.5) steps
+        long boundary = (long) Math.ceil((step + 0.5) * phaseMillis / steps);
+        return Math.max(1L, boundary - elapsed);
+    }
+}
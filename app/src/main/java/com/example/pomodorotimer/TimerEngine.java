@@ -0,0 +1,219 @@
+package com.example.pomodorotimer;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Deadline-based Pomodoro countdown with no Android dependencies.
+ *
+ * While running, the engine only stores the monotonic deadline of the current phase; the
+ * remaining time is always derived from {@code deadline - clock.now()}. Consecutive phases are
+ * chained from the previous deadline rather than from the moment the expiry was observed, so
+ * late or missing ticks never accumulate into drift.
+ *
+ * The engine does not schedule anything itself: the host calls {@link #update()} whenever it
+ * wants the current state (a UI tick, an alarm, ...) and phase transitions are reported to the
+ * registered {@link Listener}s from inside that call.
+ */
+public class TimerEngine {
+
+    public enum Phase { WORK, BREAK }
+
+    /** Monotonic millisecond time source (SystemClock.elapsedRealtime() on device). */
+    public interface Clock {
+        long now();
+    }
+
+    public interface Listener {
+        /** A phase began from its full duration (explicit start, skip or auto-chain). */
+        default void onPhaseStarted(Phase phase) {}
+
+        /**
+         * A phase ended, either by reaching its deadline or because it was skipped.
+         * {@code elapsedMillis} is the running time spent in it (pauses excluded).
+         */
+        default void onPhaseFinished(Phase phase, long elapsedMillis, boolean skipped) {}
+
+        /** The engine was started, paused or resumed. */
+        default void onRunningChanged(boolean running) {}
+    }
+
+    private final Clock clock;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private long workMillis;
+    private long breakMillis;
+
+    private Phase phase = Phase.WORK;
+    private boolean running = false;
+    // true once the current phase has been started, so resume() does not re-announce it
+    private boolean phaseBegun = false;
+    // valid while running
+    private long deadline;
+    // valid while not running
+    private long remaining;
+
+    public TimerEngine(Clock clock, long workMillis, long breakMillis) {
+        if (workMillis <= 0 || breakMillis <= 0) throw new IllegalArgumentException("durations must be positive");
+        this.clock = clock;
+        this.workMillis = workMillis;
+        this.breakMillis = breakMillis;
+        this.remaining = workMillis;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Starts the current phase from its full duration. */
+    public void start() {
+        boolean wasRunning = running;
+        running = true;
+        beginPhase(clock.now());
+        if (!wasRunning) {
+            for (Listener l : listeners) l.onRunningChanged(true);
+        }
+    }
+
+    /** Continues a paused phase; starts it if it was never started. */
+    public void resume() {
+        if (running) return;
+        if (!phaseBegun) {
+            start();
+            return;
+        }
+        deadline = clock.now() + remaining;
+        running = true;
+        for (Listener l : listeners) l.onRunningChanged(true);
+    }
+
+    public void pause() {
+        if (!running) return;
+        update();
+        remaining = Math.max(0L, deadline - clock.now());
+        running = false;
+        for (Listener l : listeners) l.onRunningChanged(false);
+    }
+
+    /** Ends the current phase early and moves to the next one, which starts if the engine is running. */
+    public void skip() {
+        Phase finished = phase;
+        long elapsed = phaseBegun ? durationOf(finished) - getRemainingMillis() : 0L;
+        phase = next(finished);
+        for (Listener l : listeners) l.onPhaseFinished(finished, elapsed, true);
+        if (running) {
+            beginPhase(clock.now());
+        } else {
+            phaseBegun = false;
+            remaining = durationOf(phase);
+        }
+    }
+
+    /**
+     * Processes every phase whose deadline has passed and returns the time left in the
+     * current phase. Safe to call as often or as rarely as the host likes.
+     */
+    public long update() {
+        if (!running) return remaining;
+        long now = clock.now();
+        while (now >= deadline) {
+            Phase finished = phase;
+            long elapsed = durationOf(finished);
+            phase = next(finished);
+            deadline += durationOf(phase);
+            for (Listener l : listeners) l.onPhaseFinished(finished, elapsed, false);
+            for (Listener l : listeners) l.onPhaseStarted(phase);
+            // a listener may have paused or skipped; stop chaining in that case
+            if (!running) return remaining;
+        }
+        return deadline - now;
+    }
+
+    /** Time left in the current phase without processing transitions. */
+    public long getRemainingMillis() {
+        return running ? Math.max(0L, deadline - clock.now()) : remaining;
+    }
+
+    /** Monotonic deadline of the current phase; only meaningful while running. */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /** Fraction of the current phase that has elapsed, in [0, 1]. */
+    public float getProgress() {
+        long total = getPhaseDurationMillis();
+        float fraction = (float) (total - getRemainingMillis()) / (float) total;
+        return Math.max(0f, Math.min(1f, fraction));
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isWorkMode() {
+        return phase == Phase.WORK;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getWorkMillis() {
+        return workMillis;
+    }
+
+    public long getBreakMillis() {
+        return breakMillis;
+    }
+
+    public long getPhaseDurationMillis() {
+        return durationOf(phase);
+    }
+
+    /**
+     * Changes the phase lengths. A running phase keeps its deadline; an idle or paused phase
+     * is reset to the new full duration.
+     */
+    public void setDurations(long workMillis, long breakMillis) {
+        if (workMillis <= 0 || breakMillis <= 0) throw new IllegalArgumentException("durations must be positive");
+        this.workMillis = workMillis;
+        this.breakMillis = breakMillis;
+        if (!running) {
+            phaseBegun = false;
+            remaining = durationOf(phase);
+        }
+    }
+
+    /** Restores a stopped engine to the given phase and remaining time (e.g. after a config change). */
+    public void restore(Phase phase, long remainingMillis, boolean begun) {
+        this.running = false;
+        this.phase = phase;
+        this.phaseBegun = begun;
+        this.remaining = Math.max(0L, Math.min(remainingMillis, durationOf(phase)));
+    }
+
+    /** Restores a running engine whose current phase ends at the given monotonic deadline. */
+    public void restoreRunning(Phase phase, long deadline) {
+        this.running = true;
+        this.phase = phase;
+        this.phaseBegun = true;
+        this.deadline = deadline;
+    }
+
+    private void beginPhase(long now) {
+        deadline = now + durationOf(phase);
+        phaseBegun = true;
+        for (Listener l : listeners) l.onPhaseStarted(phase);
+    }
+
+    private long durationOf(Phase p) {
+        return p == Phase.WORK ? workMillis : breakMillis;
+    }
+
+    private static Phase next(Phase p) {
+        return p == Phase.WORK ? Phase.BREAK : Phase.WORK;
+    }
+}
@@ -0,0 +1,1085 @@
+package com.example.pomodorotimer;
+
+import android.app.AlarmManager;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.ServiceInfo;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+import android.provider.OpenableColumns;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Foreground service that owns the running Pomodoro.
+ *
+ * The service keeps the {@link TimerEngine} deadline and does not tick: while the timer runs
+ * it arms a single exact alarm for the next moment something has to happen (a sound cue or
+ * the end of the phase), handles it, and arms the next one. No wakelock is held in between.
+ * State is persisted on every change so a killed process resumes from the same deadline.
+ *
+ * The engine, cues, timer station and persisted state belong to one engine thread; after
+ * every change it publishes an immutable {@link TimerSnapshot}, which other threads read
+ * without locking. Notifications, the widget and the tile are updated from snapshots on an
+ * effects thread, sounds play on the {@link SoundCues} thread and history is written on the
+ * I/O executor, so no binder call or disk access delays a transition or a frame. Commands from
+ * the UI and from intents are posted to the engine thread.
+ *
+ * {@link MainActivity} binds to it and only renders the latest snapshot.
+ */
+public class TimerService extends Service {
+
+    public static final String ACTION_WAKEUP = "com.example.pomodorotimer.action.WAKEUP";
+    // sent by the home-screen widget and the quick-settings tile
+    public static final String ACTION_START = "com.example.pomodorotimer.action.START";
+    public static final String ACTION_PAUSE = "com.example.pomodorotimer.action.PAUSE";
+    public static final String ACTION_TOGGLE = "com.example.pomodorotimer.action.TOGGLE";
+    public static final String ACTION_SKIP = "com.example.pomodorotimer.action.SKIP";
+
+    // Per-transition alert channel of earlier versions; deleted on startup
+    private static final String LEGACY_ALERTS_CHANNEL_ID = "pomodoro_channel";
+    private static final String ONGOING_CHANNEL_ID = "pomodoro_ongoing";
+    private static final int ONGOING_NOTIFICATION_ID = 1;
+    // In-place updates of the ongoing notification are coalesced to at most one per interval
+    private static final long MIN_NOTIFICATION_INTERVAL_MS = 1000L;
+    // Due times are rounded up to this, so a cue may play up to one tick late (well under a
+    // frame); the wheel only wakes the engine thread for due times, never per tick
+    private static final long STATION_TICK_MS = 10L;
+
+    // Sounds and haptics around phase boundaries. The break-start sound belongs to the break
+    // but plays 1.5 s before it begins (or as it begins, if the work phase was skipped).
+    static final List<CueScheduler.Cue> CUES = Arrays.asList(
+            new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.START, 0L, CueScheduler.Kind.SOUND, SoundCues.Cue.WORK_START.name()),
+            new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.END, 0L, CueScheduler.Kind.SOUND, SoundCues.Cue.WORK_END.name()),
+            new CueScheduler.Cue(TimerEngine.Phase.BREAK, CueScheduler.Anchor.START, -1500L, CueScheduler.Kind.SOUND, SoundCues.Cue.BREAK_START.name()),
+            new CueScheduler.Cue(TimerEngine.Phase.BREAK, CueScheduler.Anchor.END, -2000L, CueScheduler.Kind.SOUND, SoundCues.Cue.BREAK_END.name()),
+            new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.END, 0L, CueScheduler.Kind.VIBRATION, "finish"),
+            new CueScheduler.Cue(TimerEngine.Phase.BREAK, CueScheduler.Anchor.END, 0L, CueScheduler.Kind.VIBRATION, "finish"));
+
+    // SharedPreferences used before the state store; only read once to migrate settings
+    private static final String PREFS = "pomodoro_prefs";
+    private static final String KEY_WORK = "work_minutes";
+    private static final String KEY_BREAK = "break_minutes";
+    private static final String KEY_IS_WORK = "is_work";
+    private static final String KEY_SESSIONS = "sessions_completed";
+
+    private static final Metrics.Histogram ALARM_LATENESS = Metrics.process().histogram("alarm.lateness");
+    private static final Metrics.Counter ALARM_WAKEUPS = Metrics.process().counter("alarm.wakeups");
+    private static final Metrics.Histogram PHASE_STARTED = Metrics.process().histogram("transition.started");
+    private static final Metrics.Histogram PHASE_FINISHED = Metrics.process().histogram("transition.finished");
+    private static final Metrics.Counter NOTIFICATION_POSTS = Metrics.process().counter("notification.posts");
+    private static final Metrics.Counter GLANCE_UNCHANGED = Metrics.process().counter("glance.unchanged");
+    private static final Metrics.Counter CAUGHT_UP_PHASES = Metrics.process().counter("restore.caught_up_phases");
+    private static final Metrics.Counter SNAPSHOTS = Metrics.process().counter("engine.snapshots");
+
+    public class LocalBinder extends Binder {
+        public TimerService getService() {
+            return TimerService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final TimerEngine engine = new TimerEngine(SystemClock::elapsedRealtime, 25 * 60 * 1000L, 5 * 60 * 1000L);
+
+    // Owns engine, cueScheduler, station, stateStore and the history bookkeeping once onCreate
+    // restored them; everything else reads the published snapshot
+    private final HandlerThread engineThread = new HandlerThread("timer-engine", Process.THREAD_PRIORITY_FOREGROUND);
+    private Handler engineHandler;
+    private final AtomicReference<TimerSnapshot> snapshot = new AtomicReference<>();
+    private final CopyOnWriteArrayList<Consumer<TimerSnapshot>> snapshotListeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean snapshotDispatchQueued = new AtomicBoolean();
+    private final Runnable dispatchSnapshot = () -> {
+        snapshotDispatchQueued.set(false);
+        TimerSnapshot current = snapshot.get();
+        for (Consumer<TimerSnapshot> listener : snapshotListeners) listener.accept(current);
+    };
+    // Wakes the engine thread at the next cue or phase end while the process is awake; the
+    // alarm covers deep sleep
+    private final Runnable engineTick = () -> {
+        tick();
+        publish();
+    };
+
+    // Notifications, widget, tile and vibration; the fields marked "effects thread" belong to it
+    private final HandlerThread effectsThread = new HandlerThread("timer-effects", Process.THREAD_PRIORITY_BACKGROUND);
+    private Handler effectsHandler;
+
+    private volatile SoundCues soundCues;
+    private AlarmManager alarmManager;
+    private PendingIntent wakeupIntent;
+    private boolean inForeground = false; // effects thread
+    // The one ongoing notification: built once, then only its mode, message and countdown base change (effects thread)
+    private NotificationCompat.Builder ongoingBuilder;
+    private String transitionMessage; // last "phase complete" message, null after a skip (effects thread)
+    private boolean notificationUpdateQueued = false; // effects thread
+    private long lastNotificationPostAt = 0L; // uptimeMillis, effects thread
+    private final Runnable notificationUpdate = () -> {
+        notificationUpdateQueued = false;
+        postOngoingNotification();
+    };
+    // elapsedRealtime the wakeup alarm is armed for, 0 if none (used to measure alarm lateness; engine thread)
+    private long armedWakeupAt = 0L;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Widget and tile: pushed on state changes only, coalesced like the notification
+    private static volatile GlanceState liveGlance; // null until a service instance has restored its state
+    private GlanceState publishedGlance; // last state this instance pushed, effects thread
+    private boolean glanceUpdateQueued = false; // effects thread
+    private final Runnable glanceUpdate = () -> {
+        glanceUpdateQueued = false;
+        publishGlance();
+    };
+
+    // Session history is only touched on this thread, so the main thread never waits on disk
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private SessionLog sessionLog; // confined to ioExecutor
+    private FocusStats focusStats; // confined to ioExecutor, updated with every record
+    private TaskRegistry tasks; // confined to ioExecutor
+    private boolean historyFlushQueued = false; // engine thread
+    // wall-clock start of the current phase, 0 if unknown (e.g. after a process restart; engine thread)
+    private long phaseStartEpochMillis = 0L;
+
+    // Settings, session count and running deadline; writes are coalesced off the main thread
+    private StateStore stateStore;
+
+    // Startup work; only the state restore runs before the activity's first frame
+    private StartupPipeline startup;
+    private static final String STARTUP_CHANNELS = "notification_channels";
+    private static final String STARTUP_AUDIO = "audio_preload";
+
+    // Registered on the engine before engineListener, so wakeups are armed for the replanned cues
+    private final CueScheduler cueScheduler = new CueScheduler(engine, SystemClock::elapsedRealtime, CUES, this::onCue);
+
+    // The Pomodoro and its cues are the only entry of a timing wheel driven by one alarm; the entry
+    // is registered before engineListener so it re-arms before the alarm is set
+    private final TimerStation station = new TimerStation(SystemClock::elapsedRealtime, STATION_TICK_MS);
+    private TimerStation.Entry pomodoro;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        engineThread.start();
+        engineHandler = new Handler(engineThread.getLooper());
+        effectsThread.start();
+        effectsHandler = new Handler(effectsThread.getLooper());
+        alarmManager = getSystemService(AlarmManager.class);
+        wakeupIntent = actionIntent(this, ACTION_WAKEUP);
+        // Channels and sounds are only needed once something is shown or played; they are pulled
+        // forward with startup.ensure() if that happens before the main thread goes idle.
+        // The state is restored here, on the main thread, so the first bound frame shows it; the
+        // engine thread owns it from the first task posted to it.
+        startup = new StartupPipeline(StartupTrace.process(), this::runWhenIdle, ioExecutor)
+                .add(StartupPipeline.Stage.BEFORE_FIRST_FRAME, "state_restore", () -> {
+                    loadState();
+                    catchUp();
+                    engine.addListener(cueScheduler);
+                    cueScheduler.reschedule();
+                    // cues that came due while the process was dead are not replayed
+                    cueScheduler.discardDue(SystemClock.elapsedRealtime());
+                    pomodoro = station.add(engine, cueScheduler);
+                    engine.addListener(engineListener);
+                    // published here, not by the engine tick, so a client bound right after
+                    // onCreate gets the restored state with its first listener call
+                    publish();
+                    effects(this::requestGlanceUpdate);
+                    engineHandler.post(engineTick);
+                })
+                .add(StartupPipeline.Stage.IDLE, STARTUP_CHANNELS, this::createNotificationChannels)
+                .add(StartupPipeline.Stage.IDLE, STARTUP_AUDIO, () -> soundCues = new SoundCues(this, soundPacks()))
+                .add(StartupPipeline.Stage.BACKGROUND, "history_load", this::warmHistory);
+        startup.start();
+    }
+
+    private void runWhenIdle(Runnable task) {
+        mainHandler.getLooper().getQueue().addIdleHandler(() -> {
+            task.run();
+            return false;
+        });
+    }
+
+    /** A PendingIntent that delivers {@code action} to the service, started in the foreground. */
+    static PendingIntent actionIntent(Context context, String action) {
+        Intent intent = new Intent(context, TimerService.class).setAction(action);
+        int flags = PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT;
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? PendingIntent.getForegroundService(context, 0, intent, flags)
+                : PendingIntent.getService(context, 0, intent, flags);
+    }
+
+    /**
+     * What the widget and tile should show: the live state, or the persisted one while no
+     * service instance is running (e.g. the widget host asks after the process died).
+     */
+    static GlanceState currentGlance(Context context) {
+        GlanceState live = liveGlance;
+        if (live != null) return live;
+        StateStore store = StateStore.open(new File(context.getFilesDir(), "timer_state.bin"));
+        try {
+            TimerEngine.Phase phase = store.isWorkMode() ? TimerEngine.Phase.WORK : TimerEngine.Phase.BREAK;
+            long deadline = store.getDeadline(SystemClock.elapsedRealtime(), System.currentTimeMillis());
+            long remaining = store.isRunning() ? 0L : store.getRemainingMillis();
+            return new GlanceState(phase, store.isRunning(), deadline, remaining, store.getSessionsCompleted());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String action = intent != null ? intent.getAction() : null;
+        long receivedAt = SystemClock.elapsedRealtime();
+        // Every intent comes through startForegroundService (start(), the widget, the tile, the
+        // alarm), which must be answered with startForeground even if the command then pauses
+        // and stops the service; this is queued ahead of the command's own effects. Only a
+        // sticky restart has no intent and was not started in the foreground.
+        if (intent != null) effectsHandler.post(this::goForeground);
+        runOnEngine(() -> handleCommand(action, startId, receivedAt));
+        // handleCommand stops the service if no timer runs; until then it is restarted if killed
+        return START_STICKY;
+    }
+
+    // engine thread
+    private void handleCommand(String action, int startId, long receivedAt) {
+        if (ACTION_WAKEUP.equals(action) && armedWakeupAt != 0L) {
+            ALARM_WAKEUPS.increment();
+            ALARM_LATENESS.record((receivedAt - armedWakeupAt) * 1000L);
+            armedWakeupAt = 0L;
+        }
+        if (ACTION_START.equals(action) || (ACTION_TOGGLE.equals(action) && !engine.isRunning())) {
+            engine.resume();
+        } else if (ACTION_PAUSE.equals(action) || ACTION_TOGGLE.equals(action)) {
+            engine.pause();
+        } else if (ACTION_SKIP.equals(action)) {
+            engine.skip();
+        }
+        tick();
+        boolean running = engine.isRunning();
+        effects(() -> {
+            // Started (not just bound) services must be foreground while the timer runs
+            if (running) goForeground();
+            if (!running) {
+                leaveForeground();
+                stopSelf(startId);
+            }
+        });
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        startup.cancel();
+        snapshotListeners.clear();
+        mainHandler.removeCallbacks(dispatchSnapshot);
+        // after the commands already queued, which may still record sessions
+        engineHandler.post(() -> {
+            engineHandler.removeCallbacks(engineTick);
+            engine.removeListener(engineListener);
+            station.remove(pomodoro);
+            engine.removeListener(cueScheduler);
+            if (!engine.isRunning()) alarmManager.cancel(wakeupIntent);
+            stateStore.close();
+            ioExecutor.execute(() -> {
+                try {
+                    if (sessionLog != null) sessionLog.close();
+                } catch (IOException e) {
+                    android.util.Log.w("TimerService", "Failed to close session history", e);
+                }
+            });
+            ioExecutor.shutdown();
+        });
+        engineThread.quitSafely();
+        effectsHandler.removeCallbacks(notificationUpdate);
+        effectsHandler.removeCallbacks(glanceUpdate);
+        effectsThread.quitSafely();
+        SoundCues cues = soundCues;
+        if (cues != null) cues.release();
+    }
+
+    /** The latest published state of the Pomodoro; never blocks. Null until onCreate restored it. */
+    public TimerSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Calls {@code listener} on the main thread with the current snapshot, then with the latest
+     * one after each change. Bursts of changes are delivered once.
+     */
+    public void addSnapshotListener(Consumer<TimerSnapshot> listener) {
+        snapshotListeners.addIfAbsent(listener);
+        TimerSnapshot current = snapshot.get();
+        if (current != null) listener.accept(current);
+    }
+
+    public void removeSnapshotListener(Consumer<TimerSnapshot> listener) {
+        snapshotListeners.remove(listener);
+    }
+
+    // Runs task on the engine thread, which owns the engine and the station, and publishes the resulting state
+    private void runOnEngine(Runnable task) {
+        engineHandler.post(() -> {
+            task.run();
+            publish();
+        });
+    }
+
+    /** Starts or resumes the current phase and keeps the service alive until it is paused. */
+    public void start() {
+        TimerSnapshot current = snapshot.get();
+        if (current != null && current.running) return;
+        ContextCompat.startForegroundService(this, new Intent(this, TimerService.class));
+        runOnEngine(engine::resume);
+    }
+
+    public void pause() {
+        runOnEngine(engine::pause);
+    }
+
+    // Processes expired phases and due cues of every timer, then re-arms the wakeup (engine thread)
+    private void tick() {
+        engine.update();
+        station.advance();
+        armWakeup();
+    }
+
+    // Publishes the Pomodoro state if it changed; returns the current snapshot (engine thread, or
+    // the main thread during state_restore, before the engine thread owns the state)
+    private TimerSnapshot publish() {
+        TimerSnapshot previous = snapshot.get();
+        TimerSnapshot current = TimerSnapshot.of(engine, stateStore.getSessionsCompleted(), previous == null ? 1L : previous.version + 1);
+        if (current.sameState(previous)) return previous;
+        // the engine thread is the only writer, so a plain set cannot lose an update
+        snapshot.set(current);
+        liveGlance = current.toGlance();
+        SNAPSHOTS.increment();
+        if (snapshotDispatchQueued.compareAndSet(false, true)) mainHandler.post(dispatchSnapshot);
+        return current;
+    }
+
+    // Runs task on the effects thread after publishing, so it sees the state that caused it (engine thread)
+    private void effects(Runnable task) {
+        publish();
+        effectsHandler.post(task);
+    }
+
+    private void onCue(CueScheduler.Cue cue, long lateMillis) {
+        switch (cue.kind) {
+            case SOUND:
+                playEventSound(SoundCues.Cue.valueOf(cue.name), SystemClock.elapsedRealtime() - lateMillis);
+                break;
+            case VIBRATION:
+                effectsHandler.post(this::vibrateOnFinish);
+                break;
+            case NOTIFICATION:
+                effects(this::requestNotificationUpdate);
+                break;
+        }
+    }
+
+    /** Focus totals up to today, read from the rollup without scanning the history. */
+    public static final class StatsSummary {
+        public final long todayMillis;
+        public final long weekMillis; // the last 7 days, today included
+        public final long monthMillis; // the last 30 days, today included
+        public final int streakDays;
+        public final float completionRate;
+
+        StatsSummary(FocusStats stats, long today) {
+            todayMillis = stats.dayFocusMillis(today);
+            weekMillis = stats.focusMillis(today - 6, today);
+            monthMillis = stats.focusMillis(today - 29, today);
+            streakDays = stats.currentStreak(today);
+            completionRate = stats.completionRate();
+        }
+    }
+
+    /** Computes the {@link StatsSummary} on the history thread and hands it to {@code done} on the main thread. */
+    public void queryStats(Consumer<StatsSummary> done) {
+        ioExecutor.execute(() -> {
+            StatsSummary summary;
+            try {
+                openHistory();
+                summary = new StatsSummary(focusStats, focusStats.epochDay(System.currentTimeMillis()));
+            } catch (IOException e) {
+                android.util.Log.w("TimerService", "Failed to open session history", e);
+                return;
+            }
+            mainHandler.post(() -> done.accept(summary));
+        });
+    }
+
+    /** A task with the work time recorded for it. */
+    public static final class TaskTotal {
+        public final int id;
+        public final String label;
+        public final long focusMillis;
+
+        TaskTotal(int id, String label, long focusMillis) {
+            this.id = id;
+            this.label = label;
+            this.focusMillis = focusMillis;
+        }
+    }
+
+    /**
+     * Finds up to {@code limit} tasks with a word starting with {@code prefix} through the
+     * registry's index and hands them, with their totals, to {@code done} on the main thread.
+     */
+    public void searchTasks(String prefix, int limit, Consumer<List<TaskTotal>> done) {
+        ioExecutor.execute(() -> {
+            List<TaskTotal> found = new ArrayList<>();
+            try {
+                openHistory();
+                for (TaskRegistry.Task task : tasks().search(prefix, limit)) {
+                    found.add(new TaskTotal(task.id, task.label, focusStats.taskFocusMillis(task.id)));
+                }
+            } catch (IOException e) {
+                android.util.Log.w("TimerService", "Failed to search tasks", e);
+            }
+            mainHandler.post(() -> done.accept(found));
+        });
+    }
+
+    /** Hands the task new work sessions are tagged with, or null if none, to {@code done} on the main thread. */
+    public void queryCurrentTask(Consumer<TaskTotal> done) {
+        engineHandler.post(() -> {
+            int id = stateStore.getTaskId();
+            ioExecutor.execute(() -> {
+                TaskTotal current = null;
+                try {
+                    String label = id == TaskRegistry.NONE ? null : tasks().getLabel(id);
+                    if (label != null) {
+                        openHistory();
+                        current = new TaskTotal(id, label, focusStats.taskFocusMillis(id));
+                    }
+                } catch (IOException e) {
+                    android.util.Log.w("TimerService", "Failed to open tasks", e);
+                }
+                TaskTotal result = current;
+                mainHandler.post(() -> done.accept(result));
+            });
+        });
+    }
+
+    /**
+     * Tags the following work sessions with {@code label}, which is added to the registry if it
+     * is new; a blank label clears the task. {@code done} gets the task, or null, on the main thread.
+     */
+    public void selectTask(String label, Consumer<TaskTotal> done) {
+        ioExecutor.execute(() -> {
+            TaskTotal selected = null;
+            try {
+                if (label != null && !label.trim().isEmpty()) {
+                    int id = tasks().intern(label);
+                    openHistory();
+                    selected = new TaskTotal(id, tasks().getLabel(id), focusStats.taskFocusMillis(id));
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                android.util.Log.w("TimerService", "Failed to select task", e);
+                return;
+            }
+            TaskTotal task = selected;
+            runOnEngine(() -> stateStore.setTaskId(task != null ? task.id : TaskRegistry.NONE));
+            mainHandler.post(() -> done.accept(task));
+        });
+    }
+
+    /**
+     * Writes the metrics and startup trace of this process to a text file on the history
+     * thread (debug builds). {@code done} receives the file, or null on failure, on the main thread.
+     */
+    public void dumpMetrics(Consumer<File> done) {
+        File dir = getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : getFilesDir(), "metrics.txt");
+        ioExecutor.execute(() -> {
+            File result = file;
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                Metrics.process().dump(out);
+                StartupTrace trace = StartupTrace.process();
+                out.append("\nstartup, first frame +").append(String.valueOf(trace.getTimeToFirstFrameNanos() / 1000)).append("us\n");
+                for (StartupTrace.Phase phase : trace.getPhases()) out.append(phase.toString()).append('\n');
+            } catch (IOException e) {
+                android.util.Log.w("TimerService", "Failed to dump metrics", e);
+                result = null;
+            }
+            File written = result;
+            mainHandler.post(() -> done.accept(written));
+        });
+    }
+
+    /**
+     * Streams the whole history to a document chosen through the Storage Access Framework, on
+     * the history thread. {@code done} receives the number of records, or -1 on failure, on the
+     * main thread.
+     */
+    public void exportHistory(Uri uri, HistoryTransfer.Format format, LongConsumer done) {
+        ioExecutor.execute(() -> {
+            long count;
+            try {
+                openHistory();
+                sessionLog.flush(); // include records still waiting for the coalesced flush
+                ParcelFileDescriptor pfd = getContentResolver().openFileDescriptor(uri, "wt");
+                if (pfd == null) throw new IOException("Cannot open " + uri);
+                try (FileChannel out = new ParcelFileDescriptor.AutoCloseOutputStream(pfd).getChannel()) {
+                    count = HistoryTransfer.export(sessionLog, format, out);
+                }
+            } catch (IOException | RuntimeException e) {
+                android.util.Log.w("TimerService", "Failed to export session history", e);
+                count = -1L;
+            }
+            long exported = count;
+            mainHandler.post(() -> done.accept(exported));
+        });
+    }
+
+    /**
+     * Imports CSV or JSON Lines history from a document chosen through the Storage Access
+     * Framework, skipping invalid lines and records already present. {@code done} receives the
+     * result, or null on failure, on the main thread.
+     */
+    public void importHistory(Uri uri, Consumer<HistoryTransfer.Result> done) {
+        ioExecutor.execute(() -> {
+            HistoryTransfer.Result result;
+            try {
+                openHistory();
+                ParcelFileDescriptor pfd = getContentResolver().openFileDescriptor(uri, "r");
+                if (pfd == null) throw new IOException("Cannot open " + uri);
+                try (FileChannel in = new ParcelFileDescriptor.AutoCloseInputStream(pfd).getChannel()) {
+                    result = HistoryTransfer.importFrom(in, sessionLog, focusStats::add);
+                }
+                sessionLog.flush();
+                focusStats.save(statsFile());
+            } catch (IOException | RuntimeException e) {
+                android.util.Log.w("TimerService", "Failed to import session history", e);
+                result = null;
+            }
+            HistoryTransfer.Result imported = result;
+            mainHandler.post(() -> done.accept(imported));
+        });
+    }
+
+    /**
+     * Exchanges history records that are new since the last sync with other devices through
+     * {@code transport}, on the history thread. {@code done} receives the result, or null on
+     * failure, on the main thread; an interrupted sync picks up where it stopped next time.
+     */
+    public void syncHistory(HistorySync.Transport transport, Consumer<HistorySync.Result> done) {
+        ioExecutor.execute(() -> {
+            HistorySync.Result result;
+            try {
+                openHistory();
+                result = new HistorySync(new File(getFilesDir(), "sync_state.bin"), transport).sync(sessionLog, focusStats::add);
+                focusStats.save(statsFile());
+            } catch (IOException | RuntimeException e) {
+                android.util.Log.w("TimerService", "Failed to sync session history", e);
+                result = null;
+            }
+            HistorySync.Result synced = result;
+            mainHandler.post(() -> done.accept(synced));
+        });
+    }
+
+    /** Lists the installed sound packs, built-in first, and hands them to {@code done} on the main thread. */
+    public void listSoundPacks(Consumer<List<SoundPackStore.Pack>> done) {
+        ioExecutor.execute(() -> {
+            List<SoundPackStore.Pack> packs = soundPacks().list();
+            mainHandler.post(() -> done.accept(packs));
+        });
+    }
+
+    /**
+     * Installs the sound pack zip at {@code uri}, named after the file, and selects it;
+     * {@code done} gets the pack, or null if the zip held no usable sounds.
+     */
+    public void importSoundPack(Uri uri, Consumer<SoundPackStore.Pack> done) {
+        ioExecutor.execute(() -> {
+            SoundPackStore.Pack pack;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) throw new IOException("Cannot open " + uri);
+                pack = soundPacks().importZip(in, displayName(uri));
+                soundPacks().select(pack.id);
+            } catch (IOException | RuntimeException e) {
+                android.util.Log.w("TimerService", "Failed to import sound pack", e);
+                pack = null;
+            }
+            SoundPackStore.Pack imported = pack;
+            mainHandler.post(() -> {
+                if (imported != null && soundCues != null) soundCues.setPack(imported);
+                done.accept(imported);
+            });
+        });
+    }
+
+    public void selectSoundPack(SoundPackStore.Pack pack) {
+        if (soundCues != null) soundCues.setPack(pack);
+        ioExecutor.execute(() -> {
+            try {
+                soundPacks().select(pack.id);
+            } catch (IOException e) {
+                android.util.Log.w("TimerService", "Failed to select sound pack", e);
+            }
+        });
+    }
+
+    /** Hands the memory cap for decoded sounds, in bytes, to {@code done} on the main thread. */
+    public void querySoundCacheBudget(LongConsumer done) {
+        ioExecutor.execute(() -> {
+            long bytes = soundPacks().getCacheBudget();
+            mainHandler.post(() -> done.accept(bytes));
+        });
+    }
+
+    /** Stores the memory cap for decoded sounds and applies it to the running cues. */
+    public void setSoundCacheBudget(long bytes) {
+        ioExecutor.execute(() -> {
+            try {
+                long budget = soundPacks().setCacheBudget(bytes);
+                SoundCues cues = soundCues;
+                if (cues != null) cues.setCacheBudget(budget);
+            } catch (IOException e) {
+                android.util.Log.w("TimerService", "Failed to store the sound cache budget", e);
+            }
+        });
+    }
+
+    // The document's file name without its extension (ioExecutor only)
+    private String displayName(Uri uri) {
+        String name = null;
+        try (Cursor cursor = getContentResolver().query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) name = cursor.getString(0);
+        }
+        if (name == null) name = uri.getLastPathSegment();
+        if (name == null) return getString(R.string.sound_pack_unnamed);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private SoundPackStore soundPacks() {
+        return new SoundPackStore(new File(getFilesDir(), "sound_packs"), getString(R.string.sound_pack_built_in));
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (soundCues != null) soundCues.onTrimMemory(level);
+    }
+
+    public void setDurations(long workMillis, long breakMillis) {
+        runOnEngine(() -> {
+            engine.setDurations(workMillis, breakMillis);
+            saveState();
+            effects(this::requestGlanceUpdate);
+        });
+    }
+
+    /** Stops the timer and resets the session count (used when the user exits the app). */
+    public void exit() {
+        runOnEngine(() -> {
+            engine.pause();
+            long elapsed = engine.getPhaseDurationMillis() - engine.getRemainingMillis();
+            if (elapsed > 0) recordSession(engine.getPhase(), elapsed, SessionRecord.Outcome.ABORTED);
+            stateStore.setSessionsCompleted(1);
+            saveState();
+            // pushed directly: the coalesced update would be dropped by onDestroy
+            effects(() -> {
+                publishGlance();
+                stopSelf();
+            });
+        });
+    }
+
+    private final TimerEngine.Listener engineListener = new TimerEngine.Listener() {
+        @Override
+        public void onPhaseStarted(TimerEngine.Phase phase) {
+            long start = System.nanoTime();
+            markPhaseStart();
+            saveState();
+            armWakeup();
+            effects(() -> {
+                requestNotificationUpdate();
+                requestGlanceUpdate();
+            });
+            PHASE_STARTED.recordSinceNanos(start);
+        }
+
+        @Override
+        public void onPhaseFinished(TimerEngine.Phase phase, long elapsedMillis, boolean skipped) {
+            long start = System.nanoTime();
+            if (skipped) {
+                recordSession(phase, elapsedMillis, SessionRecord.Outcome.SKIPPED);
+            } else {
+                // the vibration and sounds for the transition are cues
+                completePhase(phase, elapsedMillis);
+            }
+            String message = skipped ? null
+                    : phase == TimerEngine.Phase.WORK ? "Work complete \u2013 time for a break" : "Break complete \u2013 back to work";
+            // a skip while paused starts nothing, so this is the only callback for it
+            effects(() -> {
+                transitionMessage = message;
+                requestGlanceUpdate();
+            });
+            PHASE_FINISHED.recordSinceNanos(start);
+        }
+
+        @Override
+        public void onRunningChanged(boolean running) {
+            onPomodoroRunningChanged(running);
+            saveState();
+            effects(TimerService.this::requestGlanceUpdate);
+        }
+    };
+
+    // Only the bookkeeping of engineListener: used while fast-forwarding through phases that
+    // ended while the process was dead, when nothing should be shown, played or re-armed
+    private final TimerEngine.Listener catchUpListener = new TimerEngine.Listener() {
+        @Override
+        public void onPhaseStarted(TimerEngine.Phase phase) {
+            markPhaseStart();
+            CAUGHT_UP_PHASES.increment();
+        }
+
+        @Override
+        public void onPhaseFinished(TimerEngine.Phase phase, long elapsedMillis, boolean skipped) {
+            completePhase(phase, elapsedMillis);
+        }
+    };
+
+    // the phase began at its deadline minus its duration, even when observed late
+    private void markPhaseStart() {
+        long startedElapsed = engine.getDeadline() - engine.getPhaseDurationMillis();
+        phaseStartEpochMillis = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - startedElapsed);
+    }
+
+    private void completePhase(TimerEngine.Phase phase, long elapsedMillis) {
+        recordSession(phase, elapsedMillis, SessionRecord.Outcome.COMPLETED);
+        // If a work session just completed, increment sessions
+        if (phase == TimerEngine.Phase.WORK) stateStore.setSessionsCompleted(stateStore.getSessionsCompleted() + 1);
+    }
+
+    // engine thread
+    private void onPomodoroRunningChanged(boolean running) {
+        effects(() -> {
+            if (running) {
+                goForeground();
+            } else {
+                leaveForeground();
+                // stays alive while the activity is bound; otherwise the paused state is already persisted
+                stopSelf();
+            }
+        });
+        armWakeup();
+    }
+
+    // Queues a history record; bursts of transitions (e.g. catching up after a restart) share one flush
+    private void recordSession(TimerEngine.Phase phase, long elapsedMillis, SessionRecord.Outcome outcome) {
+        if (elapsedMillis <= 0) return;
+        long start = phaseStartEpochMillis != 0L ? phaseStartEpochMillis : System.currentTimeMillis() - elapsedMillis;
+        phaseStartEpochMillis = 0L;
+        int tag = phase == TimerEngine.Phase.WORK ? stateStore.getTaskId() : TaskRegistry.NONE;
+        SessionRecord record = new SessionRecord(start, (int) Math.min(Integer.MAX_VALUE, elapsedMillis), phase, outcome, tag);
+        ioExecutor.execute(() -> {
+            try {
+                openHistory();
+                sessionLog.append(record);
+                focusStats.add(record);
+            } catch (IOException e) {
+                android.util.Log.w("TimerService", "Failed to record session", e);
+            }
+        });
+        if (historyFlushQueued) return;
+        historyFlushQueued = true;
+        // posted, so every record produced by the current engine-thread message is flushed together
+        engineHandler.post(() -> {
+            historyFlushQueued = false;
+            ioExecutor.execute(() -> {
+                try {
+                    if (sessionLog == null) return;
+                    sessionLog.flush();
+                    focusStats.save(statsFile());
+                } catch (IOException e) {
+                    android.util.Log.w("TimerService", "Failed to flush session history", e);
+                }
+            });
+        });
+    }
+
+    // Opens the history and brings the stats checkpoint up to date with it (ioExecutor only)
+    private void openHistory() throws IOException {
+        if (sessionLog != null) return;
+        sessionLog = new SessionLog(new File(getFilesDir(), "history"));
+        focusStats = FocusStats.load(statsFile(), TimeZone.getDefault());
+        if (focusStats.getRecordsApplied() > sessionLog.size()) {
+            // checkpoint is ahead of the log (e.g. the log was cleared): rebuild it
+            focusStats = new FocusStats(TimeZone.getDefault());
+        }
+        // only the records written after the checkpoint are replayed
+        sessionLog.forEach(focusStats.getRecordsApplied(), focusStats::add);
+    }
+
+    // Opens the history ahead of the first record or stats query (startup background stage)
+    private void warmHistory() {
+        try {
+            openHistory();
+        } catch (IOException e) {
+            android.util.Log.w("TimerService", "Failed to open session history", e);
+        }
+    }
+
+    // ioExecutor only
+    private TaskRegistry tasks() throws IOException {
+        if (tasks == null) tasks = TaskRegistry.open(new File(getFilesDir(), "tasks.bin"));
+        return tasks;
+    }
+
+    private File statsFile() {
+        return new File(getFilesDir(), "focus_stats.bin");
+    }
+
+    // Arms one exact alarm for the next cue or phase end of any timer; nothing wakes the CPU in
+    // between. While the process is awake the engine thread also wakes itself then (engine thread)
+    private void armWakeup() {
+        long triggerAt = station.nextWakeup();
+        engineHandler.removeCallbacks(engineTick);
+        if (triggerAt == TimerStation.NONE) {
+            alarmManager.cancel(wakeupIntent);
+            armedWakeupAt = 0L;
+            return;
+        }
+        engineHandler.postDelayed(engineTick, Math.max(0L, triggerAt - SystemClock.elapsedRealtime()));
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms()) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, wakeupIntent);
+        } else {
+            // exact alarms revoked by the user: fall back to an inexact wakeup
+            alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, wakeupIntent);
+        }
+        armedWakeupAt = triggerAt;
+    }
+
+    // effects thread
+    private void goForeground() {
+        startup.ensure(STARTUP_CHANNELS);
+        int type = Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE ? ServiceInfo.FOREGROUND_SERVICE_TYPE_SPECIAL_USE : 0;
+        ServiceCompat.startForeground(this, ONGOING_NOTIFICATION_ID, buildOngoingNotification(), type);
+        inForeground = true;
+        lastNotificationPostAt = SystemClock.uptimeMillis();
+        NOTIFICATION_POSTS.increment();
+    }
+
+    // effects thread
+    private void leaveForeground() {
+        effectsHandler.removeCallbacks(notificationUpdate);
+        notificationUpdateQueued = false;
+        transitionMessage = null;
+        if (!inForeground) return;
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        inForeground = false;
+    }
+
+    // The countdown is rendered by the system chronometer, so the notification needs no per-second updates (effects thread)
+    private Notification buildOngoingNotification() {
+        TimerSnapshot state = snapshot.get();
+        if (ongoingBuilder == null) {
+            Intent open = new Intent(this, MainActivity.class).setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            PendingIntent contentIntent = PendingIntent.getActivity(this, 0, open, PendingIntent.FLAG_IMMUTABLE);
+            ongoingBuilder = new NotificationCompat.Builder(this, ONGOING_CHANNEL_ID)
+                    .setSmallIcon(R.drawable.ic_launcher_foreground)
+                    .setContentIntent(contentIntent)
+                    .setOngoing(true)
+                    .setSilent(true)
+                    .setOnlyAlertOnce(true)
+                    .setShowWhen(true)
+                    .setUsesChronometer(true)
+                    .setChronometerCountDown(true)
+                    .setPriority(NotificationCompat.PRIORITY_LOW);
+        }
+        return ongoingBuilder
+                .setContentTitle(getString(state.isWorkMode() ? R.string.mode_work : R.string.mode_break))
+                .setContentText(transitionMessage)
+                .setWhen(System.currentTimeMillis() + state.getRemainingMillis(SystemClock.elapsedRealtime()))
+                .build();
+    }
+
+    // Coalesces bursts of changes (e.g. several phases caught up at once) into one in-place update (effects thread)
+    private void requestNotificationUpdate() {
+        if (!inForeground || notificationUpdateQueued) return;
+        notificationUpdateQueued = true;
+        long wait = lastNotificationPostAt + MIN_NOTIFICATION_INTERVAL_MS - SystemClock.uptimeMillis();
+        effectsHandler.postDelayed(notificationUpdate, Math.max(0L, wait));
+    }
+
+    // effects thread
+    private void requestGlanceUpdate() {
+        if (glanceUpdateQueued) return;
+        glanceUpdateQueued = true;
+        effectsHandler.post(glanceUpdate);
+    }
+
+    // Pushes only the parts of the widget that changed; the tile re-reads the state when bound (effects thread)
+    private void publishGlance() {
+        GlanceState state = snapshot.get().toGlance();
+        int changes = state.diff(publishedGlance);
+        if (changes == 0) {
+            GLANCE_UNCHANGED.increment();
+            return;
+        }
+        publishedGlance = state;
+        TimerWidgetProvider.push(this, state, changes);
+        if ((changes & ~GlanceState.SESSIONS) != 0) TimerTileService.requestUpdate(this);
+    }
+
+    // effects thread
+    private void postOngoingNotification() {
+        if (!inForeground) return;
+        try {
+            NotificationManagerCompat.from(this).notify(ONGOING_NOTIFICATION_ID, buildOngoingNotification());
+            lastNotificationPostAt = SystemClock.uptimeMillis();
+            NOTIFICATION_POSTS.increment();
+        } catch (SecurityException se) {
+            android.util.Log.w("TimerService", "Failed to update ongoing notification", se);
+        }
+    }
+
+    private void createNotificationChannels() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager notificationManager = getSystemService(NotificationManager.class);
+            if (notificationManager == null) return;
+            notificationManager.deleteNotificationChannel(LEGACY_ALERTS_CHANNEL_ID);
+            NotificationChannel ongoing = new NotificationChannel(ONGOING_CHANNEL_ID, "Running timer", NotificationManager.IMPORTANCE_LOW);
+            ongoing.setDescription("Shows the running Pomodoro and its countdown");
+            notificationManager.createNotificationChannel(ongoing);
+        }
+    }
+
+    // dueAt: when the cue was scheduled to play, on the elapsedRealtime clock
+    private void playEventSound(SoundCues.Cue cue, long dueAt) {
+        startup.ensure(STARTUP_AUDIO);
+        SoundCues cues = soundCues;
+        // ensure() waits for a preload already running on the main thread; null only once cancelled
+        if (cues == null) return;
+        try {
+            cues.play(cue, dueAt);
+        } catch (Exception e) {
+            android.util.Log.w("TimerService", "playEventSound error", e);
+        }
+    }
+
+    private void vibrateOnFinish() {
+        try {
+            Vibrator v = getSystemService(Vibrator.class);
+            if (v != null && v.hasVibrator()) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    v.vibrate(VibrationEffect.createOneShot(300, VibrationEffect.DEFAULT_AMPLITUDE));
+                } else {
+                    v.vibrate(300);
+                }
+            }
+        } catch (SecurityException ignored) {
+        }
+    }
+
+    private void loadState() {
+        stateStore = StateStore.open(new File(getFilesDir(), "timer_state.bin"));
+        stateStore.setWriteErrorListener(e -> android.util.Log.w("TimerService", "Failed to save timer state, retrying", e));
+        if (!stateStore.isLoaded()) migratePreferences();
+        engine.setDurations(stateStore.getWorkMillis(), stateStore.getBreakMillis());
+
+        TimerEngine.Phase phase = stateStore.isWorkMode() ? TimerEngine.Phase.WORK : TimerEngine.Phase.BREAK;
+        long now = SystemClock.elapsedRealtime();
+        long deadline = stateStore.getDeadline(now, System.currentTimeMillis());
+        long untilDeadline = deadline - now;
+        // further away than a full phase: an older snapshot from a previous boot, or the wall
+        // clock was set back; start the phase over
+        if (stateStore.isRunning() && untilDeadline <= engine.getPhaseDurationMillis()) {
+            engine.restoreRunning(phase, deadline);
+            markPhaseStart();
+        } else {
+            long timeLeft = stateStore.getRemainingMillis();
+            engine.restore(phase, timeLeft, timeLeft < engine.getPhaseDurationMillis());
+        }
+    }
+
+    // Fast-forwards through every phase whose deadline passed while the process was dead, in
+    // one engine update before cues or the activity are listening: sessions are counted and
+    // recorded with their real times, nothing plays, and the first frame shows the phase that
+    // is current now
+    private void catchUp() {
+        if (!engine.isRunning() || engine.getDeadline() > SystemClock.elapsedRealtime()) return;
+        engine.addListener(catchUpListener);
+        try {
+            engine.update();
+        } finally {
+            engine.removeListener(catchUpListener);
+        }
+        saveState();
+    }
+
+    // Seeds the store from the SharedPreferences written by earlier versions
+    private void migratePreferences() {
+        SharedPreferences prefs = getSharedPreferences(PREFS, MODE_PRIVATE);
+        if (!prefs.contains(KEY_WORK)) return;
+        long work = prefs.getInt(KEY_WORK, 25) * 60 * 1000L;
+        long brk = prefs.getInt(KEY_BREAK, 5) * 60 * 1000L;
+        boolean isWork = prefs.getBoolean(KEY_IS_WORK, true);
+        stateStore.setDurations(work, brk);
+        stateStore.setSessionsCompleted(prefs.getInt(KEY_SESSIONS, 1));
+        stateStore.setTimer(isWork, false, 0L, 0L, isWork ? work : brk);
+    }
+
+    // Only updates memory; the store writes one coalesced snapshot in the background
+    private void saveState() {
+        stateStore.setDurations(engine.getWorkMillis(), engine.getBreakMillis());
+        long deadline = engine.getDeadline();
+        long wallDeadline = 0L;
+        if (engine.isRunning()) {
+            // derived once per deadline, so re-saving an unchanged phase does not dirty the store
+            wallDeadline = stateStore.isRunning() && stateStore.getDeadline() == deadline && stateStore.getWallDeadline() != 0L
+                    ? stateStore.getWallDeadline()
+                    : System.currentTimeMillis() + (deadline - SystemClock.elapsedRealtime());
+        }
+        stateStore.setTimer(engine.isWorkMode(), engine.isRunning(), deadline, wallDeadline, engine.getRemainingMillis());
+    }
+}
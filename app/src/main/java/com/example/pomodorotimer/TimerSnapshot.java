@@ -0,0 +1,81 @@
+package com.example.pomodorotimer;
+
+/**
+ * Immutable copy of the Pomodoro state, published by the engine thread for every other thread.
+ *
+ * A running phase is described by its monotonic deadline, so one snapshot stays correct for
+ * the whole phase: readers derive the remaining time and progress from their own clock reading
+ * and a new snapshot is only published when something other than time changes. Readers never
+ * lock and never see a half-applied transition.
+ */
+public final class TimerSnapshot {
+
+    /** Increases with every published change; a snapshot with a higher version is newer. */
+    public final long version;
+    public final TimerEngine.Phase phase;
+    public final boolean running;
+    /** Monotonic deadline of the phase while running, otherwise 0. */
+    public final long deadline;
+    /** Time left while paused, otherwise 0. */
+    public final long remainingMillis;
+    public final long workMillis;
+    public final long breakMillis;
+    public final int sessions;
+
+    public TimerSnapshot(long version, TimerEngine.Phase phase, boolean running, long deadline, long remainingMillis,
+                         long workMillis, long breakMillis, int sessions) {
+        this.version = version;
+        this.phase = phase;
+        this.running = running;
+        this.deadline = running ? deadline : 0L;
+        this.remainingMillis = running ? 0L : remainingMillis;
+        this.workMillis = workMillis;
+        this.breakMillis = breakMillis;
+        this.sessions = sessions;
+    }
+
+    /** Captures {@code engine}; must be called on the thread that owns it. */
+    public static TimerSnapshot of(TimerEngine engine, int sessions, long version) {
+        return new TimerSnapshot(version, engine.getPhase(), engine.isRunning(), engine.getDeadline(), engine.getRemainingMillis(),
+                engine.getWorkMillis(), engine.getBreakMillis(), sessions);
+    }
+
+    /** The same state as {@code other}, ignoring the version. */
+    public boolean sameState(TimerSnapshot other) {
+        return other != null && phase == other.phase && running == other.running && deadline == other.deadline
+                && remainingMillis == other.remainingMillis && workMillis == other.workMillis
+                && breakMillis == other.breakMillis && sessions == other.sessions;
+    }
+
+    public boolean isWorkMode() {
+        return phase == TimerEngine.Phase.WORK;
+    }
+
+    public long getPhaseDurationMillis() {
+        return phase == TimerEngine.Phase.WORK ? workMillis : breakMillis;
+    }
+
+    /**
+     * Time left at monotonic time {@code now}. Stops at 0 when the deadline passed before the
+     * engine thread published the next phase.
+     */
+    public long getRemainingMillis(long now) {
+        return running ? Math.max(0L, deadline - now) : remainingMillis;
+    }
+
+    /** Fraction of the phase elapsed at {@code now}, in [0, 1]. */
+    public float getProgress(long now) {
+        long total = getPhaseDurationMillis();
+        float fraction = (float) (total - getRemainingMillis(now)) / (float) total;
+        return Math.max(0f, Math.min(1f, fraction));
+    }
+
+    public GlanceState toGlance() {
+        return new GlanceState(phase, running, deadline, remainingMillis, sessions);
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " " + phase + (running ? " running until " + deadline : " paused at " + remainingMillis) + " #" + sessions;
+    }
+}
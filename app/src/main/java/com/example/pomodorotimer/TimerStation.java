@@ -0,0 +1,123 @@
+package com.example.pomodorotimer;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Any number of concurrent timers (e.g. one per person or task on a shared device) driven by
+ * one {@link TimingWheel} from a single scheduling thread.
+ *
+ * Each entry is a {@link TimerEngine}, optionally with a {@link CueScheduler}, and keeps one
+ * wheel timeout armed for its next phase end or cue. The host arms a single wakeup for
+ * {@link #nextWakeup()} and calls {@link #advance()} when it arrives, so the wakeup count
+ * depends on how many distinct due times there are, not on how many timers exist; a coarser
+ * tick coalesces nearby due times into one wakeup.
+ *
+ * Engines and the station must only be touched from the scheduling thread.
+ *
+ * The app itself only ships the single-timer path: {@link TimerService} drives its Pomodoro as
+ * the station's one entry, and there is no service API or UI for adding more. Hosting many
+ * timers (kiosk, load tests) is supported at this level and covered by the JVM tests and the
+ * benchmark.
+ */
+public class TimerStation {
+
+    public static final long NONE = TimingWheel.NONE;
+
+    /** One timer on the station. */
+    public final class Entry implements TimerEngine.Listener {
+        private final TimerEngine engine;
+        private final CueScheduler cues;
+        private TimingWheel.Timeout timeout;
+        private boolean attached = true;
+
+        Entry(TimerEngine engine, CueScheduler cues) {
+            this.engine = engine;
+            this.cues = cues;
+        }
+
+        public TimerEngine getEngine() {
+            return engine;
+        }
+
+        /** Re-arms after the engine was changed without a listener event (e.g. restored). */
+        public void rearm() {
+            if (timeout != null) timeout.cancel();
+            timeout = null;
+            if (!attached || !engine.isRunning()) return;
+            long due = engine.getDeadline();
+            if (cues != null) due = Math.min(due, cues.nextCueAt());
+            timeout = wheel.schedule(due, this::onDue);
+        }
+
+        private void onDue() {
+            timeout = null;
+            engine.update();
+            if (cues != null) cues.fireDue(clock.now());
+            rearm();
+        }
+
+        @Override
+        public void onPhaseStarted(TimerEngine.Phase phase) {
+            rearm();
+        }
+
+        @Override
+        public void onRunningChanged(boolean running) {
+            rearm();
+        }
+    }
+
+    private final TimerEngine.Clock clock;
+    private final TimingWheel wheel;
+    private final Set<Entry> entries = new LinkedHashSet<>();
+    private long wakeups;
+
+    /** @param tickMillis wheel resolution; due times within one tick share a wakeup */
+    public TimerStation(TimerEngine.Clock clock, long tickMillis) {
+        this.clock = clock;
+        this.wheel = new TimingWheel(tickMillis, clock.now());
+    }
+
+    /**
+     * Adds a timer. If it has a cue scheduler, that must already be registered on the engine
+     * so cues are replanned before the entry re-arms.
+     */
+    public Entry add(TimerEngine engine, CueScheduler cues) {
+        Entry entry = new Entry(engine, cues);
+        entries.add(entry);
+        engine.addListener(entry);
+        entry.rearm();
+        return entry;
+    }
+
+    public void remove(Entry entry) {
+        if (!entry.attached) return;
+        entries.remove(entry);
+        entry.attached = false;
+        entry.engine.removeListener(entry);
+        entry.rearm(); // only cancels, now that it is detached
+    }
+
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries);
+    }
+
+    /** Processes every phase end and cue due now. */
+    public void advance() {
+        wakeups++;
+        wheel.advanceTo(clock.now());
+    }
+
+    /** Host time of the next due phase end or cue, or {@link #NONE}. */
+    public long nextWakeup() {
+        return wheel.nextExpiry();
+    }
+
+    /** Number of {@link #advance()} calls so far. */
+    public long getWakeups() {
+        return wakeups;
+    }
+}
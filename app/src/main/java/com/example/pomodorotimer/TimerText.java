@@ -0,0 +1,82 @@
+package com.example.pomodorotimer;
+
+/**
+ * Reusable MM:SS / HH:MM:SS text for the countdown.
+ *
+ * Digits are written straight into a fixed char buffer, so rendering a tick allocates nothing
+ * (no Formatter, varargs array, boxed longs or String). {@link #update(long)} reports whether
+ * the visible second changed, letting the caller skip TextView.setText() on every other tick.
+ */
+public final class TimerText implements CharSequence {
+
+    private final char[] chars = new char[8]; // "HH:MM:SS"
+    private int length = 0;
+    // whole seconds currently rendered, -1 when nothing is rendered yet
+    private long shownSeconds = -1L;
+
+    /**
+     * Renders the given remaining time (floored to whole seconds, like the original
+     * String.format-based display).
+     *
+     * @return true if the text changed and needs to be pushed to the view
+     */
+    public boolean update(long remainingMillis) {
+        long totalSeconds = Math.max(0L, remainingMillis) / 1000L;
+        if (totalSeconds == shownSeconds) return false;
+        shownSeconds = totalSeconds;
+
+        int seconds = (int) (totalSeconds % 60);
+        long totalMinutes = totalSeconds / 60;
+        int pos = 0;
+        if (totalMinutes >= 100) {
+            // long sessions switch to HH:MM:SS instead of overflowing the minutes field
+            int hours = (int) Math.min(99L, totalMinutes / 60);
+            pos = writeTwoDigits(hours, pos);
+            chars[pos++] = ':';
+            pos = writeTwoDigits((int) (totalMinutes % 60), pos);
+        } else {
+            pos = writeTwoDigits((int) totalMinutes, pos);
+        }
+        chars[pos++] = ':';
+        pos = writeTwoDigits(seconds, pos);
+        length = pos;
+        return true;
+    }
+
+    /** Forces the next {@link #update(long)} to report a change (e.g. after the view was recreated). */
+    public void invalidate() {
+        shownSeconds = -1L;
+    }
+
+    /** Backing buffer; valid characters are {@code [0, length())}. For TextView.setText(char[], int, int). */
+    public char[] buffer() {
+        return chars;
+    }
+
+    private int writeTwoDigits(int value, int pos) {
+        chars[pos++] = (char) ('0' + value / 10);
+        chars[pos++] = (char) ('0' + value % 10);
+        return pos;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException("index " + index);
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
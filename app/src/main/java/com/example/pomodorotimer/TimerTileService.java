@@ -0,0 +1,59 @@
+package com.example.pomodorotimer;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+import android.service.quicksettings.Tile;
+import android.service.quicksettings.TileService;
+import android.text.format.DateFormat;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.Date;
+
+/**
+ * Quick-settings tile: mode and end time, tap to start or pause.
+ *
+ * Declared as an active tile, so the system only binds it when {@link TimerService} calls
+ * {@link #requestUpdate} after a state change (and when the shade opens). A tile cannot run a
+ * chronometer, so while running it shows the wall-clock time the phase ends, which stays
+ * correct without further updates.
+ */
+public class TimerTileService extends TileService {
+
+    private static final Metrics.Counter UPDATES = Metrics.process().counter("glance.tile_updates");
+
+    static void requestUpdate(Context context) {
+        requestListeningState(context, new ComponentName(context, TimerTileService.class));
+    }
+
+    @Override
+    public void onStartListening() {
+        super.onStartListening();
+        Tile tile = getQsTile();
+        if (tile == null) return;
+        GlanceState state = TimerService.currentGlance(this);
+        tile.setState(state.running ? Tile.STATE_ACTIVE : Tile.STATE_INACTIVE);
+        tile.setLabel(getString(state.phase == TimerEngine.Phase.WORK ? R.string.glance_work : R.string.glance_break));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            if (state.running) {
+                long endsAt = System.currentTimeMillis() + (state.deadline - SystemClock.elapsedRealtime());
+                tile.setSubtitle(getString(R.string.tile_until, DateFormat.getTimeFormat(this).format(new Date(endsAt))));
+            } else {
+                TimerText text = new TimerText();
+                text.update(state.remainingMillis);
+                tile.setSubtitle(getString(R.string.tile_paused, text.toString()));
+            }
+        }
+        tile.updateTile();
+        UPDATES.increment();
+    }
+
+    @Override
+    public void onClick() {
+        super.onClick();
+        ContextCompat.startForegroundService(this, new Intent(this, TimerService.class).setAction(TimerService.ACTION_TOGGLE));
+    }
+}
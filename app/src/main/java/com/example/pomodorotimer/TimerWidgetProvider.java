@@ -0,0 +1,83 @@
+package com.example.pomodorotimer;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.view.View;
+import android.widget.RemoteViews;
+
+/**
+ * Home-screen widget with the mode, a countdown and start/pause/skip buttons.
+ *
+ * The countdown is a {@link android.widget.Chronometer} based on the phase deadline, so the
+ * launcher ticks it without any IPC from the app. {@link TimerService} calls {@link #push}
+ * only when a {@link GlanceState} differs from the last one pushed, and the
+ * {@link RemoteViews} it sends carry just the changed parts as a partial update. A full
+ * layout is only sent by {@link #onUpdate} (widget added, launcher restarted) and for the
+ * first state a service instance pushes.
+ */
+public class TimerWidgetProvider extends AppWidgetProvider {
+
+    private static final Metrics.Counter FULL_UPDATES = Metrics.process().counter("glance.widget_full_updates");
+    private static final Metrics.Counter PARTIAL_UPDATES = Metrics.process().counter("glance.widget_partial_updates");
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager manager, int[] appWidgetIds) {
+        manager.updateAppWidget(appWidgetIds, views(context, TimerService.currentGlance(context), GlanceState.ALL));
+        FULL_UPDATES.increment();
+    }
+
+    /** Sends the {@code changes} (GlanceState bits) of {@code state} to every placed widget. */
+    static void push(Context context, GlanceState state, int changes) {
+        AppWidgetManager manager = AppWidgetManager.getInstance(context);
+        int[] ids = manager.getAppWidgetIds(new ComponentName(context, TimerWidgetProvider.class));
+        if (ids.length == 0) return;
+        RemoteViews views = views(context, state, changes);
+        if (changes == GlanceState.ALL) {
+            manager.updateAppWidget(ids, views);
+            FULL_UPDATES.increment();
+        } else {
+            manager.partiallyUpdateAppWidget(ids, views);
+            PARTIAL_UPDATES.increment();
+        }
+    }
+
+    private static RemoteViews views(Context context, GlanceState state, int changes) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_timer);
+        if (changes == GlanceState.ALL) {
+            Intent open = new Intent(context, MainActivity.class).setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            views.setOnClickPendingIntent(R.id.widget_root, PendingIntent.getActivity(context, 0, open, PendingIntent.FLAG_IMMUTABLE));
+            views.setOnClickPendingIntent(R.id.widget_skip, TimerService.actionIntent(context, TimerService.ACTION_SKIP));
+        }
+        if ((changes & GlanceState.MODE) != 0) {
+            views.setTextViewText(R.id.widget_mode, context.getString(state.phase == TimerEngine.Phase.WORK ? R.string.glance_work : R.string.glance_break));
+        }
+        if ((changes & GlanceState.COUNTDOWN) != 0) {
+            if (state.running) {
+                views.setChronometer(R.id.widget_countdown, state.deadline, null, true);
+            } else {
+                // a stopped chronometer would recompute its text from a stale base whenever the
+                // host re-applies the views, so a paused time is plain text
+                views.setChronometer(R.id.widget_countdown, 0L, null, false);
+                TimerText text = new TimerText();
+                text.update(state.remainingMillis);
+                views.setTextViewText(R.id.widget_paused_time, text.toString());
+            }
+            views.setViewVisibility(R.id.widget_countdown, state.running ? View.VISIBLE : View.GONE);
+            views.setViewVisibility(R.id.widget_paused_time, state.running ? View.GONE : View.VISIBLE);
+        }
+        if ((changes & GlanceState.RUNNING) != 0) {
+            views.setImageViewResource(R.id.widget_toggle, state.running ? R.drawable.ic_pause : R.drawable.ic_play);
+            views.setContentDescription(R.id.widget_toggle, context.getString(state.running ? R.string.stop : R.string.start));
+            views.setOnClickPendingIntent(R.id.widget_toggle,
+                    TimerService.actionIntent(context, state.running ? TimerService.ACTION_PAUSE : TimerService.ACTION_START));
+        }
+        if ((changes & GlanceState.SESSIONS) != 0) {
+            views.setTextViewText(R.id.widget_sessions, context.getString(R.string.sessions_label, state.sessions));
+        }
+        return views;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.pomodorotimer;
+
+/**
+ * Hierarchical timing wheel: many timeouts, O(1) insert, cancel and expiry.
+ *
+ * Time is divided into ticks of {@code tickMillis}. There are {@link #LEVELS} wheels of 64
+ * slots; level {@code k} slots span 64^k ticks. A timeout is filed by the highest 6-bit group
+ * in which its expiry tick differs from the current tick, so it sits in the slot that is
+ * reached exactly when the current time enters its range; at that point the slot is
+ * cascaded into the finer levels (or expired, at level 0). Slots are intrusive doubly-linked
+ * lists and each level keeps a 64-bit occupancy mask, so finding the next non-empty slot is
+ * a bit scan rather than a walk over empty ticks.
+ *
+ * The wheel does not own a thread. The host calls {@link #advanceTo(long)} from its one
+ * scheduling thread and sleeps until {@link #nextWakeup()} in between; expired tasks run
+ * inside {@code advanceTo} and may schedule or cancel timeouts. Not thread-safe.
+ */
+public class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    // enough 6-bit groups for any 64-bit tick, so there is no horizon to fall off
+    public static final int LEVELS = (64 + SLOT_BITS - 1) / SLOT_BITS;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /** Returned by {@link #nextWakeup()} when nothing is scheduled. */
+    public static final long NONE = Long.MAX_VALUE;
+
+    /** A scheduled task; {@link #cancel()} removes it in O(1). */
+    public static final class Timeout {
+        private final TimingWheel wheel;
+        private final Runnable task;
+        private final long deadline;
+        private final long expiryTick;
+        private Timeout prev;
+        private Timeout next;
+        private int level = -1; // -1 when not filed
+        private int slot;
+
+        Timeout(TimingWheel wheel, Runnable task, long deadline, long expiryTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+            this.expiryTick = expiryTick;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isPending() {
+            return level >= 0;
+        }
+
+        /** Returns false if the timeout already expired or was cancelled. */
+        public boolean cancel() {
+            if (level < 0) return false;
+            wheel.unlink(this);
+            wheel.size--;
+            return true;
+        }
+    }
+
+    private final long tickMillis;
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    // earliest expiry tick per occupied slot, and per level the slots whose earliest timeout
+    // left since that was computed
+    private final long[][] slotMin = new long[LEVELS][SLOTS];
+    private final long[] staleMin = new long[LEVELS];
+    private long currentTick;
+    private int size;
+    private int eventLevel; // level of the event last found by nextEventTick()
+
+    /** @param startMillis current time of the host clock, non-negative */
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0 || startMillis < 0) throw new IllegalArgumentException("tick must be positive and start non-negative");
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Runs {@code task} once the host time reaches {@code deadlineMillis}, rounded up to the
+     * next tick. A deadline that already passed expires on the next {@link #advanceTo}.
+     */
+    public Timeout schedule(long deadlineMillis, Runnable task) {
+        long tick = Math.max(currentTick, Math.floorDiv(deadlineMillis, tickMillis) + (Math.floorMod(deadlineMillis, tickMillis) == 0 ? 0 : 1));
+        Timeout timeout = new Timeout(this, task, deadlineMillis, tick);
+        file(timeout);
+        size++;
+        return timeout;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Host time of the next moment the wheel has work: an expiry, or a cascade of a coarse
+     * slot (at most one per level per slot span, however many timeouts it holds).
+     */
+    public long nextWakeup() {
+        long tick = nextEventTick();
+        return tick == NONE ? NONE : tick * tickMillis;
+    }
+
+    /**
+     * Host time of the earliest pending expiry (tick-rounded), for hosts whose wakeups are
+     * expensive (e.g. alarms). The earliest expiry always lies in the slot of the next event,
+     * whose minimum is kept as timeouts are filed, so this is O(1); only after the earliest
+     * timeout of that slot was cancelled is the slot rescanned, once.
+     */
+    public long nextExpiry() {
+        long tick = nextEventTick();
+        if (tick == NONE) return NONE;
+        if (eventLevel == 0) return tick * tickMillis;
+        int slot = (int) (tick >>> (SLOT_BITS * eventLevel)) & SLOT_MASK;
+        if ((staleMin[eventLevel] & (1L << slot)) != 0) {
+            long earliest = Long.MAX_VALUE;
+            for (Timeout t = slots[eventLevel][slot]; t != null; t = t.next) earliest = Math.min(earliest, t.expiryTick);
+            slotMin[eventLevel][slot] = earliest;
+            staleMin[eventLevel] &= ~(1L << slot);
+        }
+        return slotMin[eventLevel][slot] * tickMillis;
+    }
+
+    /** Expires every timeout due at {@code nowMillis}, in tick order. */
+    public void advanceTo(long nowMillis) {
+        long target = nowMillis / tickMillis;
+        while (true) {
+            long tick = nextEventTick();
+            if (tick == NONE || tick > target) break;
+            currentTick = tick;
+            int level = eventLevel;
+            int slot = (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+            if (level == 0) {
+                // one at a time: a task may cancel a timeout of the same slot or add one due now
+                Timeout t;
+                while ((t = slots[0][slot]) != null) {
+                    unlink(t);
+                    size--;
+                    t.task.run();
+                }
+            } else {
+                // cascade into finer levels; anything already due lands in the current level-0 slot
+                for (Timeout t = detach(level, slot); t != null; ) {
+                    Timeout next = t.next;
+                    t.prev = t.next = null;
+                    file(t);
+                    t = next;
+                }
+            }
+        }
+        if (target > currentTick) currentTick = target;
+    }
+
+    // Earliest tick with an expiry (level 0) or cascade (higher levels); the first level with
+    // an occupied slot ahead of the current position always holds the earliest event
+    private long nextEventTick() {
+        if (size == 0) return NONE;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            int position = (int) (currentTick >>> shift) & SLOT_MASK;
+            // level 0 includes the current slot (due now); coarser levels only slots ahead
+            int from = level == 0 ? position : position + 1;
+            if (from >= SLOTS) continue;
+            long ahead = occupied[level] & (-1L << from);
+            if (ahead == 0) continue;
+            int slot = Long.numberOfTrailingZeros(ahead);
+            int blockShift = shift + SLOT_BITS;
+            long blockStart = blockShift >= 64 ? 0L : (currentTick >>> blockShift) << blockShift;
+            eventLevel = level;
+            return blockStart | ((long) slot << shift);
+        }
+        return NONE;
+    }
+
+    private void file(Timeout t) {
+        long tick = Math.max(t.expiryTick, currentTick);
+        long diff = tick ^ currentTick;
+        int level = diff == 0 ? 0 : (63 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS;
+        int slot = (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+        Timeout head = slots[level][slot];
+        if (head == null) slotMin[level][slot] = t.expiryTick;
+        else slotMin[level][slot] = Math.min(slotMin[level][slot], t.expiryTick);
+        t.next = head;
+        t.prev = null;
+        if (head != null) head.prev = t;
+        slots[level][slot] = t;
+        occupied[level] |= 1L << slot;
+        t.level = level;
+        t.slot = slot;
+    }
+
+    private void unlink(Timeout t) {
+        if (t.prev != null) t.prev.next = t.next;
+        else slots[t.level][t.slot] = t.next;
+        if (t.next != null) t.next.prev = t.prev;
+        if (slots[t.level][t.slot] == null) {
+            occupied[t.level] &= ~(1L << t.slot);
+            staleMin[t.level] &= ~(1L << t.slot);
+        } else if (t.expiryTick == slotMin[t.level][t.slot]) {
+            staleMin[t.level] |= 1L << t.slot;
+        }
+        t.prev = t.next = null;
+        t.level = -1;
+    }
+
+    private Timeout detach(int level, int slot) {
+        Timeout head = slots[level][slot];
+        slots[level][slot] = null;
+        occupied[level] &= ~(1L << slot);
+        staleMin[level] &= ~(1L << slot);
+        for (Timeout t = head; t != null; t = t.next) t.level = -1;
+        return head;
+    }
+}
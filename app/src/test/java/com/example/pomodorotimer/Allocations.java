@@ -0,0 +1,29 @@
+package com.example.pomodorotimer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures what a piece of code allocates on the calling thread, for the allocation-free
+ * hot path tests. Tests using it are skipped, not passed, on JVMs that cannot measure this.
+ */
+final class Allocations {
+
+    private Allocations() {
+    }
+
+    /** Bytes allocated by the calling thread while {@code work} ran. */
+    static long measure(Runnable work) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue("per-thread allocation is not measurable on this JVM", threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue("per-thread allocation is disabled on this JVM",
+                bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+        long tid = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(tid);
+        work.run();
+        return bean.getThreadAllocatedBytes(tid) - before;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.pomodorotimer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link CueScheduler} on a virtual clock. The host loop is simulated the way
+ * the service runs it: sleep until the earlier of the next cue and the phase deadline, then
+ * update the engine and fire due cues.
+ */
+public class CueSchedulerTest {
+
+    private static final long WORK = 25 * 60 * 1000L;
+    private static final long BREAK = 5 * 60 * 1000L;
+
+    private static final List<CueScheduler.Cue> CUES = Arrays.asList(
+            new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.START, 0L, CueScheduler.Kind.SOUND, "WORK_START"),
+            new CueScheduler.Cue(TimerEngine.Phase.BREAK, CueScheduler.Anchor.START, -1500L, CueScheduler.Kind.SOUND, "BREAK_START"),
+            new CueScheduler.Cue(TimerEngine.Phase.BREAK, CueScheduler.Anchor.END, -2000L, CueScheduler.Kind.SOUND, "BREAK_END"),
+            new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.END, 0L, CueScheduler.Kind.VIBRATION, "finish"),
+            new CueScheduler.Cue(TimerEngine.Phase.BREAK, CueScheduler.Anchor.END, 0L, CueScheduler.Kind.VIBRATION, "finish"));
+
+    private long now;
+    private TimerEngine engine;
+    private CueScheduler scheduler;
+    // "name@virtual time"
+    private final List<String> fired = new ArrayList<>();
+    private long maxLate;
+
+    @Before
+    public void setUp() {
+        now = 10_000L;
+        engine = new TimerEngine(() -> now, WORK, BREAK);
+        scheduler = new CueScheduler(engine, () -> now, CUES, (cue, late) -> {
+            fired.add(cue.name + "@" + (now - 10_000L - late));
+            maxLate = Math.max(maxLate, late);
+        });
+        engine.addListener(scheduler);
+    }
+
+    // One wakeup of the host: the earlier of the next cue and the deadline, optionally late
+    private void wakeUp(long lateBy) {
+        now = Math.min(scheduler.nextCueAt(), engine.getDeadline()) + lateBy;
+        engine.update();
+        scheduler.fireDue(now);
+    }
+
+    @Test
+    public void cuesFireExactlyAtTheirDeadlines() {
+        engine.start();
+        while (now < 10_000L + 2 * (WORK + BREAK)) wakeUp(0L);
+        long w = WORK;
+        long cycle = WORK + BREAK;
+        assertEquals(Arrays.asList(
+                "WORK_START@0", "BREAK_START@" + (w - 1500), "finish@" + w, "BREAK_END@" + (cycle - 2000), "finish@" + cycle,
+                "WORK_START@" + cycle, "BREAK_START@" + (cycle + w - 1500), "finish@" + (cycle + w),
+                "BREAK_END@" + (2 * cycle - 2000), "finish@" + 2 * cycle, "WORK_START@" + 2 * cycle), fired);
+        assertEquals(0L, maxLate);
+    }
+
+    @Test
+    public void oneWakeupPerCueOrDeadline() {
+        engine.start();
+        int wakeups = 0;
+        while (now < 10_000L + 100 * (WORK + BREAK)) {
+            wakeUp(0L);
+            wakeups++;
+        }
+        // per cycle: break pre-play, work end, break pre-end, break end
+        assertEquals(400, wakeups);
+    }
+
+    @Test
+    public void cuesDueTogetherFireInDeclarationOrder() {
+        List<CueScheduler.Cue> cues = Arrays.asList(
+                new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.END, 0L, CueScheduler.Kind.NOTIFICATION, "b"),
+                new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.END, -1000L, CueScheduler.Kind.SOUND, "early"),
+                new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.END, 0L, CueScheduler.Kind.SOUND, "a"));
+        List<String> order = new ArrayList<>();
+        TimerEngine single = new TimerEngine(() -> now, WORK, BREAK);
+        CueScheduler ordered = new CueScheduler(single, () -> now, cues, (cue, late) -> order.add(cue.name));
+        single.addListener(ordered);
+        single.start();
+        // one late wakeup past all three: time order first, then declaration order
+        now = single.getDeadline() - 1L;
+        ordered.fireDue(now + 1L);
+        assertEquals(Arrays.asList("early", "b", "a"), order);
+    }
+
+    @Test
+    public void leadTimesAreMeasuredFromTheDeadline() {
+        engine.start();
+        wakeUp(0L);
+        assertEquals("BREAK_START@" + (WORK - 1500), fired.get(1));
+        // in the break, the next work phase has no pre-play; break end is 2 s before the deadline
+        while (engine.isWorkMode()) wakeUp(0L);
+        assertEquals(engine.getDeadline() - 2000L, scheduler.nextCueAt());
+    }
+
+    @Test
+    public void leadLongerThanThePhasePlaysAfterItsStart() {
+        // a 1 s work phase cannot hold the 1.5 s break pre-play
+        TimerEngine shortWork = new TimerEngine(() -> now, 1_000L, BREAK);
+        List<String> order = new ArrayList<>();
+        CueScheduler cues = new CueScheduler(shortWork, () -> now, CUES, (cue, late) -> order.add(cue.name + "+" + late));
+        shortWork.addListener(cues);
+        shortWork.start();
+        assertEquals(Arrays.asList("WORK_START+0", "BREAK_START+0"), order);
+    }
+
+    @Test
+    public void lateWakeupsReportTheirError() {
+        engine.start();
+        for (int i = 0; i < 6; i++) wakeUp(37L);
+        assertEquals(37L, maxLate);
+    }
+
+    @Test
+    public void pauseAndResumeShiftCuesWithTheDeadline() {
+        engine.start();
+        now += WORK - 3_000L;
+        engine.pause();
+        assertEquals(CueScheduler.NONE, scheduler.nextCueAt());
+        now += 60_000L;
+        engine.resume();
+        // the pre-play is still 1.5 s before the (moved) end of the phase
+        assertEquals(engine.getDeadline() - 1500L, scheduler.nextCueAt());
+        wakeUp(0L);
+        assertEquals("BREAK_START@" + (WORK - 1500 + 60_000L), fired.get(fired.size() - 1));
+    }
+
+    @Test
+    public void firedCueIsNotReplayedAfterResume() {
+        engine.start();
+        while (!engine.isWorkMode() || fired.size() < 4) wakeUp(0L); // into the break, after BREAK_START
+        now = engine.getDeadline() - 1_000L; // break-end pre-play has fired at -2 s
+        scheduler.fireDue(now);
+        int before = fired.size();
+        engine.pause();
+        engine.resume();
+        assertEquals(before, fired.size());
+        assertEquals(engine.getDeadline(), Math.min(engine.getDeadline(), scheduler.nextCueAt()));
+        wakeUp(0L);
+        assertEquals("finish", fired.get(before).split("@")[0]);
+    }
+
+    @Test
+    public void skipAfterPrePlayDoesNotRepeatBreakStart() {
+        engine.start();
+        wakeUp(0L); // BREAK_START pre-play at -1.5 s
+        now += 500L;
+        engine.skip();
+        assertEquals(Arrays.asList("WORK_START@0", "BREAK_START@" + (WORK - 1500)), fired);
+    }
+
+    @Test
+    public void skipBeforePrePlayStartsTheBreakWithItsSound() {
+        engine.start();
+        now += 60_000L;
+        engine.skip();
+        assertEquals(Arrays.asList("WORK_START@0", "BREAK_START@60000"), fired);
+        assertEquals(0L, maxLate);
+        // skipped phases do not vibrate
+        assertFalse(fired.toString().contains("finish"));
+    }
+
+    @Test
+    public void cuesMissedLongAgoAreDropped() {
+        engine.start();
+        // the host was not woken for two whole cycles (e.g. process killed)
+        now += 2 * (WORK + BREAK) + 60_000L;
+        engine.update();
+        scheduler.fireDue(now);
+        assertEquals(Arrays.asList("WORK_START@0"), fired);
+        // cues of the current phase are planned normally again
+        assertEquals(engine.getDeadline() - 1500L, scheduler.nextCueAt());
+    }
+
+    @Test
+    public void restoredEngineNeedsReschedule() {
+        engine.restoreRunning(TimerEngine.Phase.BREAK, now + 10_000L);
+        assertEquals(CueScheduler.NONE, scheduler.nextCueAt());
+        scheduler.reschedule();
+        // the break began almost five minutes ago; its start sound is long stale
+        scheduler.fireDue(now);
+        assertTrue(fired.isEmpty());
+        assertEquals(now + 8_000L, scheduler.nextCueAt());
+    }
+
+    @Test
+    public void restoreDoesNotReplayCuesThatCameDueWhileDead() {
+        // the service's restore: fast-forward without the scheduler, then register it
+        engine.removeListener(scheduler);
+        engine.restoreRunning(TimerEngine.Phase.WORK, now + 60_000L);
+        now += 60_000L + 2 * (WORK + BREAK) + BREAK + 1_000L; // a second into a fresh work phase
+        engine.update();
+        engine.addListener(scheduler);
+        scheduler.reschedule();
+        scheduler.discardDue(now);
+        scheduler.fireDue(now);
+        assertTrue(fired.toString(), fired.isEmpty());
+
+        // the rest of the phase and the next one play as usual
+        long restoredAt = now - 10_000L;
+        long workEnd = restoredAt + WORK - 1_000L;
+        while (now < 10_000L + workEnd + BREAK) wakeUp(0L);
+        assertEquals(Arrays.asList(
+                "BREAK_START@" + (workEnd - 1500),
+                "finish@" + workEnd,
+                "BREAK_END@" + (workEnd + BREAK - 2000),
+                "finish@" + (workEnd + BREAK),
+                "WORK_START@" + (workEnd + BREAK)), fired);
+    }
+}
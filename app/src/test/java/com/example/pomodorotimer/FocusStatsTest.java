@@ -0,0 +1,167 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link FocusStats}, including ten years of synthetic history.
+ */
+public class FocusStatsTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long FIRST_DAY = 19_000L; // 2022-01-08
+
+    private static SessionRecord work(long day, int minutes, SessionRecord.Outcome outcome) {
+        return new SessionRecord(day * DAY + 9 * 3_600_000L, minutes * 60_000, TimerEngine.Phase.WORK, outcome);
+    }
+
+    @Test
+    public void tenYearsOfHistoryMatchBruteForce() {
+        int years = 10;
+        int totalDays = years * 365;
+        long[] expected = new long[totalDays];
+        int completed = 0;
+        int total = 0;
+        Random random = new Random(42);
+        FocusStats stats = new FocusStats(UTC);
+        for (int d = 0; d < totalDays; d++) {
+            int sessions = random.nextInt(10) == 0 ? 0 : random.nextInt(9);
+            for (int s = 0; s < sessions; s++) {
+                SessionRecord.Outcome outcome = random.nextInt(6) == 0 ? SessionRecord.Outcome.ABORTED : SessionRecord.Outcome.COMPLETED;
+                int minutes = outcome == SessionRecord.Outcome.COMPLETED ? 25 : random.nextInt(24) + 1;
+                stats.add(work(FIRST_DAY + d, minutes, outcome));
+                stats.add(new SessionRecord((FIRST_DAY + d) * DAY, 300_000, TimerEngine.Phase.BREAK, SessionRecord.Outcome.COMPLETED));
+                expected[d] += minutes * 60_000L;
+                total++;
+                if (outcome == SessionRecord.Outcome.COMPLETED) completed++;
+            }
+        }
+        for (int q = 0; q < 2_000; q++) {
+            int a = random.nextInt(totalDays);
+            int b = a + random.nextInt(totalDays - a);
+            long sum = 0;
+            for (int d = a; d <= b; d++) sum += expected[d];
+            assertEquals(sum, stats.focusMillis(FIRST_DAY + a, FIRST_DAY + b));
+        }
+        assertEquals(expected[100], stats.dayFocusMillis(FIRST_DAY + 100));
+        long week = 0;
+        for (int d = 700; d < 707; d++) week += expected[d];
+        assertEquals(week, stats.weekFocusMillis(FIRST_DAY + 700));
+        assertEquals((float) completed / total, stats.completionRate(), 1e-6);
+        // out-of-range queries are clamped
+        long all = 0;
+        for (long e : expected) all += e;
+        assertEquals(all, stats.focusMillis(0, Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    public void streakCountsConsecutiveActiveDays() {
+        FocusStats stats = new FocusStats(UTC);
+        stats.add(work(FIRST_DAY, 25, SessionRecord.Outcome.COMPLETED));
+        stats.add(work(FIRST_DAY + 1, 25, SessionRecord.Outcome.COMPLETED));
+        stats.add(work(FIRST_DAY + 1, 25, SessionRecord.Outcome.COMPLETED));
+        stats.add(work(FIRST_DAY + 2, 10, SessionRecord.Outcome.ABORTED));
+        assertEquals(2, stats.currentStreak(FIRST_DAY + 1));
+        assertEquals(2, stats.currentStreak(FIRST_DAY + 2));
+        assertEquals(0, stats.currentStreak(FIRST_DAY + 3));
+        stats.add(work(FIRST_DAY + 3, 25, SessionRecord.Outcome.COMPLETED));
+        assertEquals(1, stats.currentStreak(FIRST_DAY + 3));
+        // a late-arriving record fills the gap
+        stats.add(work(FIRST_DAY + 2, 25, SessionRecord.Outcome.COMPLETED));
+        assertEquals(4, stats.currentStreak(FIRST_DAY + 3));
+    }
+
+    @Test
+    public void olderRecordsRebaseTheBuckets() {
+        FocusStats stats = new FocusStats(UTC);
+        stats.add(work(FIRST_DAY + 500, 25, SessionRecord.Outcome.COMPLETED));
+        stats.add(work(FIRST_DAY, 10, SessionRecord.Outcome.COMPLETED));
+        assertEquals(10 * 60_000L, stats.dayFocusMillis(FIRST_DAY));
+        assertEquals(35 * 60_000L, stats.focusMillis(FIRST_DAY, FIRST_DAY + 500));
+        assertEquals(25 * 60_000L, stats.focusMillis(FIRST_DAY + 1, FIRST_DAY + 600));
+    }
+
+    @Test
+    public void checkpointRoundTrip() throws IOException {
+        FocusStats stats = new FocusStats(UTC);
+        for (int d = 0; d < 4_000; d += 3) stats.add(work(FIRST_DAY + d, 25, SessionRecord.Outcome.COMPLETED));
+        File file = Files.createTempFile("focus", ".bin").toFile();
+        try {
+            stats.save(file);
+            FocusStats loaded = FocusStats.load(file, UTC);
+            assertEquals(stats.getRecordsApplied(), loaded.getRecordsApplied());
+            assertEquals(stats.focusMillis(FIRST_DAY, FIRST_DAY + 4_000), loaded.focusMillis(FIRST_DAY, FIRST_DAY + 4_000));
+            assertEquals(stats.focusMillis(FIRST_DAY + 17, FIRST_DAY + 1_234), loaded.focusMillis(FIRST_DAY + 17, FIRST_DAY + 1_234));
+            assertEquals(stats.currentStreak(FIRST_DAY + 3_999), loaded.currentStreak(FIRST_DAY + 3_999));
+            assertEquals(stats.completionRate(), loaded.completionRate(), 0.0);
+            // still incremental after loading
+            loaded.add(work(FIRST_DAY + 4_001, 25, SessionRecord.Outcome.COMPLETED));
+            assertEquals(25 * 60_000L, loaded.dayFocusMillis(FIRST_DAY + 4_001));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void workTimeIsSummedPerTask() throws IOException {
+        FocusStats stats = new FocusStats(UTC);
+        long day = FIRST_DAY * DAY;
+        stats.add(new SessionRecord(day, 25 * 60_000, TimerEngine.Phase.WORK, SessionRecord.Outcome.COMPLETED, 1));
+        stats.add(new SessionRecord(day, 10 * 60_000, TimerEngine.Phase.WORK, SessionRecord.Outcome.ABORTED, 1));
+        stats.add(new SessionRecord(day, 25 * 60_000, TimerEngine.Phase.WORK, SessionRecord.Outcome.COMPLETED, 2));
+        stats.add(new SessionRecord(day, 5 * 60_000, TimerEngine.Phase.BREAK, SessionRecord.Outcome.COMPLETED, 2));
+        stats.add(work(FIRST_DAY, 25, SessionRecord.Outcome.COMPLETED));
+        assertEquals(35 * 60_000L, stats.taskFocusMillis(1));
+        assertEquals(25 * 60_000L, stats.taskFocusMillis(2));
+        assertEquals(0L, stats.taskFocusMillis(TaskRegistry.NONE));
+        assertEquals(2, stats.taskCount());
+
+        File file = Files.createTempFile("focus", ".bin").toFile();
+        try {
+            stats.save(file);
+            FocusStats loaded = FocusStats.load(file, UTC);
+            assertEquals(35 * 60_000L, loaded.taskFocusMillis(1));
+            assertEquals(25 * 60_000L, loaded.taskFocusMillis(2));
+            assertEquals(stats.getRecordsApplied(), loaded.getRecordsApplied());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void previousCheckpointFormatLoadsWithoutTaskTotals() throws IOException {
+        FocusStats stats = new FocusStats(UTC);
+        stats.add(work(FIRST_DAY, 25, SessionRecord.Outcome.COMPLETED));
+        File file = Files.createTempFile("focus", ".bin").toFile();
+        try {
+            stats.save(file);
+            // rewrite as the old format: other magic, no trailing map
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            ByteBuffer v1 = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 4));
+            v1.putInt(0, 0x50535431);
+            Files.write(file.toPath(), v1.array());
+            FocusStats loaded = FocusStats.load(file, UTC);
+            assertEquals(1, loaded.getRecordsApplied());
+            assertEquals(25 * 60_000L, loaded.dayFocusMillis(FIRST_DAY));
+            assertEquals(0, loaded.taskCount());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void missingOrForeignCheckpointLoadsEmpty() throws IOException {
+        File file = new File(Files.createTempDirectory("focus").toFile(), "none.bin");
+        assertEquals(0, FocusStats.load(file, UTC).getRecordsApplied());
+    }
+}
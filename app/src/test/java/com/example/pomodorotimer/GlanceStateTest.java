@@ -0,0 +1,85 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link GlanceState}: what the widget and tile are sent, and when.
+ */
+public class GlanceStateTest {
+
+    private static final long WORK = 25 * 60 * 1000L;
+    private static final long BREAK = 5 * 60 * 1000L;
+
+    private long now = 1_000L;
+    private final TimerEngine engine = new TimerEngine(() -> now, WORK, BREAK);
+
+    @Test
+    public void firstStateIsSentWhole() {
+        assertEquals(GlanceState.ALL, GlanceState.of(engine, 1).diff(null));
+    }
+
+    @Test
+    public void runningCountdownNeedsNoUpdates() {
+        engine.start();
+        GlanceState started = GlanceState.of(engine, 1);
+        for (int i = 0; i < 24 * 60; i++) {
+            now += 1_000L;
+            engine.update();
+            assertEquals(0, GlanceState.of(engine, 1).diff(started));
+        }
+        assertEquals(started, GlanceState.of(engine, 1));
+        assertEquals(started.hashCode(), GlanceState.of(engine, 1).hashCode());
+    }
+
+    @Test
+    public void changesNameOnlyWhatMoved() {
+        engine.start();
+        GlanceState working = GlanceState.of(engine, 1);
+
+        now += WORK;
+        engine.update();
+        GlanceState onBreak = GlanceState.of(engine, 2);
+        assertEquals(GlanceState.MODE | GlanceState.COUNTDOWN | GlanceState.SESSIONS, onBreak.diff(working));
+
+        now += 60_000L;
+        engine.pause();
+        GlanceState paused = GlanceState.of(engine, 2);
+        assertEquals(GlanceState.RUNNING | GlanceState.COUNTDOWN, paused.diff(onBreak));
+        assertEquals(BREAK - 60_000L, paused.remainingMillis);
+
+        // time passing while paused changes nothing
+        now += 10 * 60_000L;
+        assertEquals(0, GlanceState.of(engine, 2).diff(paused));
+
+        engine.skip();
+        assertEquals(GlanceState.MODE | GlanceState.COUNTDOWN, GlanceState.of(engine, 2).diff(paused));
+    }
+
+    @Test
+    public void aDayOfUseSendsAFewUpdatesPerPhase() {
+        engine.start();
+        GlanceState published = null;
+        int sessions = 1;
+        int updates = 0;
+        int phases = 0;
+        TimerEngine.Phase phase = engine.getPhase();
+        // a publish attempt every second, as a naive widget would
+        for (long t = 0; t < 24 * 60 * 60 * 1000L; t += 1_000L) {
+            now += 1_000L;
+            engine.update();
+            if (engine.getPhase() != phase) {
+                phases++;
+                if (phase == TimerEngine.Phase.WORK) sessions++;
+                phase = engine.getPhase();
+            }
+            GlanceState state = GlanceState.of(engine, sessions);
+            if (state.diff(published) != 0) {
+                updates++;
+                published = state;
+            }
+        }
+        assertEquals(phases + 1, updates);
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.pomodorotimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link HistorySync} between simulated devices sharing a {@link FileDropTransport}.
+ */
+public class HistorySyncTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private File root;
+    private File drop;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("history-sync").toFile();
+        drop = new File(root, "drop");
+    }
+
+    @After
+    public void tearDown() {
+        delete(root);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File c : children) delete(c);
+        file.delete();
+    }
+
+    // A device: its own history, stats and sync cursors
+    private final class Device {
+        final String name;
+        SessionLog log;
+        final FocusStats stats = new FocusStats(UTC);
+        HistorySync.Transport transport = new FileDropTransport(drop);
+        final long base;
+        long produced;
+
+        Device(String name, long base) throws IOException {
+            this.name = name;
+            this.base = base;
+            this.log = new SessionLog(new File(root, name));
+        }
+
+        void work(int sessions) throws IOException {
+            for (int i = 0; i < sessions; i++) {
+                long n = produced++;
+                SessionRecord record = new SessionRecord(base + n * 30 * 60_000L, 25 * 60_000 - (int) (n % 7) * 1000,
+                        n % 2 == 0 ? TimerEngine.Phase.WORK : TimerEngine.Phase.BREAK,
+                        n % 5 == 0 ? SessionRecord.Outcome.SKIPPED : SessionRecord.Outcome.COMPLETED);
+                log.append(record);
+                stats.add(record);
+            }
+            log.flush();
+        }
+
+        HistorySync.Result sync() throws IOException {
+            return new HistorySync(new File(root, name + ".sync"), transport).sync(log, stats::add);
+        }
+
+        void restart() throws IOException {
+            log.close();
+            log = new SessionLog(new File(root, name));
+        }
+
+        Set<String> history() throws IOException {
+            Set<String> keys = new HashSet<>();
+            log.forEach(r -> assertTrue("duplicate " + r, keys.add(r.getStartEpochMillis() + " " + r.getPhase() + " " + r.getDurationMillis())));
+            return keys;
+        }
+    }
+
+    private static void assertConverged(Device a, Device b) throws IOException {
+        assertEquals(a.history(), b.history());
+        assertEquals(a.log.size(), b.log.size());
+        long from = a.stats.epochDay(Math.min(a.base, b.base));
+        assertEquals(a.stats.focusMillis(from, from + 1000), b.stats.focusMillis(from, from + 1000));
+        assertEquals(a.stats.completionRate(), b.stats.completionRate(), 0f);
+    }
+
+    @Test
+    public void devicesConvergeAndResyncIsFree() throws IOException {
+        Device phone = new Device("phone", 1_700_000_000_000L);
+        Device tablet = new Device("tablet", 1_700_000_000_000L + 3 * 60_000L);
+        phone.work(1_200);
+        tablet.work(300);
+
+        HistorySync.Result first = phone.sync();
+        assertEquals(1_200, first.sentRecords);
+        assertEquals(3, first.sentBatches); // 512 + 512 + 176
+        HistorySync.Result second = tablet.sync();
+        assertEquals(300, second.sentRecords);
+        assertEquals(1_200, second.mergedRecords);
+        assertEquals(300, phone.sync().mergedRecords);
+        assertConverged(phone, tablet);
+
+        // nothing new: merged records are not echoed back and nothing is received again
+        for (Device d : new Device[] {phone, tablet}) {
+            HistorySync.Result again = d.sync();
+            assertEquals(0, again.sentRecords);
+            assertEquals(0, again.receivedBatches);
+        }
+        assertNotEquals(new HistorySync(new File(root, "phone.sync"), phone.transport).getDeviceId(),
+                new HistorySync(new File(root, "tablet.sync"), tablet.transport).getDeviceId());
+    }
+
+    @Test
+    public void costIsProportionalToNewRecords() throws IOException {
+        Device phone = new Device("phone", 1_600_000_000_000L);
+        Device tablet = new Device("tablet", 1_600_000_000_000L + DAY);
+        phone.work(20_000);
+        HistorySync.Result bulk = phone.sync();
+        tablet.sync();
+        // regular sessions delta-encode and deflate to a few bytes each
+        assertTrue(bulk.toString(), bulk.sentBytes < 20_000 * 4);
+
+        phone.work(3);
+        HistorySync.Result delta = phone.sync();
+        assertEquals(3, delta.sentRecords);
+        assertEquals(1, delta.sentBatches);
+        HistorySync.Result merged = tablet.sync();
+        assertEquals(1, merged.receivedBatches);
+        assertEquals(3, merged.mergedRecords);
+        assertTrue(merged.toString(), merged.receivedBytes < 100);
+        assertConverged(phone, tablet);
+    }
+
+    @Test
+    public void interruptedSendResumes() throws IOException {
+        Device phone = new Device("phone", 1_700_000_000_000L);
+        Device tablet = new Device("tablet", 1_700_000_000_000L + DAY);
+        phone.work(1_300);
+        HistorySync.Transport files = phone.transport;
+        int[] sends = {0};
+        phone.transport = new HistorySync.Transport() {
+            @Override
+            public void send(long deviceId, long firstSeq, int count, byte[] batch) throws IOException {
+                if (++sends[0] == 2) throw new IOException("connection lost");
+                files.send(deviceId, firstSeq, count, batch);
+            }
+
+            @Override
+            public void receive(long selfId, Map<Long, Long> nextSeqs, HistorySync.BatchSink sink) throws IOException {
+                files.receive(selfId, nextSeqs, sink);
+            }
+        };
+        try {
+            phone.sync();
+            fail("expected the transport failure");
+        } catch (IOException expected) {
+        }
+        assertEquals(512, tablet.sync().mergedRecords);
+        phone.transport = files;
+        HistorySync.Result resumed = phone.sync();
+        assertEquals(1_300 - 512, resumed.sentRecords); // the first batch is not sent again
+        assertEquals(1_300 - 512, tablet.sync().mergedRecords);
+        assertConverged(phone, tablet);
+    }
+
+    @Test
+    public void crashDuringMergeDoesNotDuplicate() throws IOException {
+        Device phone = new Device("phone", 1_700_000_000_000L);
+        Device tablet = new Device("tablet", 1_700_000_000_000L + DAY);
+        phone.work(100);
+        phone.sync();
+        int[] merged = {0};
+        try {
+            // the process dies after some records of the batch reached the log, before its cursor was saved
+            new HistorySync(new File(root, "tablet.sync"), tablet.transport).sync(tablet.log, r -> {
+                if (++merged[0] == 40) throw new IllegalStateException("killed");
+                tablet.stats.add(r);
+            });
+            fail("expected the crash");
+        } catch (IllegalStateException expected) {
+        }
+        tablet.restart();
+        assertEquals(40, tablet.log.size());
+
+        HistorySync.Result retry = tablet.sync();
+        assertEquals(60, retry.mergedRecords);
+        assertEquals(40, retry.duplicateRecords);
+        assertEquals(100, tablet.log.size());
+        tablet.history(); // no duplicates
+    }
+
+    @Test
+    public void corruptAndMissingBatchesAreNotMerged() throws IOException {
+        Device phone = new Device("phone", 1_700_000_000_000L);
+        Device tablet = new Device("tablet", 1_700_000_000_000L + DAY);
+        phone.work(1_100);
+        phone.sync();
+        File[] batches = drop.listFiles();
+        assertNotNull(batches);
+        java.util.Arrays.sort(batches);
+        assertEquals(3, batches.length);
+
+        // the middle batch is corrupt: the one after it waits rather than leave a hole
+        byte[] original = Files.readAllBytes(batches[1].toPath());
+        try (RandomAccessFile raf = new RandomAccessFile(batches[1], "rw")) {
+            raf.seek(40);
+            raf.write(raf.read() ^ 0xFF);
+        }
+        HistorySync.Result partial = tablet.sync();
+        assertEquals(512, partial.mergedRecords);
+        assertEquals(2, partial.rejectedBatches);
+
+        Files.write(batches[1].toPath(), original);
+        HistorySync.Result rest = tablet.sync();
+        assertEquals(1_100 - 512, rest.mergedRecords);
+        assertEquals(0, rest.rejectedBatches);
+        assertConverged(phone, tablet);
+    }
+
+    @Test
+    public void syncedHistoryExportsAndReimportsWithoutDuplicates() throws IOException {
+        // the phone's sessions are older, so the tablet appends them after its own
+        Device phone = new Device("phone", 1_700_000_000_000L);
+        Device tablet = new Device("tablet", 1_700_000_000_000L + 30 * DAY);
+        phone.work(600);
+        tablet.work(100);
+        phone.sync();
+        assertEquals(600, tablet.sync().mergedRecords);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(700, HistoryTransfer.export(tablet.log, HistoryTransfer.Format.CSV, Channels.newChannel(out)));
+        byte[] exported = out.toByteArray();
+
+        HistoryTransfer.Result again = HistoryTransfer.importFrom(channel(exported), tablet.log, r -> fail("imported " + r));
+        assertEquals(700, again.duplicates);
+        assertEquals(700, tablet.log.size());
+
+        try (SessionLog fresh = new SessionLog(new File(root, "fresh"))) {
+            HistoryTransfer.Result result = HistoryTransfer.importFrom(channel(exported), fresh, r -> { });
+            fresh.flush();
+            assertEquals(result.toString(), 700, result.imported);
+            Set<String> keys = new HashSet<>();
+            fresh.forEach(r -> keys.add(r.getStartEpochMillis() + " " + r.getPhase() + " " + r.getDurationMillis()));
+            assertEquals(tablet.history(), keys);
+        }
+    }
+
+    private static ReadableByteChannel channel(byte[] bytes) {
+        return Channels.newChannel(new ByteArrayInputStream(bytes));
+    }
+}
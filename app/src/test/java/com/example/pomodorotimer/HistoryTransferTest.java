@@ -0,0 +1,265 @@
+package com.example.pomodorotimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link HistoryTransfer}.
+ */
+public class HistoryTransferTest {
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("history-transfer").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        delete(root);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File c : children) delete(c);
+        file.delete();
+    }
+
+    private static SessionRecord record(long i) {
+        return new SessionRecord(1_700_000_000_000L + i * 60_000L, 1_000 + (int) (i % 1_500_000),
+                i % 2 == 0 ? TimerEngine.Phase.WORK : TimerEngine.Phase.BREAK,
+                SessionRecord.Outcome.values()[(int) (i % 3)], (int) (i % 7), (int) (i % 11) - 5);
+    }
+
+    private static List<SessionRecord> readAll(SessionLog log) throws IOException {
+        List<SessionRecord> out = new ArrayList<>();
+        log.forEach(out::add);
+        return out;
+    }
+
+    private static ReadableByteChannel text(String s) {
+        return Channels.newChannel(new java.io.ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String export(SessionLog log, HistoryTransfer.Format format) throws IOException {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        HistoryTransfer.export(log, format, Channels.newChannel(out));
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void csvAndJsonLinesRoundTrip() throws IOException {
+        for (HistoryTransfer.Format format : HistoryTransfer.Format.values()) {
+            String exported;
+            try (SessionLog source = new SessionLog(new File(root, "src-" + format))) {
+                for (int i = 0; i < 1_000; i++) source.append(record(i));
+                source.flush();
+                exported = export(source, format);
+            }
+            try (SessionLog target = new SessionLog(new File(root, "dst-" + format))) {
+                List<SessionRecord> seen = new ArrayList<>();
+                HistoryTransfer.Result result = HistoryTransfer.importFrom(text(exported), target, seen::add);
+                target.flush();
+                assertEquals(format + ": " + result, 1_000, result.imported);
+                assertEquals(0, result.invalid + result.duplicates);
+                List<SessionRecord> all = readAll(target);
+                for (int i = 0; i < 1_000; i++) assertEquals(record(i), all.get(i));
+                assertEquals(all, seen);
+            }
+        }
+    }
+
+    @Test
+    public void exportFormats() throws IOException {
+        try (SessionLog log = new SessionLog(new File(root, "log"))) {
+            log.append(new SessionRecord(1_700_000_000_000L, 1_500_000, TimerEngine.Phase.WORK, SessionRecord.Outcome.COMPLETED));
+            log.flush();
+            assertEquals("start_epoch_ms,duration_ms,phase,outcome,flags,tag\n1700000000000,1500000,WORK,COMPLETED,0,0\n",
+                    export(log, HistoryTransfer.Format.CSV));
+            assertEquals("{\"start\":1700000000000,\"duration\":1500000,\"phase\":\"WORK\",\"outcome\":\"COMPLETED\",\"flags\":0,\"tag\":0}\n",
+                    export(log, HistoryTransfer.Format.JSONL));
+        }
+    }
+
+    @Test
+    public void invalidLinesAreCountedAndSkipped() throws IOException {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 600; i++) longLine.append('9');
+        String input = "start_epoch_ms,duration_ms,phase,outcome,flags,tag\r\n"
+                + "1700000000000,1500000,WORK,COMPLETED,0,0\r\n"
+                + "1700000060000,-5,WORK,COMPLETED,0,0\n"           // negative duration
+                + "1700000120000,1000,LUNCH,COMPLETED,0,0\n"        // unknown phase
+                + "1700000180000,1000,BREAK\n"                      // missing outcome
+                + longLine + "\n"                                   // too long
+                + "\n"                                              // blank: ignored
+                + " { \"tag\" : 3, \"phase\":\"BREAK\", \"note\":\"x\", \"start\": 1700000240000, \"outcome\":\"SKIPPED\", \"duration\":42 }\n"
+                + "{\"start\":1700000300000,\"duration\":42,\"phase\":\"WORK\",\"outcome\":\"COMPLETED\"\n" // unterminated
+                + "1700000360000,1000,BREAK,ABORTED";               // no trailing newline
+        try (SessionLog log = new SessionLog(new File(root, "log"))) {
+            HistoryTransfer.Result result = HistoryTransfer.importFrom(text(input), log, r -> { });
+            log.flush();
+            assertEquals(result.toString(), 3, result.imported);
+            assertEquals(result.toString(), 5, result.invalid);
+            List<SessionRecord> all = readAll(log);
+            assertEquals(new SessionRecord(1_700_000_240_000L, 42, TimerEngine.Phase.BREAK, SessionRecord.Outcome.SKIPPED, 0, 3), all.get(1));
+            assertEquals(new SessionRecord(1_700_000_360_000L, 1_000, TimerEngine.Phase.BREAK, SessionRecord.Outcome.ABORTED), all.get(2));
+        }
+    }
+
+    @Test
+    public void duplicatesAgainstHistoryAndWithinTheFileAreDropped() throws IOException {
+        try (SessionLog log = new SessionLog(new File(root, "log"))) {
+            for (int i = 0; i < 10; i += 2) log.append(record(i)); // even records already present
+            log.flush();
+            StringBuilder csv = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                SessionRecord r = record(i);
+                String line = r.getStartEpochMillis() + "," + r.getDurationMillis() + "," + r.getPhase() + "," + r.getOutcome() + "\n";
+                csv.append(line);
+                if (i == 3) csv.append(line); // repeated in the file
+            }
+            csv.append(record(4).getStartEpochMillis()).append(",1000,WORK,COMPLETED\n"); // goes back in time
+            csv.append(record(4).getStartEpochMillis()).append(",1000,BREAK,COMPLETED\n"); // same start, other phase
+            HistoryTransfer.Result result = HistoryTransfer.importFrom(text(csv.toString()), log, r -> { });
+            log.flush();
+            assertEquals(result.toString(), 6, result.imported);
+            assertEquals(result.toString(), 7, result.duplicates);
+            assertEquals(11, log.size());
+        }
+    }
+
+    @Test
+    public void importsIntoAnUnsortedHistoryAndRoundTripsIt() throws IOException {
+        StringBuilder older = new StringBuilder();
+        for (int i = 9; i >= 0; i--) { // a file in reverse order
+            SessionRecord r = record(i);
+            older.append(r.getStartEpochMillis()).append(',').append(r.getDurationMillis()).append(',')
+                    .append(r.getPhase()).append(',').append(r.getOutcome()).append(',')
+                    .append(r.getFlags()).append(',').append(r.getTag()).append('\n');
+        }
+        String exported;
+        try (SessionLog log = new SessionLog(new File(root, "log"))) {
+            log.append(record(20));
+            log.append(record(5)); // already out of start order
+            log.flush();
+            HistoryTransfer.Result result = HistoryTransfer.importFrom(text(older.toString()), log, r -> { });
+            log.flush();
+            assertEquals(result.toString(), 9, result.imported);
+            assertEquals(result.toString(), 1, result.duplicates);
+            for (int round = 0; round < 2; round++) {
+                result = HistoryTransfer.importFrom(text(older.toString()), log, r -> { });
+                log.flush();
+                assertEquals(result.toString(), 0, result.imported);
+                assertEquals(result.toString(), 10, result.duplicates);
+            }
+            assertEquals(11, log.size());
+            exported = export(log, HistoryTransfer.Format.JSONL);
+        }
+        try (SessionLog fresh = new SessionLog(new File(root, "fresh"))) {
+            HistoryTransfer.Result result = HistoryTransfer.importFrom(text(exported), fresh, r -> { });
+            fresh.flush();
+            assertEquals(result.toString(), 11, result.imported);
+            assertEquals(0, result.duplicates + result.invalid);
+            List<SessionRecord> all = readAll(fresh);
+            assertEquals(record(20), all.get(0));
+            assertEquals(record(5), all.get(1));
+            assertEquals(record(9), all.get(2));
+            assertEquals(record(0), all.get(10));
+        }
+    }
+
+    @Test
+    public void millionRecordsRoundTripWithFlatMemory() throws IOException {
+        final int n = 1_000_000;
+        File exported = new File(root, "export.jsonl");
+        try (SessionLog source = new SessionLog(new File(root, "source"))) {
+            for (int i = 0; i < n; i++) source.append(record(i));
+            source.flush();
+            long before = usedHeapAfterGc();
+            try (FileChannel out = FileChannel.open(exported.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                assertEquals(n, HistoryTransfer.export(source, HistoryTransfer.Format.JSONL, out));
+            }
+            assertFlat(before, "export");
+        }
+        try (SessionLog target = new SessionLog(new File(root, "target"))) {
+            long before = usedHeapAfterGc();
+            long[] checksum = {0};
+            HistoryTransfer.Result result;
+            try (FileChannel in = FileChannel.open(exported.toPath(), StandardOpenOption.READ)) {
+                result = HistoryTransfer.importFrom(in, target, r -> checksum[0] += r.getDurationMillis());
+            }
+            target.flush();
+            assertFlat(before, "import");
+            assertEquals(n, result.imported);
+            long expected = 0;
+            for (int i = 0; i < n; i++) expected += record(i).getDurationMillis();
+            assertEquals(expected, checksum[0]);
+            // importing the same file again only finds duplicates
+            try (FileChannel in = FileChannel.open(exported.toPath(), StandardOpenOption.READ)) {
+                result = HistoryTransfer.importFrom(in, target, r -> { });
+            }
+            assertEquals(0, result.imported);
+            assertEquals(n, result.duplicates);
+            assertEquals(n, target.size());
+            long[] index = {0};
+            target.forEach(r -> assertEquals(record(index[0]++), r));
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // holding the records would take tens of megabytes (a million objects of 40+ bytes)
+    private static void assertFlat(long before, String what) {
+        long grown = usedHeapAfterGc() - before;
+        assertTrue(what + " retained " + grown + " bytes", grown < 4L * 1024 * 1024);
+    }
+
+    @Test
+    public void exportIsBufferedInFixedChunks() throws IOException {
+        List<Integer> writes = new ArrayList<>();
+        try (SessionLog log = new SessionLog(new File(root, "log"))) {
+            for (int i = 0; i < 10_000; i++) log.append(record(i));
+            log.flush();
+            HistoryTransfer.export(log, HistoryTransfer.Format.CSV, new java.nio.channels.WritableByteChannel() {
+                @Override
+                public int write(ByteBuffer src) {
+                    writes.add(src.remaining());
+                    int n = src.remaining();
+                    src.position(src.limit());
+                    return n;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                }
+            });
+        }
+        for (int size : writes) assertTrue(size <= HistoryTransfer.BUFFER_SIZE);
+        assertTrue(writes.size() > 1 && writes.size() < 20);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link IntLongMap}.
+ */
+public class IntLongMapTest {
+
+    @Test
+    public void matchesAHashMapThroughManyResizes() {
+        IntLongMap map = new IntLongMap();
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(5_000) + 1;
+            long delta = random.nextInt(3_600_000);
+            assertEquals(expected.merge(key, delta, Long::sum).longValue(), map.add(key, delta));
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Long> e : expected.entrySet()) assertEquals(e.getValue().longValue(), map.get(e.getKey()));
+        assertEquals(0L, map.get(5_001));
+        assertFalse(map.containsKey(5_001));
+        assertEquals(expected.size(), map.keys().length);
+    }
+
+    @Test
+    public void putOverwrites() {
+        IntLongMap map = new IntLongMap();
+        map.put(3, 10L);
+        map.put(3, 20L);
+        assertEquals(20L, map.get(3));
+        assertEquals(1, map.size());
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(3));
+        assertFalse(map.containsKey(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keyZeroIsReserved() {
+        new IntLongMap().add(0, 1L);
+    }
+
+    @Test
+    public void serializationRoundTrip() {
+        IntLongMap map = new IntLongMap();
+        for (int key = 1; key <= 100; key++) map.put(key, key * 1_000L);
+        ByteBuffer buffer = ByteBuffer.allocate(map.serializedSize());
+        map.writeTo(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        IntLongMap read = IntLongMap.readFrom(buffer);
+        assertNotNull(read);
+        assertEquals(100, read.size());
+        for (int key = 1; key <= 100; key++) assertEquals(key * 1_000L, read.get(key));
+    }
+
+    @Test
+    public void malformedInputReadsAsNull() {
+        assertNull(IntLongMap.readFrom(ByteBuffer.allocate(2)));
+        assertNull(IntLongMap.readFrom(ByteBuffer.allocate(8).putInt(5).flip()));
+        assertNull(IntLongMap.readFrom(ByteBuffer.allocate(16).putInt(1).putInt(0).putLong(9L).flip()));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link Metrics}.
+ */
+public class MetricsTest {
+
+    @Test
+    public void samplesLandInTheirBuckets() {
+        Metrics.Histogram h = new Metrics().histogram("h", new long[]{10, 100, 1_000});
+        h.record(0);
+        h.record(10);
+        h.record(11);
+        h.record(1_000);
+        h.record(5_000);
+        h.record(-3);
+        assertEquals(3, h.bucketCount(0)); // 0, 10 and the clamped negative
+        assertEquals(1, h.bucketCount(1));
+        assertEquals(1, h.bucketCount(2));
+        assertEquals(1, h.bucketCount(3)); // overflow
+        assertEquals(6, h.getCount());
+        assertEquals(5_000, h.getMax());
+    }
+
+    @Test
+    public void percentilesAreBucketUpperBounds() {
+        Metrics.Histogram h = new Metrics().histogram("lateness");
+        for (int i = 0; i < 90; i++) h.record(300);      // -> 500 bucket
+        for (int i = 0; i < 9; i++) h.record(4_000);     // -> 5_000 bucket
+        h.record(123_456);                               // -> 200_000 bucket, capped at max
+        assertEquals(500, h.percentile(0.5));
+        assertEquals(500, h.percentile(0.9));
+        assertEquals(5_000, h.percentile(0.99));
+        assertEquals(123_456, h.percentile(1.0));
+        assertEquals(0, new Metrics().histogram("empty").percentile(0.5));
+    }
+
+    @Test
+    public void registryReturnsTheSameInstances() {
+        Metrics metrics = new Metrics();
+        assertSame(metrics.counter("c"), metrics.counter("c"));
+        assertSame(metrics.histogram("h"), metrics.histogram("h"));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        Metrics.Histogram h = metrics.histogram("h");
+        Metrics.Counter c = metrics.counter("c");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long value = (t + 1) * 1_000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    h.record(value);
+                    c.increment();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(400_000, h.getCount());
+        assertEquals(400_000, c.get());
+        assertEquals(4_000, h.getMax());
+        assertEquals(2_500, h.getMean());
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        Metrics.Histogram h = new Metrics().histogram("h");
+        Metrics.Counter c = new Metrics().counter("c");
+        for (int i = 0; i < 100_000; i++) h.record(i); // warm up
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                h.record(i);
+                c.increment();
+            }
+        });
+        assertTrue("allocated " + allocated + " bytes", allocated < 1_024);
+    }
+
+    @Test
+    public void dumpListsEveryMetric() throws IOException {
+        Metrics metrics = new Metrics();
+        metrics.counter("alarm.wakeups").add(3);
+        metrics.histogram("ui.tick_lateness").record(1_500);
+        StringBuilder out = new StringBuilder();
+        metrics.dump(out);
+        String text = out.toString();
+        assertTrue(text, text.contains("alarm.wakeups"));
+        assertTrue(text, text.matches("(?s).*ui\\.tick_lateness\\s+1\\s+1500\\s+1500.*"));
+    }
+}
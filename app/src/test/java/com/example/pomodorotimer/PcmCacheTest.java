@@ -0,0 +1,96 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link PcmCache}: the byte budget holds and the least recently played clip goes first.
+ */
+public class PcmCacheTest {
+
+    // 1000 samples = 2000 bytes
+    private static PcmCache.Clip clip(int samples) {
+        return new PcmCache.Clip(new short[samples], 1000, 1);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedToStayInBudget() {
+        PcmCache cache = new PcmCache(6_000L);
+        cache.put("a", clip(1000));
+        cache.put("b", clip(1000));
+        cache.put("c", clip(1000));
+        assertNotNull(cache.get("a")); // a is now more recent than b
+
+        cache.put("d", clip(1000));
+        assertEquals(6_000L, cache.getBytes());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void manyPacksNeverExceedTheBudget() {
+        PcmCache cache = new PcmCache(50_000L);
+        for (int pack = 0; pack < 100; pack++) {
+            for (String event : SoundPackStore.EVENTS) {
+                cache.put(pack + "/" + event, clip(1000 + pack * 37 % 5000));
+                assertTrue(cache.getBytes() <= cache.getMaxBytes());
+            }
+        }
+        assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    public void clipLargerThanTheBudgetIsNotCached() {
+        PcmCache cache = new PcmCache(4_000L);
+        cache.put("a", clip(1000));
+        assertFalse(cache.put("huge", clip(5000)));
+        assertNull(cache.get("huge"));
+        assertNotNull(cache.get("a"));
+    }
+
+    @Test
+    public void replacingAKeyDoesNotCountItTwice() {
+        PcmCache cache = new PcmCache(10_000L);
+        cache.put("a", clip(1000));
+        cache.put("a", clip(2000));
+        assertEquals(4_000L, cache.getBytes());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void trimAndShrinkEvictDownToTheTarget() {
+        PcmCache cache = new PcmCache(8_000L);
+        for (int i = 0; i < 4; i++) cache.put("k" + i, clip(1000));
+        cache.trimTo(4_000L);
+        assertEquals(4_000L, cache.getBytes());
+        assertNull(cache.get("k0"));
+        assertNotNull(cache.get("k3"));
+        assertEquals(8_000L, cache.getMaxBytes()); // trimming keeps the budget
+
+        cache.setMaxBytes(2_000L);
+        assertEquals(2_000L, cache.getBytes());
+        cache.clear();
+        assertEquals(0L, cache.getBytes());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void clipsWithMoreThanTwoChannelsAreDownmixedToMono() {
+        PcmCache.Clip stereo = new PcmCache.Clip(new short[] {1, 2, 3, 4}, 1000, 2);
+        assertSame(stereo, stereo.downmixed());
+        // two frames of six channels, plus a partial frame that is dropped
+        PcmCache.Clip surround = new PcmCache.Clip(new short[] {
+                600, 600, 0, 0, -600, 600,
+                Short.MAX_VALUE, Short.MAX_VALUE, Short.MAX_VALUE, Short.MAX_VALUE, Short.MAX_VALUE, Short.MAX_VALUE,
+                7}, 1000, 6);
+        PcmCache.Clip mono = surround.downmixed();
+        assertEquals(1, mono.channels);
+        assertEquals(1000, mono.sampleRate);
+        assertArrayEquals(new short[] {200, Short.MAX_VALUE}, mono.samples);
+        assertEquals(surround.getDurationMillis(), mono.getDurationMillis());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Schedule properties checked over weeks of simulated use with {@link PomodoroSimulator}.
+ */
+public class PomodoroSimulatorTest {
+
+    private static final long WORK = 25 * 60 * 1000L;
+    private static final long BREAK = 5 * 60 * 1000L;
+    private static final long CYCLE = WORK + BREAK;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    // the service's cues (TimerService.CUES)
+    private static final List<CueScheduler.Cue> CUES = Arrays.asList(
+            new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.START, 0L, CueScheduler.Kind.SOUND, "WORK_START"),
+            new CueScheduler.Cue(TimerEngine.Phase.BREAK, CueScheduler.Anchor.START, -1500L, CueScheduler.Kind.SOUND, "BREAK_START"),
+            new CueScheduler.Cue(TimerEngine.Phase.BREAK, CueScheduler.Anchor.END, -2000L, CueScheduler.Kind.SOUND, "BREAK_END"),
+            new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.END, 0L, CueScheduler.Kind.VIBRATION, "finish"),
+            new CueScheduler.Cue(TimerEngine.Phase.BREAK, CueScheduler.Anchor.END, 0L, CueScheduler.Kind.VIBRATION, "finish"));
+
+    private static List<String> describe(List<PomodoroSimulator.Event> events) {
+        List<String> out = new ArrayList<>();
+        for (PomodoroSimulator.Event e : events) out.add(e.toString());
+        return out;
+    }
+
+    @Test
+    public void firstCycleChainsWithPrePlays() {
+        List<PomodoroSimulator.Event> trace = new PomodoroSimulator(WORK, BREAK, CUES, 1L).trace(CYCLE);
+        assertEquals(Arrays.asList(
+                "0 CUE WORK WORK_START #0",
+                "0 STARTED WORK #0",
+                "0 RESUMED WORK #0",
+                (WORK - 1500) + " CUE BREAK BREAK_START #0",
+                WORK + " CUE WORK finish #0",
+                WORK + " FINISHED WORK " + WORK + "ms #1",
+                WORK + " STARTED BREAK #1",
+                (CYCLE - 2000) + " CUE BREAK BREAK_END #1",
+                CYCLE + " CUE BREAK finish #1",
+                CYCLE + " FINISHED BREAK " + BREAK + "ms #1",
+                CYCLE + " CUE WORK WORK_START #1",
+                CYCLE + " STARTED WORK #1"), describe(trace));
+    }
+
+    @Test
+    public void weeksOfUninterruptedSessions() {
+        long[] finished = {0};
+        PomodoroSimulator.Report report = new PomodoroSimulator(WORK, BREAK, CUES, 1L).run(28 * DAY, e -> {
+            if (e.type == PomodoroSimulator.Type.FINISHED) {
+                assertEquals(0, e.at % CYCLE == 0 ? 0 : (e.at - WORK) % CYCLE);
+                finished[0]++;
+            }
+            if (e.type == PomodoroSimulator.Type.CUE) assertEquals(0L, e.millis);
+        });
+        assertEquals(28 * DAY / CYCLE, report.sessions);
+        assertEquals(2 * report.sessions, finished[0]);
+        // one wakeup per pre-play and per phase end
+        assertEquals(4 * report.sessions, report.wakeups);
+    }
+
+    @Test
+    public void sameSeedSameTrace() {
+        PomodoroSimulator a = new PomodoroSimulator(WORK, BREAK, CUES, 99L).withActions(20 * 60 * 1000L, 0.3, 15 * 60 * 1000L).withLateWakeups(500L);
+        PomodoroSimulator b = new PomodoroSimulator(WORK, BREAK, CUES, 99L).withActions(20 * 60 * 1000L, 0.3, 15 * 60 * 1000L).withLateWakeups(500L);
+        assertEquals(describe(a.trace(7 * DAY)), describe(b.trace(7 * DAY)));
+    }
+
+    @Test
+    public void randomActionsKeepTheScheduleConsistent() {
+        for (long seed = 1; seed <= 50; seed++) {
+            long maxLate = seed % 2 == 0 ? 0L : 3_000L;
+            PomodoroSimulator simulator = new PomodoroSimulator(WORK, BREAK, CUES, seed)
+                    .withActions(15 * 60 * 1000L, 0.4, 20 * 60 * 1000L)
+                    .withLateWakeups(maxLate);
+            checkInvariants(simulator.trace(14 * DAY), maxLate, "seed " + seed);
+        }
+    }
+
+    private static void checkInvariants(List<PomodoroSimulator.Event> trace, long maxLate, String run) {
+        long lastAt = 0L;
+        boolean running = false;
+        TimerEngine.Phase phase = TimerEngine.Phase.WORK;
+        int sessions = 0;
+        // cues fired since the current phase began, plus pre-plays for the next one
+        Set<String> firedThisPhase = new HashSet<>();
+        Set<String> firedForNext = new HashSet<>();
+        for (PomodoroSimulator.Event e : trace) {
+            String at = run + " at " + e;
+            assertTrue(at, e.at >= lastAt);
+            lastAt = e.at;
+            switch (e.type) {
+                case RESUMED:
+                    assertFalse(at, running);
+                    running = true;
+                    break;
+                case PAUSED:
+                    assertTrue(at, running);
+                    running = false;
+                    break;
+                case FINISHED:
+                    assertTrue(at, running);
+                    assertEquals(at, phase, e.phase);
+                    // completed phases ran their whole duration of running time
+                    assertEquals(at, phase == TimerEngine.Phase.WORK ? WORK : BREAK, e.millis);
+                    if (phase == TimerEngine.Phase.WORK) sessions++;
+                    phase = next(phase);
+                    firedThisPhase = firedForNext;
+                    firedForNext = new HashSet<>();
+                    break;
+                case SKIPPED:
+                    assertEquals(at, phase, e.phase);
+                    assertTrue(at, e.millis >= 0 && e.millis <= (phase == TimerEngine.Phase.WORK ? WORK : BREAK));
+                    phase = next(phase);
+                    firedThisPhase = firedForNext;
+                    firedForNext = new HashSet<>();
+                    break;
+                case STARTED:
+                    assertEquals(at, phase, e.phase);
+                    break;
+                case CUE:
+                    assertTrue(at, e.millis <= maxLate);
+                    boolean prePlay = e.phase != phase;
+                    // each cue plays at most once per phase instance
+                    assertTrue(at, (prePlay ? firedForNext : firedThisPhase).add(e.cue));
+                    break;
+            }
+            assertEquals(at, sessions, e.sessions);
+        }
+    }
+
+    private static TimerEngine.Phase next(TimerEngine.Phase phase) {
+        return phase == TimerEngine.Phase.WORK ? TimerEngine.Phase.BREAK : TimerEngine.Phase.WORK;
+    }
+
+    @Test
+    public void simulatesYearsPerSecond() {
+        PomodoroSimulator simulator = new PomodoroSimulator(WORK, BREAK, CUES, 5L).withActions(30 * 60 * 1000L, 0.3, 10 * 60 * 1000L);
+        simulator.run(7 * DAY, e -> { }); // warm up
+        PomodoroSimulator.Report report = simulator.run(365 * DAY, e -> { });
+        assertEquals(365 * DAY, report.simulatedMillis);
+        assertTrue(report.toString(), report.sessions > 0 && report.wakeups > 0 && report.events >= report.sessions);
+        // a year of phases must take well under a second even on a slow CI machine
+        assertTrue(report.toString(), report.getSpeedup() > 365 * DAY / 1000.0);
+    }
+}
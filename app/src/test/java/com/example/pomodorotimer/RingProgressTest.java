@@ -0,0 +1,104 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link RingProgress}.
+ */
+public class RingProgressTest {
+
+    private static final long FRAME_NANOS = 16_666_667L;
+    private static final long WORK = 25 * 60 * 1000L;
+
+    @Test
+    public void sweepIsQuantizedToSteps() {
+        RingProgress ring = new RingProgress();
+        ring.setSteps(1_000);
+        assertTrue(ring.update(0.0012f, 0L));
+        assertEquals(0.001f, ring.getShown(), 0f);
+        // less than half a step: nothing to redraw
+        assertFalse(ring.update(0.0014f, FRAME_NANOS));
+        assertFalse(ring.isTransitioning());
+    }
+
+    @Test
+    public void largeJumpsAreEasedAcrossFrames() {
+        RingProgress ring = new RingProgress();
+        ring.setSteps(1_000);
+        long time = 0L;
+        ring.update(0.5f, time);
+        assertTrue(ring.isTransitioning());
+        assertEquals(0L, ring.nextFrameDelayMillis(WORK / 2, WORK, false));
+        float last = ring.getShown();
+        int frames = 1;
+        while (ring.isTransitioning()) {
+            time += FRAME_NANOS;
+            ring.update(0.5f, time);
+            assertTrue(ring.getShown() >= last);
+            last = ring.getShown();
+            frames++;
+        }
+        assertEquals(0.5f, ring.getShown(), 0f);
+        assertEquals(RingProgress.TRANSITION_NANOS / FRAME_NANOS + 1, frames, 1);
+        // settled and paused: no more frames
+        assertEquals(RingProgress.NO_FRAME, ring.nextFrameDelayMillis(WORK / 2, WORK, false));
+    }
+
+    @Test
+    public void phaseChangeUnwindsToTheNewPhase() {
+        RingProgress ring = new RingProgress();
+        ring.setSteps(500);
+        for (long t = 0; ring.update(1f, t) || ring.isTransitioning(); t += FRAME_NANOS) { }
+        assertEquals(1f, ring.getShown(), 0f);
+        long time = 10 * RingProgress.TRANSITION_NANOS;
+        ring.update(0f, time);
+        while (ring.isTransitioning()) ring.update(0f, time += FRAME_NANOS);
+        assertEquals(0f, ring.getShown(), 0f);
+    }
+
+    @Test
+    public void oneFramePerVisibleStepWhileRunning() {
+        RingProgress ring = new RingProgress();
+        int steps = 2_450; // circumference of a 260dp ring at xxhdpi
+        ring.setSteps(steps);
+        long remaining = WORK;
+        ring.update(0f, 0L);
+        int frames = 0;
+        int unchanged = 0;
+        while (true) {
+            long delay = ring.nextFrameDelayMillis(remaining, WORK, true);
+            if (delay == RingProgress.NO_FRAME) break;
+            remaining -= delay;
+            frames++;
+            float progress = (float) (WORK - remaining) / WORK;
+            if (!ring.update(progress, (WORK - remaining) * 1_000_000L)) unchanged++;
+        }
+        assertEquals(1f, ring.getShown(), 0f);
+        // float rounding at exact half-step boundaries may cost the odd extra frame
+        assertTrue("unchanged=" + unchanged, unchanged <= steps / 100);
+        assertTrue("frames=" + frames, frames <= steps + steps / 100);
+        // about 0.6 s apart, versus a vsync every 16 ms
+        assertTrue(WORK / frames > 500L);
+    }
+
+    @Test
+    public void framesDoNotAllocate() {
+        RingProgress ring = new RingProgress();
+        ring.setSteps(2_000);
+        long[] sink = {0};
+        for (int i = 0; i < 100_000; i++) { // warm up
+            ring.update((i % 1000) / 1000f, i * FRAME_NANOS);
+            sink[0] += ring.nextFrameDelayMillis(WORK - i, WORK, true);
+        }
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                ring.update((i % 1000) / 1000f, i * FRAME_NANOS);
+                sink[0] += ring.nextFrameDelayMillis(WORK - i, WORK, true);
+            }
+        });
+        assertTrue("allocated " + allocated + " bytes", allocated < 1_024);
+        assertTrue(sink[0] != 0);
+    }
+}
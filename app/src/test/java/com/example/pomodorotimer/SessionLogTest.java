@@ -0,0 +1,159 @@
+package com.example.pomodorotimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link SessionLog}.
+ */
+public class SessionLogTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("session-log").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    private static SessionRecord record(int i) {
+        return new SessionRecord(1_700_000_000_000L + i * 60_000L, 25 * 60 * 1000,
+                i % 2 == 0 ? TimerEngine.Phase.WORK : TimerEngine.Phase.BREAK,
+                i % 5 == 0 ? SessionRecord.Outcome.SKIPPED : SessionRecord.Outcome.COMPLETED);
+    }
+
+    private static List<SessionRecord> readAll(SessionLog log) throws IOException {
+        List<SessionRecord> out = new ArrayList<>();
+        log.forEach(out::add);
+        return out;
+    }
+
+    @Test
+    public void recordsSurviveReopen() throws IOException {
+        try (SessionLog log = new SessionLog(dir)) {
+            for (int i = 0; i < 100; i++) log.append(record(i));
+        }
+        try (SessionLog log = new SessionLog(dir)) {
+            List<SessionRecord> all = readAll(log);
+            assertEquals(100, all.size());
+            for (int i = 0; i < 100; i++) assertEquals(record(i), all.get(i));
+        }
+        assertEquals(100L * SessionRecord.SIZE, new File(dir, SessionLog.ACTIVE_FILE).length());
+    }
+
+    @Test
+    public void unflushedRecordsAreNotVisible() throws IOException {
+        try (SessionLog log = new SessionLog(dir)) {
+            log.append(record(1));
+            assertEquals(0, log.size());
+            log.flush();
+            assertEquals(1, log.size());
+        }
+    }
+
+    @Test
+    public void tornTailIsTruncatedOnOpen() throws IOException {
+        try (SessionLog log = new SessionLog(dir)) {
+            for (int i = 0; i < 10; i++) log.append(record(i));
+        }
+        File active = new File(dir, SessionLog.ACTIVE_FILE);
+        try (RandomAccessFile raf = new RandomAccessFile(active, "rw")) {
+            // half of an 11th record, as left by a crash mid-write
+            raf.seek(raf.length());
+            raf.write(new byte[SessionRecord.SIZE / 2]);
+        }
+        try (SessionLog log = new SessionLog(dir)) {
+            assertEquals(10, log.size());
+            log.append(record(10));
+        }
+        try (SessionLog log = new SessionLog(dir)) {
+            assertEquals(11, readAll(log).size());
+        }
+    }
+
+    @Test
+    public void corruptedRecordCutsTheTail() throws IOException {
+        try (SessionLog log = new SessionLog(dir)) {
+            for (int i = 0; i < 10; i++) log.append(record(i));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(new File(dir, SessionLog.ACTIVE_FILE), "rw")) {
+            raf.seek(7L * SessionRecord.SIZE + 3);
+            raf.write(0x7F);
+        }
+        try (SessionLog log = new SessionLog(dir)) {
+            assertEquals(7, log.size());
+        }
+    }
+
+    @Test
+    public void compactionSealsSegments() throws IOException {
+        try (SessionLog log = new SessionLog(dir, 16)) {
+            for (int i = 0; i < 40; i++) {
+                log.append(record(i));
+                log.flush();
+            }
+            assertEquals(40, log.size());
+        }
+        File[] segments = dir.listFiles((d, name) -> name.endsWith(".seg"));
+        assertNotNull(segments);
+        assertEquals(2, segments.length);
+        assertEquals(8L * SessionRecord.SIZE, new File(dir, SessionLog.ACTIVE_FILE).length());
+        try (SessionLog log = new SessionLog(dir, 16)) {
+            List<SessionRecord> all = readAll(log);
+            assertEquals(40, all.size());
+            for (int i = 0; i < 40; i++) assertEquals(record(i), all.get(i));
+        }
+    }
+
+    @Test
+    public void readsFromIndexAcrossSegments() throws IOException {
+        try (SessionLog log = new SessionLog(dir, 16)) {
+            for (int i = 0; i < 40; i++) {
+                log.append(record(i));
+                log.flush();
+            }
+            List<SessionRecord> tail = new ArrayList<>();
+            log.forEach(20, tail::add);
+            assertEquals(20, tail.size());
+            assertEquals(record(20), tail.get(0));
+            tail.clear();
+            log.forEach(35, tail::add);
+            assertEquals(5, tail.size());
+            assertEquals(record(35), tail.get(0));
+        }
+    }
+
+    @Test
+    public void readerSeesASnapshotWhileTheLogGrows() throws IOException {
+        try (SessionLog log = new SessionLog(dir, 32)) {
+            for (int i = 0; i < 50; i++) log.append(record(i));
+            log.flush();
+            try (SessionLog.Reader reader = log.openReader(10)) {
+                // appending seals the active file the reader is in the middle of
+                for (int i = 50; i < 120; i++) log.append(record(i));
+                log.flush();
+                int n = 10;
+                SessionRecord r;
+                while ((r = reader.next()) != null) assertEquals(record(n++), r);
+                assertEquals(50, n);
+            }
+            assertEquals(120, readAll(log).size());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.pomodorotimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link SoundPackStore}: importing zips, selection and deletion.
+ */
+public class SoundPackStoreTest {
+
+    private File dir;
+    private SoundPackStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("sound-packs").toFile();
+        store = new SoundPackStore(new File(dir, "packs"), "Default");
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File c : children) delete(c);
+        file.delete();
+    }
+
+    // name, size alternating
+    private static ByteArrayInputStream zip(Object... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry((String) entries[i]));
+                zip.write(new byte[(Integer) entries[i + 1]]);
+                zip.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    @Test
+    public void emptyStoreHasOnlyTheBuiltInPack() {
+        List<SoundPackStore.Pack> packs = store.list();
+        assertEquals(1, packs.size());
+        assertTrue(packs.get(0).isBuiltIn());
+        assertTrue(store.getSelected().isBuiltIn());
+        assertNull(store.getSelected().getSound("work_start"));
+    }
+
+    @Test
+    public void importsEventSoundsByFileName() throws IOException {
+        SoundPackStore.Pack pack = store.importZip(zip(
+                "birds/Work_Start.OGG", 100,
+                "birds/break_end.mp3", 200,
+                "birds/readme.txt", 10,
+                "work_end.exe", 10), "Birds");
+        assertEquals("Birds", pack.name);
+        assertEquals(100, pack.getSound("work_start").length());
+        assertEquals(200, pack.getSound("break_end").length());
+        assertNull(pack.getSound("work_end"));
+        assertNull(pack.getSound("break_start"));
+
+        List<SoundPackStore.Pack> packs = store.list();
+        assertEquals(2, packs.size());
+        assertEquals("Birds", packs.get(1).name);
+    }
+
+    @Test
+    public void entryPathsCannotEscapeThePack() throws IOException {
+        SoundPackStore.Pack pack = store.importZip(zip("../../work_start.wav", 50), "Sneaky");
+        File sound = pack.getSound("work_start");
+        assertEquals(new File(new File(dir, "packs"), pack.id).getCanonicalFile(), sound.getParentFile().getCanonicalFile());
+    }
+
+    @Test
+    public void oversizedAndEmptyZipsAreRejected() throws IOException {
+        try {
+            store.importZip(zip("work_start.wav", (int) SoundPackStore.MAX_SOUND_BYTES + 1), "Huge");
+            fail();
+        } catch (IOException expected) {
+        }
+        try {
+            store.importZip(zip("notes.txt", 10), "Nothing");
+            fail();
+        } catch (IOException expected) {
+        }
+        // nothing half-installed is left behind
+        assertEquals(1, store.list().size());
+        String[] left = new File(dir, "packs").list();
+        assertNotNull(left);
+        assertEquals(0, left.length);
+    }
+
+    @Test
+    public void selectionSurvivesAndFallsBackWhenDeleted() throws IOException {
+        SoundPackStore.Pack birds = store.importZip(zip("work_start.ogg", 10), "Birds");
+        SoundPackStore.Pack bells = store.importZip(zip("break_start.ogg", 10), "Bells");
+        store.select(birds.id);
+
+        SoundPackStore reopened = new SoundPackStore(new File(dir, "packs"), "Default");
+        assertEquals(birds.id, reopened.getSelected().id);
+        assertEquals("Bells", reopened.list().get(1).name);
+
+        reopened.delete(bells.id);
+        assertEquals(birds.id, reopened.getSelected().id);
+        reopened.delete(birds.id);
+        assertTrue(reopened.getSelected().isBuiltIn());
+        assertEquals(1, reopened.list().size());
+    }
+
+    @Test
+    public void cacheBudgetSurvivesAndHasAFloor() throws IOException {
+        assertEquals(SoundPackStore.DEFAULT_CACHE_BYTES, store.getCacheBudget());
+        assertEquals(16L * 1024 * 1024, store.setCacheBudget(16L * 1024 * 1024));
+        assertEquals(16L * 1024 * 1024, new SoundPackStore(new File(dir, "packs"), "Default").getCacheBudget());
+        assertEquals(SoundPackStore.MIN_CACHE_BYTES, store.setCacheBudget(10L));
+        assertEquals(SoundPackStore.MIN_CACHE_BYTES, store.getCacheBudget());
+        // the setting is not mistaken for a pack
+        assertEquals(1, store.list().size());
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.pomodorotimer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link StartupPipeline} and {@link StartupTrace} with a manual clock and
+ * manually drained executors.
+ */
+public class StartupPipelineTest {
+
+    private static final long MS = 1_000_000L;
+
+    private long nanos;
+    private StartupTrace trace;
+    private final ArrayDeque<Runnable> idle = new ArrayDeque<>();
+    private final ArrayDeque<Runnable> background = new ArrayDeque<>();
+    private final List<String> ran = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        nanos = 5_000 * MS;
+        trace = new StartupTrace(() -> nanos);
+    }
+
+    private Runnable work(String name, long millis) {
+        return () -> {
+            ran.add(name);
+            nanos += millis * MS;
+        };
+    }
+
+    private StartupPipeline coldStart() {
+        return new StartupPipeline(trace, idle::add, background::add)
+                .add(StartupPipeline.Stage.BEFORE_FIRST_FRAME, "state_restore", work("state_restore", 2))
+                .add(StartupPipeline.Stage.IDLE, "notification_channels", work("notification_channels", 4))
+                .add(StartupPipeline.Stage.IDLE, "audio_preload", work("audio_preload", 30))
+                .add(StartupPipeline.Stage.BACKGROUND, "history_load", work("history_load", 80))
+                .add(StartupPipeline.Stage.BEFORE_FIRST_FRAME, "timer_text", work("timer_text", 1));
+    }
+
+    private static void drain(ArrayDeque<Runnable> queue) {
+        while (!queue.isEmpty()) queue.poll().run();
+    }
+
+    @Test
+    public void onlyFirstFrameWorkRunsSynchronously() {
+        coldStart().start();
+        assertEquals("[state_restore, timer_text]", ran.toString());
+        assertEquals(2, idle.size());
+        assertEquals(1, background.size());
+    }
+
+    @Test
+    public void deferredWorkDoesNotCountTowardsFirstFrame() {
+        coldStart().start();
+        nanos += 5 * MS; // layout and draw
+        trace.markFirstFrame();
+        drain(idle);
+        drain(background);
+
+        assertEquals(8 * MS, trace.getTimeToFirstFrameNanos());
+        assertEquals(3 * MS, trace.getBlockingNanos());
+        assertTrue(trace.getPhase("state_restore").beforeFirstFrame);
+        StartupTrace.Phase audio = trace.getPhase("audio_preload");
+        assertFalse(audio.beforeFirstFrame);
+        assertEquals(30 * MS, audio.durationNanos);
+        assertEquals(5, trace.getPhases().size());
+    }
+
+    @Test
+    public void ensurePullsDeferredTaskForwardOnce() {
+        StartupPipeline pipeline = coldStart();
+        pipeline.start();
+        pipeline.ensure("notification_channels");
+        assertEquals("[state_restore, timer_text, notification_channels]", ran.toString());
+        drain(idle);
+        assertEquals("[state_restore, timer_text, notification_channels, audio_preload]", ran.toString());
+        pipeline.ensure("audio_preload");
+        assertEquals(4, ran.size());
+    }
+
+    @Test
+    public void ensureWaitsForTaskRunningOnAnotherThread() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean created = new AtomicBoolean();
+        StartupPipeline pipeline = new StartupPipeline(new StartupTrace(System::nanoTime), r -> new Thread(r).start(), Runnable::run)
+                .add(StartupPipeline.Stage.IDLE, "notification_channels", () -> {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    created.set(true);
+                });
+        pipeline.start();
+        assertTrue(entered.await(2, TimeUnit.SECONDS));
+
+        Thread waiter = new Thread(() -> pipeline.ensure("notification_channels"));
+        waiter.start();
+        waiter.join(100);
+        assertTrue("ensure returned before the task finished", waiter.isAlive());
+        release.countDown();
+        waiter.join(2_000);
+        assertFalse(waiter.isAlive());
+        assertTrue(created.get());
+    }
+
+    @Test
+    public void cancelDropsPendingTasks() {
+        StartupPipeline pipeline = coldStart();
+        pipeline.start();
+        pipeline.cancel();
+        drain(idle);
+        drain(background);
+        pipeline.ensure("audio_preload");
+        assertEquals("[state_restore, timer_text]", ran.toString());
+    }
+
+    @Test
+    public void firstFrameIsReportedOnce() {
+        List<Long> frames = new ArrayList<>();
+        trace.addListener(new StartupTrace.Listener() {
+            @Override
+            public void onFirstFrame(long timeToFirstFrameNanos) {
+                frames.add(timeToFirstFrameNanos);
+            }
+        });
+        assertEquals(StartupTrace.NOT_DRAWN, trace.getTimeToFirstFrameNanos());
+        nanos += 12 * MS;
+        trace.markFirstFrame();
+        nanos += 12 * MS;
+        trace.markFirstFrame();
+        assertEquals("[" + 12 * MS + "]", frames.toString());
+    }
+
+    @Test
+    public void failingPhaseIsStillRecorded() {
+        try {
+            trace.trace("broken", () -> {
+                nanos += MS;
+                throw new IllegalStateException();
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(MS, trace.getPhase("broken").durationNanos);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.pomodorotimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link StateStore}.
+ */
+public class StateStoreTest {
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("state-store").toFile();
+        file = new File(dir, "timer_state.bin");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void defaultsWhenNothingStored() {
+        StateStore store = StateStore.open(file);
+        assertFalse(store.isLoaded());
+        assertEquals(StateStore.DEFAULT_WORK_MILLIS, store.getWorkMillis());
+        assertTrue(store.isWorkMode());
+        assertEquals(1, store.getSessionsCompleted());
+        store.close();
+    }
+
+    @Test
+    public void valuesSurviveReopen() throws InterruptedException {
+        StateStore store = StateStore.open(file);
+        store.setDurations(50 * 60_000L, 10 * 60_000L);
+        store.setTimer(false, true, 123_456L, 1_700_000_123_456L, 0L);
+        store.setSessionsCompleted(7);
+        store.setTaskId(3);
+        assertTrue(store.awaitDurable(2_000L));
+        store.close();
+
+        StateStore reopened = StateStore.open(file);
+        assertTrue(reopened.isLoaded());
+        assertEquals(50 * 60_000L, reopened.getWorkMillis());
+        assertEquals(10 * 60_000L, reopened.getBreakMillis());
+        assertFalse(reopened.isWorkMode());
+        assertTrue(reopened.isRunning());
+        assertEquals(123_456L, reopened.getDeadline());
+        assertEquals(1_700_000_123_456L, reopened.getWallDeadline());
+        assertEquals(7, reopened.getSessionsCompleted());
+        assertEquals(3, reopened.getTaskId());
+        reopened.close();
+    }
+
+    @Test
+    public void burstsOfMutationsCoalesceIntoOneWrite() throws InterruptedException {
+        StateStore store = StateStore.open(file);
+        for (int i = 0; i < 1_000; i++) {
+            store.setSessionsCompleted(i + 2);
+            store.setTimer(i % 2 == 0, true, i, 0L, 0L);
+        }
+        assertTrue(store.awaitDurable(2_000L));
+        assertTrue("writes=" + store.getWriteCount(), store.getWriteCount() <= 2);
+        store.close();
+        assertEquals(1_001, StateStore.open(file).getSessionsCompleted());
+    }
+
+    @Test
+    public void unchangedValuesDoNotWrite() throws InterruptedException {
+        StateStore store = StateStore.open(file);
+        store.setDurations(StateStore.DEFAULT_WORK_MILLIS, StateStore.DEFAULT_BREAK_MILLIS);
+        assertTrue(store.awaitDurable(100L));
+        assertEquals(0, store.getWriteCount());
+        store.close();
+    }
+
+    @Test
+    public void deadlineIsTranslatedAcrossAReboot() throws InterruptedException {
+        long bootEpoch = 1_700_000_000_000L;
+        StateStore store = StateStore.open(file);
+        // a phase ending 10 minutes after a boot that happened an hour before the save
+        long deadline = 60 * 60_000L + 10 * 60_000L;
+        store.setTimer(true, true, deadline, bootEpoch + deadline, 0L);
+
+        // same boot, wall clock nudged by a few seconds: the monotonic deadline is kept
+        assertEquals(deadline, store.getDeadline(deadline - 5_000L, bootEpoch + deadline - 5_000L + 3_000L));
+        // rebooted 3 minutes before the deadline, up for 2 minutes: 1 minute left on the new clock
+        long uptime = 2 * 60_000L;
+        assertEquals(uptime + 60_000L, store.getDeadline(uptime, bootEpoch + deadline - 60_000L));
+        // rebooted long after the deadline: it lies in the past of the new clock
+        assertEquals(uptime - 3 * 60 * 60_000L, store.getDeadline(uptime, bootEpoch + deadline + 3 * 60 * 60_000L));
+        assertTrue(store.awaitDurable(2_000L));
+        store.close();
+    }
+
+    @Test
+    public void readsThePreviousFormat() throws Exception {
+        ByteBuffer v1 = ByteBuffer.allocate(4 + 8 + 8 + 1 + 8 + 8 + 4 + 4);
+        v1.putInt(0x50535331).putLong(50 * 60_000L).putLong(10 * 60_000L).put((byte) 3)
+                .putLong(123_456L).putLong(0L).putInt(4);
+        CRC32 crc = new CRC32();
+        crc.update(v1.array(), 0, v1.position());
+        v1.putInt((int) crc.getValue());
+        Files.write(file.toPath(), v1.array());
+
+        StateStore store = StateStore.open(file);
+        assertTrue(store.isLoaded());
+        assertEquals(50 * 60_000L, store.getWorkMillis());
+        assertTrue(store.isWorkMode());
+        assertTrue(store.isRunning());
+        assertEquals(4, store.getSessionsCompleted());
+        // no wall-clock deadline: the monotonic one is all there is
+        assertEquals(0L, store.getWallDeadline());
+        assertEquals(123_456L, store.getDeadline(5_000L, 1_700_000_000_000L));
+        assertEquals(TaskRegistry.NONE, store.getTaskId());
+        store.close();
+    }
+
+    @Test
+    public void failedWritesAreReportedAndRetried() throws Exception {
+        File missing = new File(dir, "missing");
+        File inMissing = new File(missing, "timer_state.bin");
+        List<IOException> errors = new CopyOnWriteArrayList<>();
+        StateStore store = StateStore.open(inMissing);
+        store.setWriteErrorListener(errors::add);
+        store.setSessionsCompleted(5);
+        assertFalse(store.awaitDurable(100L));
+        assertTrue(store.getFailedWrites() > 0);
+        assertFalse(errors.isEmpty());
+        assertEquals(0, store.getWriteCount());
+
+        // the directory appears: a scheduled retry writes the state without another mutation
+        assertTrue(missing.mkdir());
+        long giveUp = System.currentTimeMillis() + 10_000L;
+        while (store.getWriteCount() == 0 && System.currentTimeMillis() < giveUp) Thread.sleep(10L);
+        assertEquals(1, store.getWriteCount());
+        assertEquals(0, store.getFailedWrites());
+        store.close();
+        assertEquals(5, StateStore.open(inMissing).getSessionsCompleted());
+        inMissing.delete();
+        new File(missing, "timer_state.bin.tmp").delete();
+        missing.delete();
+    }
+
+    @Test
+    public void corruptSnapshotFallsBackToDefaults() throws Exception {
+        StateStore store = StateStore.open(file);
+        store.setSessionsCompleted(9);
+        assertTrue(store.awaitDurable(2_000L));
+        store.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(10);
+            raf.write(0xFF);
+        }
+        StateStore reopened = StateStore.open(file);
+        assertFalse(reopened.isLoaded());
+        assertEquals(1, reopened.getSessionsCompleted());
+        reopened.close();
+    }
+
+    @Test
+    public void loadingReadsTheSnapshotAndWritesNothing() throws Exception {
+        StateStore store = StateStore.open(file);
+        store.setSessionsCompleted(3);
+        assertTrue(store.awaitDurable(2_000L));
+        store.close();
+        byte[] written = Files.readAllBytes(file.toPath());
+        long modified = file.lastModified();
+
+        // load time is measured by StateStoreBenchmark; here only what loading touches
+        for (int i = 0; i < 20; i++) {
+            StateStore reopened = StateStore.open(file);
+            assertTrue(reopened.isLoaded());
+            assertEquals(3, reopened.getSessionsCompleted());
+            assertEquals(0, reopened.getWriteCount());
+            reopened.close();
+        }
+        assertArrayEquals(written, Files.readAllBytes(file.toPath()));
+        assertEquals(modified, file.lastModified());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void fileOfAnotherSizeIsRejected() throws Exception {
+        Files.write(file.toPath(), new byte[1 << 20]);
+        StateStore store = StateStore.open(file);
+        assertFalse(store.isLoaded());
+        assertEquals(StateStore.DEFAULT_WORK_MILLIS, store.getWorkMillis());
+        store.close();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.pomodorotimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link TaskRegistry}.
+ */
+public class TaskRegistryTest {
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("tasks").toFile();
+        file = new File(dir, "tasks.bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void labelsInternToStableIds() throws IOException {
+        TaskRegistry tasks = TaskRegistry.open(file);
+        int report = tasks.intern("Write report");
+        int review = tasks.intern("Code review");
+        assertEquals(1, report);
+        assertEquals(2, review);
+        assertEquals(report, tasks.intern("  write   REPORT "));
+        assertEquals(2, tasks.size());
+        assertEquals("Write report", tasks.getLabel(report));
+        assertNull(tasks.getLabel(TaskRegistry.NONE));
+        assertNull(tasks.getLabel(3));
+        assertEquals(TaskRegistry.NONE, tasks.find("Unknown"));
+
+        TaskRegistry reopened = TaskRegistry.open(file);
+        assertEquals(2, reopened.size());
+        assertEquals(review, reopened.find("code review"));
+        assertEquals(3, reopened.intern("Reading"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blankLabelsAreRejected() throws IOException {
+        TaskRegistry.open(file).intern("   ");
+    }
+
+    @Test
+    public void searchMatchesWordStarts() throws IOException {
+        TaskRegistry tasks = TaskRegistry.open(file);
+        tasks.intern("Write report");
+        tasks.intern("Report review");
+        tasks.intern("Groceries");
+        tasks.intern("Reply to mail");
+
+        List<TaskRegistry.Task> found = tasks.search("rep", 10);
+        assertEquals(3, found.size());
+        // every task once, though "Report review" matches two words
+        assertEquals(3, found.stream().mapToInt(t -> t.id).distinct().count());
+        assertTrue(found.stream().noneMatch(t -> t.label.equals("Groceries")));
+
+        assertEquals(1, tasks.search("REVIEW", 10).size());
+        assertTrue(tasks.search("port", 10).isEmpty());
+        assertEquals(2, tasks.search("re", 2).size());
+        assertEquals(4, tasks.search("", 10).size());
+    }
+
+    @Test
+    public void searchScalesToManyTasks() throws IOException {
+        TaskRegistry tasks = TaskRegistry.open(file);
+        for (int i = 0; i < 2_000; i++) tasks.intern("Task " + i);
+        List<TaskRegistry.Task> found = tasks.search("199", 20);
+        assertEquals(11, found.size()); // 199, 1990..1999
+        for (TaskRegistry.Task t : found) assertTrue(t.label.startsWith("Task 199"));
+    }
+
+    @Test
+    public void tornTailIsDropped() throws IOException {
+        TaskRegistry tasks = TaskRegistry.open(file);
+        tasks.intern("First");
+        tasks.intern("Second");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        long dropped = Metrics.process().counter("task_registry.dropped_bytes").get();
+        TaskRegistry reopened = TaskRegistry.open(file);
+        assertEquals(1, reopened.size());
+        assertEquals(dropped + 2 + "Second".length() + 4 - 3, Metrics.process().counter("task_registry.dropped_bytes").get());
+        // the next label takes the id the torn one never got
+        assertEquals(2, reopened.intern("Third"));
+        assertEquals("Third", TaskRegistry.open(file).getLabel(2));
+    }
+}
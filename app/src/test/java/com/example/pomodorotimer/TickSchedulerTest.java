@@ -0,0 +1,71 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link TickScheduler}.
+ */
+public class TickSchedulerTest {
+
+    private static final long WORK = 25 * 60 * 1000L;
+
+    @Test
+    public void alignsToNextDisplayedSecond() {
+        // 10.250 s left shows "00:10"; "00:09" is due once 9.999 s remain
+        assertEquals(251L, TickScheduler.nextTickDelay(10_250L, WORK, TickScheduler.NO_CUE));
+        assertEquals(1L, TickScheduler.nextTickDelay(10_000L, WORK, TickScheduler.NO_CUE));
+    }
+
+    @Test
+    public void wakesForPendingCue() {
+        assertEquals(300L, TickScheduler.nextTickDelay(1_800L, WORK, 1_500L));
+        // cue already passed: back to second alignment
+        assertEquals(401L, TickScheduler.nextTickDelay(1_400L, WORK, 1_500L));
+    }
+
+    @Test
+    public void wakesForProgressStepOnShortPhases() {
+        // 10 s phase: every 100 ms is a whole percent, so progress steps dominate
+        long delay = TickScheduler.nextTickDelay(9_990L, 10_000L, TickScheduler.NO_CUE);
+        assertEquals(40L, delay);
+    }
+
+    @Test
+    public void textOnlyTickIgnoresProgressSteps() {
+        // the ring schedules its own frames; the text only changes with the second
+        assertEquals(991L, TickScheduler.nextTickDelay(9_990L, TickScheduler.NO_CUE));
+        assertEquals(300L, TickScheduler.nextTickDelay(1_800L, 1_500L));
+    }
+
+    @Test
+    public void progressStepsScaleWithResolution() {
+        // 1000 steps of a 10 s phase: one every 10 ms, rounding at half a step
+        assertEquals(5L, TickScheduler.untilNextProgressStep(10_000L, 10_000L, 1_000));
+        assertEquals(10L, TickScheduler.untilNextProgressStep(9_995L, 10_000L, 1_000));
+        assertEquals(Long.MAX_VALUE, TickScheduler.untilNextProgressStep(0L, 10_000L, 1_000));
+    }
+
+    @Test
+    public void roughlyOneWakeupPerSecondOverAWorkSession() {
+        long remaining = WORK;
+        int wakeups = 0;
+        int lastShown = (int) (remaining / 1000);
+        int lastProgress = 0;
+        int idle = 0;
+        while (remaining > 0) {
+            remaining -= TickScheduler.nextTickDelay(remaining, WORK, TickScheduler.NO_CUE);
+            wakeups++;
+            int shown = (int) (Math.max(0, remaining) / 1000);
+            int progress = Math.round((float) (WORK - remaining) / WORK * 100);
+            if (shown == lastShown && progress == lastProgress) idle++;
+            lastShown = shown;
+            lastProgress = progress;
+        }
+        // float rounding at exact half-percent boundaries may cost the odd extra wakeup
+        assertTrue("idle=" + idle, idle <= 5);
+        // one per second plus a handful of progress steps, versus 6000 at the old 250 ms cadence
+        assertTrue("wakeups=" + wakeups, wakeups <= WORK / 1000 + 101);
+    }
+}
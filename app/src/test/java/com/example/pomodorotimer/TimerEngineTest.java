@@ -0,0 +1,141 @@
+package com.example.pomodorotimer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link TimerEngine} driven by a manual clock.
+ */
+public class TimerEngineTest {
+
+    private static final long WORK = 25 * 60 * 1000L;
+    private static final long BREAK = 5 * 60 * 1000L;
+
+    private long now;
+    private TimerEngine engine;
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        now = 1_000L;
+        engine = new TimerEngine(() -> now, WORK, BREAK);
+        engine.addListener(new TimerEngine.Listener() {
+            @Override
+            public void onPhaseStarted(TimerEngine.Phase phase) {
+                events.add("start " + phase);
+            }
+
+            @Override
+            public void onPhaseFinished(TimerEngine.Phase phase, long elapsedMillis, boolean skipped) {
+                events.add((skipped ? "skip " : "finish ") + phase);
+            }
+        });
+    }
+
+    @Test
+    public void remainingIsDerivedFromDeadline() {
+        engine.start();
+        now += 60_000L;
+        assertEquals(WORK - 60_000L, engine.update());
+        assertEquals(1_000L + WORK, engine.getDeadline());
+    }
+
+    @Test
+    public void pauseAndResumeKeepRemainingTime() {
+        engine.start();
+        now += 10_000L;
+        engine.pause();
+        now += 3_600_000L;
+        assertEquals(WORK - 10_000L, engine.update());
+        engine.resume();
+        now += 5_000L;
+        assertEquals(WORK - 15_000L, engine.update());
+        assertEquals("[start WORK]", events.toString());
+    }
+
+    @Test
+    public void phasesChainFromPreviousDeadline() {
+        engine.start();
+        // observe the expiry 700 ms late; the break must still end exactly WORK + BREAK after start
+        now += WORK + 700L;
+        assertEquals(BREAK - 700L, engine.update());
+        assertEquals(TimerEngine.Phase.BREAK, engine.getPhase());
+        assertEquals(1_000L + WORK + BREAK, engine.getDeadline());
+        assertEquals("[start WORK, finish WORK, start BREAK]", events.toString());
+    }
+
+    @Test
+    public void noDriftOverADayOfSparseTicks() {
+        engine.start();
+        long start = now;
+        int cycles = 0;
+        // tick at an awkward 997 ms cadence for 24 hours
+        while (now - start < 24 * 3_600_000L) {
+            now += 997L;
+            engine.update();
+        }
+        for (String e : events) if (e.equals("finish BREAK")) cycles++;
+        long cycle = WORK + BREAK;
+        assertEquals((24 * 3_600_000L) / cycle, cycles);
+        long elapsedInCycle = (now - start) % cycle;
+        long expectedRemaining = elapsedInCycle < WORK ? WORK - elapsedInCycle : cycle - elapsedInCycle;
+        assertEquals(expectedRemaining, engine.getRemainingMillis());
+    }
+
+    @Test
+    public void skipMovesToNextPhase() {
+        engine.start();
+        now += 1_000L;
+        engine.skip();
+        assertEquals(TimerEngine.Phase.BREAK, engine.getPhase());
+        assertEquals(BREAK, engine.update());
+        assertEquals("[start WORK, skip WORK, start BREAK]", events.toString());
+    }
+
+    @Test
+    public void skipWhileStoppedLeavesNextPhaseIdle() {
+        engine.skip();
+        assertFalse(engine.isRunning());
+        assertEquals(BREAK, engine.getRemainingMillis());
+        engine.resume();
+        assertEquals("[skip WORK, start BREAK]", events.toString());
+    }
+
+    @Test
+    public void durationChangeResetsIdlePhase() {
+        engine.setDurations(50 * 60 * 1000L, BREAK);
+        assertEquals(50 * 60 * 1000L, engine.getRemainingMillis());
+    }
+
+    @Test
+    public void restoredRunningEngineCatchesUp() {
+        engine.restoreRunning(TimerEngine.Phase.WORK, now + 1_000L);
+        now += 2_000L;
+        assertEquals(BREAK - 1_000L, engine.update());
+        assertEquals("[finish WORK, start BREAK]", events.toString());
+    }
+
+    @Test
+    public void restoreFastForwardsThroughEveryExpiredPhase() {
+        // process dead for a week; the phase that was running ended a minute after it died
+        engine.restoreRunning(TimerEngine.Phase.WORK, now + 60_000L);
+        long week = 7 * 24 * 60 * 60 * 1000L;
+        now += week;
+        long remaining = engine.update();
+        long cycle = WORK + BREAK;
+        long sinceFirstEnd = week - 60_000L;
+        // one finish per work and per break deadline passed, chained from the original deadline
+        int works = (int) (sinceFirstEnd / cycle) + 1;
+        int breaks = (int) ((sinceFirstEnd + WORK) / cycle);
+        assertEquals(works + breaks, events.stream().filter(e -> e.startsWith("finish")).count());
+        assertEquals(works, events.stream().filter(e -> e.equals("finish WORK")).count());
+        long intoCycle = sinceFirstEnd % cycle;
+        assertEquals(intoCycle < BREAK ? TimerEngine.Phase.BREAK : TimerEngine.Phase.WORK, engine.getPhase());
+        assertEquals(intoCycle < BREAK ? BREAK - intoCycle : cycle - intoCycle, remaining);
+    }
+}
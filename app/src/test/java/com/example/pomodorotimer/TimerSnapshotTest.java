@@ -0,0 +1,106 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link TimerSnapshot}: what readers derive from it and how it is published.
+ */
+public class TimerSnapshotTest {
+
+    private static final long WORK = 25 * 60 * 1000L;
+    private static final long BREAK = 5 * 60 * 1000L;
+
+    private long now = 1_000L;
+    private final TimerEngine engine = new TimerEngine(() -> now, WORK, BREAK);
+
+    @Test
+    public void runningSnapshotStaysCorrectForTheWholePhase() {
+        engine.start();
+        TimerSnapshot snapshot = TimerSnapshot.of(engine, 1, 1L);
+        for (long t = 0; t <= WORK; t += 7_000L) {
+            assertEquals(engine.getRemainingMillis(), snapshot.getRemainingMillis(now));
+            assertEquals(engine.getProgress(), snapshot.getProgress(now), 0f);
+            now += 7_000L;
+        }
+        // past the deadline, before the next phase is published
+        assertEquals(0L, snapshot.getRemainingMillis(now + 60_000L));
+        assertEquals(1f, snapshot.getProgress(now + 60_000L), 0f);
+    }
+
+    @Test
+    public void pausedSnapshotIgnoresTheClock() {
+        engine.start();
+        now += 60_000L;
+        engine.pause();
+        TimerSnapshot snapshot = TimerSnapshot.of(engine, 3, 1L);
+        assertFalse(snapshot.running);
+        assertEquals(0L, snapshot.deadline);
+        assertEquals(WORK - 60_000L, snapshot.getRemainingMillis(now + 3_600_000L));
+        assertEquals(WORK, snapshot.getPhaseDurationMillis());
+        assertEquals(3, snapshot.sessions);
+    }
+
+    @Test
+    public void onlyRealChangesMakeANewState() {
+        engine.start();
+        TimerSnapshot first = TimerSnapshot.of(engine, 1, 1L);
+        now += 10_000L;
+        engine.update();
+        assertTrue(TimerSnapshot.of(engine, 1, 2L).sameState(first));
+        assertFalse(TimerSnapshot.of(engine, 2, 2L).sameState(first));
+
+        now += WORK;
+        engine.update();
+        TimerSnapshot onBreak = TimerSnapshot.of(engine, 2, 2L);
+        assertFalse(onBreak.sameState(first));
+        assertEquals(GlanceState.of(engine, 2), onBreak.toGlance());
+
+        engine.setDurations(WORK, 10 * 60 * 1000L);
+        assertFalse(TimerSnapshot.of(engine, 2, 3L).sameState(onBreak));
+        assertFalse(onBreak.sameState(null));
+    }
+
+    // One thread owns the engine and publishes, another reads: readers never see a torn state
+    @Test
+    public void readersSeeWholeSnapshotsInOrder() throws InterruptedException {
+        AtomicReference<TimerSnapshot> published = new AtomicReference<>();
+        AtomicBoolean done = new AtomicBoolean();
+        long[] clock = {0L};
+        TimerEngine owned = new TimerEngine(() -> clock[0], 1_000L, 3_000L);
+        owned.start();
+        published.set(TimerSnapshot.of(owned, 1, 1L));
+
+        Thread engineThread = new Thread(() -> {
+            int sessions = 1;
+            for (long version = 2; version < 200_000; version++) {
+                clock[0] += 500L;
+                TimerEngine.Phase before = owned.getPhase();
+                owned.update();
+                if (before == TimerEngine.Phase.WORK && owned.getPhase() != before) sessions++;
+                if (version % 1_000 == 0) owned.setDurations(1_000L + version % 7_000, 3_000L);
+                TimerSnapshot next = TimerSnapshot.of(owned, sessions, version);
+                if (!next.sameState(published.get())) published.set(next);
+            }
+            done.set(true);
+        });
+        engineThread.start();
+
+        TimerSnapshot last = published.get();
+        while (!done.get()) {
+            TimerSnapshot seen = published.get();
+            assertTrue(seen.version >= last.version);
+            assertTrue(seen.sessions >= last.sessions);
+            assertTrue(seen.running);
+            // deadline and durations come from the same moment
+            assertEquals(seen.phase == TimerEngine.Phase.WORK ? seen.workMillis : seen.breakMillis, seen.getPhaseDurationMillis());
+            last = seen;
+        }
+        engineThread.join();
+        assertTrue(published.get().sessions > 1);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.pomodorotimer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link TimerStation} on a virtual clock; the host sleeps until
+ * {@link TimerStation#nextWakeup()} and then advances, like the service's alarm does.
+ */
+public class TimerStationTest {
+
+    private static final long WORK = 25 * 60 * 1000L;
+    private static final long BREAK = 5 * 60 * 1000L;
+
+    private long now;
+    private TimerStation station;
+
+    @Before
+    public void setUp() {
+        now = 10_000L;
+        station = new TimerStation(() -> now, 1L);
+    }
+
+    private TimerEngine newEngine(long work, long brk) {
+        return new TimerEngine(() -> now, work, brk);
+    }
+
+    // Runs the host loop until the virtual clock reaches {@code until}
+    private void runUntil(long until) {
+        while (true) {
+            long next = station.nextWakeup();
+            if (next == TimerStation.NONE || next > until) break;
+            now = next;
+            station.advance();
+        }
+        now = until;
+    }
+
+    @Test
+    public void everyTimerTransitionsOnItsOwnDeadline() {
+        List<String> finished = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            TimerEngine engine = newEngine(i * 60_000L, 30_000L);
+            int id = i;
+            engine.addListener(new TimerEngine.Listener() {
+                @Override
+                public void onPhaseFinished(TimerEngine.Phase phase, long elapsedMillis, boolean skipped) {
+                    finished.add(id + ":" + phase + "@" + (now - 10_000L));
+                }
+            });
+            station.add(engine, null);
+            engine.start();
+        }
+        runUntil(10_000L + 3 * 60_000L);
+        // timers due on the same tick run in no particular order
+        finished.sort(Comparator.comparingLong((String s) -> Long.parseLong(s.substring(s.indexOf('@') + 1))).thenComparing(s -> s));
+        assertEquals(Arrays.asList(
+                "1:WORK@60000", "1:BREAK@90000", "2:WORK@120000", "1:WORK@150000",
+                "2:BREAK@150000", "1:BREAK@180000", "3:WORK@180000"), finished);
+    }
+
+    @Test
+    public void wakeupsDependOnDueTimesNotOnTimerCount() {
+        for (int i = 0; i < 1_000; i++) {
+            TimerEngine engine = newEngine(WORK, BREAK);
+            station.add(engine, null);
+            engine.start();
+        }
+        runUntil(10_000L + 2 * (WORK + BREAK));
+        // all thousand share each deadline: one wakeup per transition
+        assertEquals(4, station.getWakeups());
+    }
+
+    @Test
+    public void coarseTickCoalescesNearbyDeadlines() {
+        station = new TimerStation(() -> now, 1_000L);
+        for (int i = 0; i < 100; i++) {
+            TimerEngine engine = newEngine(WORK + 1 + i * 7L, BREAK);
+            station.add(engine, null);
+            engine.start();
+        }
+        runUntil(10_000L + WORK + 1_000L);
+        assertEquals(1, station.getWakeups());
+        for (TimerStation.Entry entry : station.getEntries()) assertFalse(entry.getEngine().isWorkMode());
+    }
+
+    @Test
+    public void cuesAreDrivenByTheStation() {
+        TimerEngine engine = newEngine(WORK, BREAK);
+        List<String> fired = new ArrayList<>();
+        List<CueScheduler.Cue> declared = Arrays.asList(
+                new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.START, 0L, CueScheduler.Kind.SOUND, "WORK_START"),
+                new CueScheduler.Cue(TimerEngine.Phase.BREAK, CueScheduler.Anchor.START, -1500L, CueScheduler.Kind.SOUND, "BREAK_START"),
+                new CueScheduler.Cue(TimerEngine.Phase.WORK, CueScheduler.Anchor.END, 0L, CueScheduler.Kind.VIBRATION, "finish"));
+        CueScheduler cues = new CueScheduler(engine, () -> now, declared, (cue, late) -> fired.add(cue.name + "@" + (now - 10_000L)));
+        engine.addListener(cues);
+        station.add(engine, cues);
+        engine.start();
+        runUntil(10_000L + WORK);
+        assertEquals(Arrays.asList("WORK_START@0", "BREAK_START@" + (WORK - 1500), "finish@" + WORK), fired);
+    }
+
+    @Test
+    public void pausedAndRemovedTimersAreNotScheduled() {
+        TimerEngine a = newEngine(WORK, BREAK);
+        TimerEngine b = newEngine(2 * WORK, BREAK);
+        TimerStation.Entry entryA = station.add(a, null);
+        station.add(b, null);
+        assertEquals(TimerStation.NONE, station.nextWakeup());
+        a.start();
+        b.start();
+        assertEquals(10_000L + WORK, station.nextWakeup());
+        now += 60_000L;
+        a.pause();
+        assertEquals(10_000L + 2 * WORK, station.nextWakeup());
+        now += 60_000L;
+        a.resume();
+        assertEquals(10_000L + WORK + 60_000L, station.nextWakeup());
+        station.remove(entryA);
+        assertEquals(10_000L + 2 * WORK, station.nextWakeup());
+        assertEquals(1, station.getEntries().size());
+        // removed engines no longer re-arm
+        a.skip();
+        assertEquals(10_000L + 2 * WORK, station.nextWakeup());
+    }
+
+    @Test
+    public void restoredEngineIsRearmedExplicitly() {
+        TimerEngine engine = newEngine(WORK, BREAK);
+        TimerStation.Entry entry = station.add(engine, null);
+        engine.restoreRunning(TimerEngine.Phase.BREAK, now + 10_000L);
+        assertEquals(TimerStation.NONE, station.nextWakeup());
+        entry.rearm();
+        assertEquals(now + 10_000L, station.nextWakeup());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link TimerText}.
+ */
+public class TimerTextTest {
+
+    @Test
+    public void rendersMinutesAndSeconds() {
+        TimerText text = new TimerText();
+        assertTrue(text.update(25 * 60 * 1000L));
+        assertEquals("25:00", text.toString());
+        text.update(61_999L);
+        assertEquals("01:01", text.toString());
+        text.update(0L);
+        assertEquals("00:00", text.toString());
+    }
+
+    @Test
+    public void switchesToHoursForLongSessions() {
+        TimerText text = new TimerText();
+        text.update((2 * 3600 + 3 * 60 + 4) * 1000L);
+        assertEquals("02:03:04", text.toString());
+        text.update(99 * 60 * 1000L + 59_000L);
+        assertEquals("99:59", text.toString());
+    }
+
+    @Test
+    public void reportsChangeOnlyWhenVisibleSecondChanges() {
+        TimerText text = new TimerText();
+        assertTrue(text.update(10_999L));
+        assertFalse(text.update(10_750L));
+        assertFalse(text.update(10_000L));
+        assertTrue(text.update(9_999L));
+        text.invalidate();
+        assertTrue(text.update(9_999L));
+    }
+
+    @Test
+    public void tickDoesNotAllocate() {
+        TimerText text = new TimerText();
+        // warm up so the measured loop runs compiled code
+        for (long t = 25 * 60 * 1000L; t >= 0; t -= 250L) text.update(t);
+
+        int[] changes = {0};
+        long allocated = Allocations.measure(() -> {
+            for (int round = 0; round < 20; round++) {
+                for (long t = 25 * 60 * 1000L; t >= 0; t -= 250L) {
+                    if (text.update(t)) changes[0]++;
+                }
+            }
+        });
+        assertTrue("changes=" + changes[0], changes[0] > 0);
+        // allow for the measurement call itself; a single String per tick would be ~1 MB here
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
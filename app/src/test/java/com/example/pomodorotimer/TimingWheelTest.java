@@ -0,0 +1,183 @@
+package com.example.pomodorotimer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for {@link TimingWheel}.
+ */
+public class TimingWheelTest {
+
+    @Test
+    public void expiresInDeadlineOrderAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(1L, 0L);
+        List<Long> fired = new ArrayList<>();
+        long[] deadlines = {5L, 64L, 63L, 4_096L, 1L, 300_000L, 4_095L, 70L, 262_144L};
+        for (long d : deadlines) wheel.schedule(d, () -> fired.add(d));
+        wheel.advanceTo(1_000_000L);
+        assertEquals(Arrays.asList(1L, 5L, 63L, 64L, 70L, 4_095L, 4_096L, 262_144L, 300_000L), fired);
+        assertEquals(0, wheel.size());
+        assertEquals(TimingWheel.NONE, wheel.nextWakeup());
+    }
+
+    @Test
+    public void deadlinesRoundUpToTheNextTick() {
+        TimingWheel wheel = new TimingWheel(100L, 1_000L);
+        boolean[] fired = new boolean[1];
+        wheel.schedule(1_250L, () -> fired[0] = true);
+        assertEquals(1_300L, wheel.nextExpiry());
+        wheel.advanceTo(1_299L);
+        assertFalse(fired[0]);
+        wheel.advanceTo(1_300L);
+        assertTrue(fired[0]);
+    }
+
+    @Test
+    public void nextExpiryIsExactWhileNextWakeupMayBeACascade() {
+        TimingWheel wheel = new TimingWheel(1L, 10L);
+        wheel.schedule(10_000L, () -> { });
+        assertEquals(10_000L, wheel.nextExpiry());
+        assertTrue(wheel.nextWakeup() <= 10_000L);
+        // following cascades never runs the task early
+        int cascades = 0;
+        while (wheel.size() > 0) {
+            wheel.advanceTo(wheel.nextWakeup());
+            cascades++;
+        }
+        assertTrue("cascades " + cascades, cascades <= TimingWheel.LEVELS);
+    }
+
+    @Test
+    public void nextExpiryFollowsCancelsInACoarseSlot() {
+        TimingWheel wheel = new TimingWheel(1L, 0L);
+        // all in one level-2 slot
+        TimingWheel.Timeout first = wheel.schedule(5_000L, () -> { });
+        TimingWheel.Timeout second = wheel.schedule(5_100L, () -> { });
+        wheel.schedule(5_200L, () -> { });
+        assertEquals(5_000L, wheel.nextExpiry());
+        second.cancel();
+        assertEquals(5_000L, wheel.nextExpiry());
+        first.cancel();
+        assertEquals(5_200L, wheel.nextExpiry());
+        wheel.schedule(5_050L, () -> { });
+        assertEquals(5_050L, wheel.nextExpiry());
+    }
+
+    @Test
+    public void cancelledTimeoutsNeverRun() {
+        TimingWheel wheel = new TimingWheel(1L, 0L);
+        boolean[] fired = new boolean[2];
+        TimingWheel.Timeout a = wheel.schedule(100L, () -> fired[0] = true);
+        wheel.schedule(200L, () -> fired[1] = true);
+        assertTrue(a.cancel());
+        assertFalse(a.cancel());
+        assertFalse(a.isPending());
+        assertEquals(1, wheel.size());
+        assertEquals(200L, wheel.nextExpiry());
+        wheel.advanceTo(1_000L);
+        assertFalse(fired[0]);
+        assertTrue(fired[1]);
+    }
+
+    @Test
+    public void tasksMayCancelAndScheduleDuringExpiry() {
+        TimingWheel wheel = new TimingWheel(1L, 0L);
+        List<String> fired = new ArrayList<>();
+        // filed after the sibling, so it runs first within the slot
+        TimingWheel.Timeout[] sibling = {wheel.schedule(50L, () -> fired.add("sibling"))};
+        wheel.schedule(50L, () -> {
+            fired.add("first");
+            sibling[0].cancel();
+            wheel.schedule(50L, () -> fired.add("now"));
+            wheel.schedule(80L, () -> fired.add("later"));
+        });
+        wheel.advanceTo(60L);
+        assertEquals(Arrays.asList("first", "now"), fired);
+        wheel.advanceTo(80L);
+        assertEquals(Arrays.asList("first", "now", "later"), fired);
+    }
+
+    @Test
+    public void pastDeadlinesExpireOnTheNextAdvance() {
+        TimingWheel wheel = new TimingWheel(1L, 1_000L);
+        boolean[] fired = new boolean[1];
+        wheel.schedule(10L, () -> fired[0] = true);
+        assertEquals(1_000L, wheel.nextExpiry());
+        wheel.advanceTo(1_000L);
+        assertTrue(fired[0]);
+    }
+
+    @Test
+    public void crossesLargeBoundaries() {
+        long start = (1L << 36) - 3; // just below a level-6 boundary
+        TimingWheel wheel = new TimingWheel(1L, start);
+        List<Long> fired = new ArrayList<>();
+        long[] deadlines = {start + 1, start + 3, start + 5, start + (1L << 40), Long.MAX_VALUE / 2};
+        for (long d : deadlines) wheel.schedule(d, () -> fired.add(d));
+        for (long d : deadlines) {
+            assertEquals(d, wheel.nextExpiry());
+            wheel.advanceTo(d - 1);
+            assertEquals(fired.size(), indexOf(deadlines, d));
+            wheel.advanceTo(d);
+            assertEquals(d, (long) fired.get(fired.size() - 1));
+        }
+    }
+
+    @Test
+    public void matchesAReferenceUnderRandomLoad() {
+        Random random = new Random(42);
+        TimingWheel wheel = new TimingWheel(10L, 0L);
+        List<long[]> reference = new ArrayList<>(); // {id, tick-rounded due}
+        List<TimingWheel.Timeout> handles = new ArrayList<>();
+        long[] now = {0L};
+        int[] ids = {0};
+        List<Long> firedIds = new ArrayList<>();
+        for (int step = 0; step < 20_000; step++) {
+            int op = random.nextInt(10);
+            if (op < 5) {
+                long delay = random.nextInt(4) == 0 ? random.nextInt(5_000_000) : random.nextInt(2_000);
+                long deadline = now[0] + delay;
+                long id = ids[0]++;
+                handles.add(wheel.schedule(deadline, () -> {
+                    // never early, and at most one tick late
+                    assertTrue(now[0] >= deadline);
+                    assertTrue(now[0] - deadline < 10L + 10L);
+                    firedIds.add(id);
+                }));
+                reference.add(new long[]{id, (deadline + 9) / 10 * 10});
+            } else if (op < 7 && !handles.isEmpty()) {
+                int i = random.nextInt(handles.size());
+                if (handles.get(i).cancel()) {
+                    for (int r = 0; r < reference.size(); r++) {
+                        if (reference.get(r)[0] == i) reference.remove(r);
+                    }
+                }
+            } else {
+                long expected = Long.MAX_VALUE;
+                for (long[] r : reference) expected = Math.min(expected, r[1]);
+                assertEquals(expected == Long.MAX_VALUE ? TimingWheel.NONE : expected, wheel.nextExpiry());
+                now[0] = expected == Long.MAX_VALUE ? now[0] + 1_000 : Math.min(expected, now[0] + random.nextInt(3_000));
+                firedIds.clear();
+                wheel.advanceTo(now[0]);
+                List<Long> due = new ArrayList<>();
+                for (int r = reference.size() - 1; r >= 0; r--) {
+                    if (reference.get(r)[1] <= now[0]) due.add(reference.remove(r)[0]);
+                }
+                assertEquals(due.size(), firedIds.size());
+                assertTrue(firedIds.containsAll(due));
+            }
+            assertEquals(reference.size(), wheel.size());
+        }
+    }
+
+    private static int indexOf(long[] values, long value) {
+        for (int i = 0; i < values.length; i++) if (values[i] == value) return i;
+        return -1;
+    }
+}
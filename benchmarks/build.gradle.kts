@@ -0,0 +1,37 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+// Desktop JVM benchmarks for the Android-free classes of :app. Their sources are compiled
+// straight from the app module so the measured code is exactly what ships. The set is every
+// source that never names an Android or Google package, so a new dependency between pure-Java
+// classes is picked up without a list to keep in sync.
+val androidReference = Regex("""\b(android|androidx|com\.google)\.[a-z]""")
+
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("../app/src/main/java"))
+            include { element ->
+                element.isDirectory || element.file.useLines { lines -> lines.none { androidReference.containsMatchIn(it) } }
+            }
+        }
+    }
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // gc profiler reports gc.alloc.rate.norm (bytes/op) alongside ns/op
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
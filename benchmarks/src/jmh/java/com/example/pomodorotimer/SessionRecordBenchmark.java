@@ -0,0 +1,46 @@
+package com.example.pomodorotimer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Binary encode/decode of one {@link SessionRecord}, including its CRC32.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SessionRecordBenchmark {
+
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer buffer = ByteBuffer.allocate(SessionRecord.SIZE);
+    private final ByteBuffer encoded = ByteBuffer.allocate(SessionRecord.SIZE);
+    private SessionRecord record;
+
+    @Setup
+    public void setUp() {
+        record = new SessionRecord(1_700_000_000_000L, 25 * 60 * 1000, TimerEngine.Phase.WORK, SessionRecord.Outcome.COMPLETED);
+        record.writeTo(encoded, crc);
+    }
+
+    @Benchmark
+    public ByteBuffer write() {
+        buffer.clear();
+        record.writeTo(buffer, crc);
+        return buffer;
+    }
+
+    @Benchmark
+    public SessionRecord read() {
+        encoded.clear();
+        return SessionRecord.readFrom(encoded, crc);
+    }
+}
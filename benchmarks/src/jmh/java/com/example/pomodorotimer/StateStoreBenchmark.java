@@ -0,0 +1,53 @@
+package com.example.pomodorotimer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the persisted timer state, as {@link TimerService} does before the first frame.
+ * Includes starting and stopping the store's writer thread, which every open pays for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StateStoreBenchmark {
+
+    private File dir;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        dir = Files.createTempDirectory("state-store-bench").toFile();
+        file = new File(dir, "timer_state.bin");
+        StateStore store = StateStore.open(file);
+        store.setTimer(true, true, 123_456L, 1_700_000_123_456L, 0L);
+        store.setSessionsCompleted(3);
+        if (!store.awaitDurable(2_000L)) throw new IllegalStateException("state not written");
+        store.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public int open() {
+        StateStore store = StateStore.open(file);
+        int sessions = store.getSessionsCompleted();
+        store.close();
+        return sessions;
+    }
+}
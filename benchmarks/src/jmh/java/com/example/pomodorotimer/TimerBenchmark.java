@@ -0,0 +1,59 @@
+package com.example.pomodorotimer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tick cost of the countdown: engine update, next-tick scheduling and the progress
+ * fraction shown by the ring.
+ *
+ * A virtual clock advances by a realistic tick (just over a second) on every invocation and
+ * wraps around the phase boundary, so phase chaining is included in the average.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimerBenchmark {
+
+    private static final long WORK = 25 * 60 * 1000L;
+    private static final long BREAK = 5 * 60 * 1000L;
+    private static final long TICK = 1_001L;
+
+    private long now;
+    private TimerEngine engine;
+
+    @Setup
+    public void setUp() {
+        now = 0L;
+        engine = new TimerEngine(() -> now, WORK, BREAK);
+        engine.addListener(new TimerEngine.Listener() {});
+        engine.start();
+    }
+
+    @Benchmark
+    public long engineUpdate() {
+        now += TICK;
+        return engine.update();
+    }
+
+    @Benchmark
+    public long nextTickDelay() {
+        now += TICK;
+        long remaining = engine.update();
+        return TickScheduler.nextTickDelay(remaining, engine.getPhaseDurationMillis(), 1_500L);
+    }
+
+    @Benchmark
+    public int progressPercent() {
+        now += TICK;
+        engine.update();
+        return Math.round(engine.getProgress() * 100);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.pomodorotimer;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One virtual hour of {@code timers} concurrent Pomodoros with staggered durations, driven by
+ * a {@link TimerStation} versus one 1 s poll per timer (a Handler per timer, as the activity
+ * used to do for its one timer).
+ *
+ * The {@code wakeups} secondary result is how often the host had to wake up per hour: for
+ * the station it grows with the number of distinct due ticks, not with the timer count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimerStationBenchmark {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long TICK = 1_000L;
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int timers;
+
+    // EVENTS counters are reported as is: the value left by the last invocation, i.e. per hour
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Wakeups {
+        public long wakeups;
+    }
+
+    private long now;
+    private TimerEngine[] engines;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        now = 0L;
+        Random random = new Random(7);
+        engines = new TimerEngine[timers];
+        for (int i = 0; i < timers; i++) {
+            // 15-45 min of work and 3-10 min of break, to the second
+            long work = (15 * 60 + random.nextInt(30 * 60)) * 1000L;
+            long brk = (3 * 60 + random.nextInt(7 * 60)) * 1000L;
+            engines[i] = new TimerEngine(() -> now, work, brk);
+        }
+    }
+
+    @Benchmark
+    public long station(Wakeups counters) {
+        TimerStation station = new TimerStation(() -> now, TICK);
+        for (TimerEngine engine : engines) {
+            station.add(engine, null);
+            engine.start();
+        }
+        while (true) {
+            long next = station.nextWakeup();
+            if (next > HOUR) break;
+            now = next;
+            station.advance();
+        }
+        counters.wakeups = station.getWakeups();
+        return station.getWakeups();
+    }
+
+    @Benchmark
+    public long pollPerTimer(Wakeups counters) {
+        for (TimerEngine engine : engines) engine.start();
+        long remaining = 0L;
+        for (long t = TICK; t <= HOUR; t += TICK) {
+            now = t;
+            for (TimerEngine engine : engines) remaining += engine.update();
+        }
+        counters.wakeups = (long) timers * (HOUR / TICK);
+        return remaining;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.pomodorotimer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Countdown text rendering: {@link TimerText} against the String.format call it replaced.
+ * Run with the gc profiler to compare bytes/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimerTextBenchmark {
+
+    private final TimerText text = new TimerText();
+    private long remaining = 25 * 60 * 1000L;
+
+    private long nextRemaining() {
+        // a new second every call, so TimerText never takes its "unchanged" shortcut
+        remaining -= 1_000L;
+        if (remaining < 0) remaining = 25 * 60 * 1000L;
+        return remaining;
+    }
+
+    @Benchmark
+    public int timerText() {
+        text.update(nextRemaining());
+        return text.length();
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        long seconds = nextRemaining() / 1000;
+        return String.format(Locale.getDefault(), "%02d:%02d", seconds / 60, seconds % 60);
+    }
+}